@@ -0,0 +1,109 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetCursor;
+
+/**
+ * Benchmarks the cost of a page response in each encoding the API negotiates, with and
+ * without the gzip compression the server applies above its size threshold. The time per
+ * operation is the CPU spent on a response; the {@code bytes} and {@code responses}
+ * counters give the bytes sent per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetEncodingBenchmark {
+
+  @Param({"json", "smile", "cbor"})
+  public String format;
+
+  @Param({"none", "gzip"})
+  public String compression;
+
+  @Param({"20", "1000"})
+  public int pageSize;
+
+  private ObjectWriter pageWriter;
+  private PaginatedResult page;
+
+  @Setup
+  public void prepare() {
+    ObjectMapper objectMapper = switch (format) {
+      case "json" -> new ObjectMapper();
+      case "smile" -> new ObjectMapper(new SmileFactory());
+      case "cbor" -> new ObjectMapper(new CBORFactory());
+      default -> throw new IllegalArgumentException("Unknown format " + format);
+    };
+    pageWriter = objectMapper.writerFor(PaginatedResult.class);
+    List<Widget> widgets = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      widgets.add(WidgetFixtures.widget(i));
+    }
+    page = new PaginatedResult(widgets, 1_000_000, WidgetCursor.encode(widgets.get(pageSize - 1).getName()));
+  }
+
+  /**
+   * Bytes written, summed over the iteration along with the number of responses.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ResponseSize {
+
+    public long bytes;
+    public long responses;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+      responses = 0;
+    }
+  }
+
+  @Benchmark
+  public byte[] encodePaginatedResult(ResponseSize size) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+    try (OutputStream out = compression.equals("gzip") ? new GZIPOutputStream(buffer) : buffer) {
+      pageWriter.writeValue(out, page);
+    }
+    size.bytes += buffer.size();
+    size.responses++;
+    return buffer.toByteArray();
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetEncodingBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetEncodingBenchmark {
+  }
+}
@@ -0,0 +1,49 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+/**
+ * Builds the Widget tables the benchmarks run against.
+ */
+final class WidgetFixtures {
+
+  private static final int BATCH = 10_000;
+
+  private WidgetFixtures() {
+  }
+
+  static String name(int i) {
+    return String.format("Widget-%07d", i);
+  }
+
+  static Widget widget(int i) {
+    return Widget.builder().name(name(i)).description("Benchmark widget number " + i).price(10.0 + i % 1000).build();
+  }
+
+  /**
+   * Fills a repository with {@code size} Widgets named {@code Widget-0000000} onwards.
+   */
+  static WidgetRepository repository(int size) {
+    return fill(new WidgetRepository(), size);
+  }
+
+  /**
+   * Fills an empty repository with {@code size} Widgets named {@code Widget-0000000} onwards.
+   */
+  static <R extends WidgetRepository> R fill(R repository, int size) {
+    List<Widget> batch = new ArrayList<>(BATCH);
+    for (int i = 0; i < size; i++) {
+      batch.add(widget(i));
+      if (batch.size() == BATCH) {
+        repository.saveAllIfAbsent(batch);
+        batch.clear();
+      }
+    }
+    repository.saveAllIfAbsent(batch);
+    return repository;
+  }
+}
@@ -0,0 +1,104 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+/**
+ * Measures the memory each Widget costs in the stores, as the heap and direct memory in use
+ * after a full collection once the store is filled, minus the same before it was created.
+ * Each store is filled with the {@link WidgetFixtures} Widgets and measured in turn:
+ * <ul>
+ *     <li>{@code list}: an {@code ArrayList<Widget>}, as a baseline.</li>
+ *     <li>{@code heap} and {@code heap-unindexed}: the repository over the heap table.</li>
+ *     <li>{@code off-heap} and {@code off-heap-unindexed}: the repository over the off-heap table.</li>
+ * </ul>
+ * The change feed is included in the repositories' cost, as it is in a running server.
+ * Run it with a heap large enough for the biggest store, so collections do not distort it.
+ * <p>
+ * Options, as {@code --name=value}: {@code widgets} (1000000) and {@code stores}
+ * (a comma-separated subset of the above, all by default).
+ */
+public final class WidgetFootprint {
+
+  private static final Map<String, IntFunction<Object>> STORES = Map.of(
+      "list", WidgetFootprint::list,
+      "heap", size -> repository(size, false, true),
+      "heap-unindexed", size -> repository(size, false, false),
+      "off-heap", size -> repository(size, true, true),
+      "off-heap-unindexed", size -> repository(size, true, false));
+
+  private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+  private WidgetFootprint() {
+  }
+
+  public static void main(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(option[0], option.length > 1 ? option[1] : "true");
+    }
+    int widgets = Integer.parseInt(options.getOrDefault("widgets", "1000000"));
+    String stores = options.getOrDefault("stores", "list,heap,heap-unindexed,off-heap,off-heap-unindexed");
+
+    System.out.printf("%-20s %12s %12s%n", "store", "heap B/w", "direct B/w");
+    for (String store : stores.split(",")) {
+      IntFunction<Object> fill = STORES.get(store);
+      if (fill == null) {
+        throw new IllegalArgumentException("Unknown store " + store + ", expected one of " + STORES.keySet());
+      }
+      long heapBefore = usedHeap();
+      long directBefore = usedDirect();
+      Object filled = fill.apply(widgets);
+      long heap = usedHeap() - heapBefore;
+      long direct = usedDirect() - directBefore;
+      Reference.reachabilityFence(filled);
+      System.out.printf("%-20s %12.1f %12.1f%n", store, (double) heap / widgets, (double) direct / widgets);
+    }
+  }
+
+  private static List<Object> list(int size) {
+    List<Object> widgets = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      widgets.add(WidgetFixtures.widget(i));
+    }
+    return widgets;
+  }
+
+  private static WidgetRepository repository(int size, boolean offHeap, boolean indexing) {
+    return WidgetFixtures.fill(new WidgetRepository(WidgetJournal.NONE, 0, offHeap, 16_384, indexing), size);
+  }
+
+  /**
+   * Collects until the heap in use stops shrinking, and returns it.
+   */
+  private static long usedHeap() {
+    long used = Long.MAX_VALUE;
+    for (int round = 0; round < 10; round++) {
+      System.gc();
+      long now = MEMORY.getHeapMemoryUsage().getUsed();
+      if (now >= used) {
+        return now;
+      }
+      used = now;
+    }
+    return used;
+  }
+
+  private static long usedDirect() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> pool.getName().equals("direct"))
+        .mapToLong(BufferPoolMXBean::getMemoryUsed)
+        .sum();
+  }
+}
@@ -0,0 +1,76 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetCursor;
+
+/**
+ * Benchmarks Jackson serialization of the response bodies, with a shared
+ * {@link ObjectMapper} as in the application. The page holds {@code pageSize} Widgets
+ * out of a total of one million.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetJsonBenchmark {
+
+  @Param({"20", "100", "1000"})
+  public int pageSize;
+
+  private ObjectWriter widgetWriter;
+  private ObjectWriter pageWriter;
+  private Widget widget;
+  private PaginatedResult page;
+
+  @Setup
+  public void prepare() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    widgetWriter = objectMapper.writerFor(Widget.class);
+    pageWriter = objectMapper.writerFor(PaginatedResult.class);
+    widget = WidgetFixtures.widget(42);
+    List<Widget> widgets = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      widgets.add(WidgetFixtures.widget(i));
+    }
+    page = new PaginatedResult(widgets, 1_000_000, WidgetCursor.encode(widgets.get(pageSize - 1).getName()));
+  }
+
+  @Benchmark
+  public byte[] serializeWidget() throws JsonProcessingException {
+    return widgetWriter.writeValueAsBytes(widget);
+  }
+
+  @Benchmark
+  public byte[] serializePaginatedResult() throws JsonProcessingException {
+    return pageWriter.writeValueAsBytes(page);
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetJsonBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetJsonBenchmark {
+  }
+}
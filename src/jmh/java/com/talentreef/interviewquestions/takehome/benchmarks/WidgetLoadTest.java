@@ -0,0 +1,206 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test against a running server. Each connection is a virtual thread
+ * that sends requests back to back: 80% single-widget reads, 10% page reads and 10% updates
+ * of widgets seeded through the batch endpoint. Prints throughput and latency percentiles.
+ * <p>
+ * Options, as {@code --name=value}: {@code url} (http://localhost:9000), {@code connections}
+ * (10000), {@code duration} (PT60S), {@code warmup} (PT10S) and {@code widgets} (10000).
+ */
+public final class WidgetLoadTest {
+
+  private static final int SEED_BATCH = 1000;
+
+  private final HttpClient client;
+  private final String url;
+  private final int widgets;
+  private final LatencyHistogram histogram = new LatencyHistogram();
+  private final LongAdder errors = new LongAdder();
+
+  private WidgetLoadTest(String url, int widgets) {
+    this.url = url;
+    this.widgets = widgets;
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(30))
+        .build();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(option[0], option.length > 1 ? option[1] : "true");
+    }
+    String url = options.getOrDefault("url", "http://localhost:9000");
+    int connections = Integer.parseInt(options.getOrDefault("connections", "10000"));
+    Duration duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+    Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+    int widgets = Integer.parseInt(options.getOrDefault("widgets", "10000"));
+
+    WidgetLoadTest test = new WidgetLoadTest(url, widgets);
+    test.seed();
+    System.out.printf("Warming up with %d connections for %s%n", connections, warmup);
+    test.run(connections, warmup);
+    test.histogram.reset();
+    test.errors.reset();
+    System.out.printf("Measuring with %d connections for %s%n", connections, duration);
+    test.run(connections, duration);
+    test.report(duration);
+  }
+
+  private void seed() throws Exception {
+    for (int start = 0; start < widgets; start += SEED_BATCH) {
+      StringBuilder body = new StringBuilder("[");
+      for (int i = start; i < Math.min(start + SEED_BATCH, widgets); i++) {
+        body.append(i == start ? "" : ",").append(widgetJson(i, 10.0));
+      }
+      HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/v1/widgets/batch"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+          .build();
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() != 200) {
+        throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+      }
+    }
+  }
+
+  private void run(int connections, Duration duration) throws InterruptedException {
+    long deadline = System.nanoTime() + duration.toNanos();
+    CountDownLatch done = new CountDownLatch(connections);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < connections; c++) {
+        executor.execute(() -> {
+          SplittableRandom random = new SplittableRandom();
+          try {
+            while (System.nanoTime() < deadline) {
+              send(next(random));
+            }
+          } finally {
+            done.countDown();
+          }
+        });
+      }
+      done.await();
+    }
+  }
+
+  private HttpRequest next(SplittableRandom random) {
+    int i = random.nextInt(widgets);
+    int operation = random.nextInt(10);
+    if (operation < 8) {
+      return HttpRequest.newBuilder(URI.create(url + "/v1/widgets/" + WidgetFixtures.name(i))).GET().build();
+    }
+    if (operation == 8) {
+      int page = random.nextInt(Math.max(widgets / 20, 1)) + 1;
+      return HttpRequest.newBuilder(URI.create(url + "/v1/widgets/paginated?page=" + page + "&pageSize=20")).GET().build();
+    }
+    return HttpRequest.newBuilder(URI.create(url + "/v1/widgets/" + WidgetFixtures.name(i)))
+        .header("Content-Type", "application/json")
+        .PUT(HttpRequest.BodyPublishers.ofString(widgetJson(i, 10.0 + random.nextInt(100))))
+        .build();
+  }
+
+  private void send(HttpRequest request) {
+    long start = System.nanoTime();
+    try {
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() >= 300) {
+        errors.increment();
+      }
+    } catch (Exception e) {
+      errors.increment();
+    }
+    histogram.record((System.nanoTime() - start) / 1000);
+  }
+
+  private void report(Duration duration) {
+    long count = histogram.count();
+    System.out.printf("Requests:   %d (%d errors)%n", count, errors.sum());
+    System.out.printf("Throughput: %.0f requests/s%n", count / (duration.toMillis() / 1000.0));
+    System.out.printf("Latency:    p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms%n",
+        histogram.percentile(0.5) / 1000.0, histogram.percentile(0.99) / 1000.0, histogram.percentile(0.999) / 1000.0);
+  }
+
+  private static String widgetJson(int i, double price) {
+    return "{\"name\":\"" + WidgetFixtures.name(i) + "\",\"description\":\"Load test widget " + i
+        + "\",\"price\":" + price + "}";
+  }
+
+  /**
+   * Lock-free latency histogram in microseconds, with 32 buckets per power of two, which
+   * keeps percentiles within about 3% of the recorded values.
+   */
+  static final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(2 * SUB_BUCKETS + 64 * SUB_BUCKETS);
+
+    void record(long micros) {
+      buckets.incrementAndGet(index(Math.max(micros, 0)));
+    }
+
+    long count() {
+      long count = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        count += buckets.get(i);
+      }
+      return count;
+    }
+
+    void reset() {
+      for (int i = 0; i < buckets.length(); i++) {
+        buckets.set(i, 0);
+      }
+    }
+
+    /**
+     * @return The lower bound, in microseconds, of the bucket holding the percentile.
+     */
+    long percentile(double percentile) {
+      long target = (long) Math.ceil(count() * percentile);
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        seen += buckets.get(i);
+        if (seen >= target && seen > 0) {
+          return lowerBound(i);
+        }
+      }
+      return 0;
+    }
+
+    static int index(long micros) {
+      if (micros < 2 * SUB_BUCKETS) {
+        return (int) micros;
+      }
+      int shift = 63 - Long.numberOfLeadingZeros(micros) - 5;
+      return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowerBound(int index) {
+      if (index < 2 * SUB_BUCKETS) {
+        return index;
+      }
+      int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+      return (long) ((index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+/**
+ * Benchmarks the {@link WidgetRepository} operations behind the single-widget endpoints.
+ * Writes replace or delete and restore existing Widgets, so the table keeps its size for
+ * the whole run. Subclasses choose the number of threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetRepositoryBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  public WidgetRepository repository;
+
+  @Setup(Level.Trial)
+  public void fill() {
+    repository = WidgetFixtures.repository(size);
+  }
+
+  /**
+   * Picks the Widgets each thread works on.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    int next(int size) {
+      return random.nextInt(size);
+    }
+  }
+
+  @Benchmark
+  public Optional<Widget> findByName(Cursor cursor) {
+    return repository.findByName(WidgetFixtures.name(cursor.next(size)));
+  }
+
+  @Benchmark
+  public Widget save(Cursor cursor) {
+    return repository.save(WidgetFixtures.widget(cursor.next(size)));
+  }
+
+  /**
+   * Deletes a Widget and saves it back, measuring both.
+   */
+  @Benchmark
+  public Widget deleteById(Cursor cursor) {
+    int i = cursor.next(size);
+    repository.deleteById(WidgetFixtures.name(i));
+    return repository.save(WidgetFixtures.widget(i));
+  }
+
+  @Benchmark
+  public PaginatedResult findPaginated(Cursor cursor) {
+    return repository.findPaginated(cursor.next(size / 20) + 1, 20);
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetRepositoryBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetRepositoryBenchmark {
+  }
+}
@@ -0,0 +1,80 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+
+/**
+ * Benchmarks the {@link WidgetService} write paths, including their logging calls.
+ * Subclasses choose the number of threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetServiceBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  public WidgetService service;
+
+  private final AtomicInteger created = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void fill() {
+    service = new WidgetService(WidgetFixtures.repository(size));
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    int next(int size) {
+      return random.nextInt(size);
+    }
+  }
+
+  /**
+   * Creates a Widget under a fresh name and deletes it again, so the table keeps its size.
+   */
+  @Benchmark
+  public Widget createWidget() {
+    Widget widget = WidgetFixtures.widget(size + created.getAndIncrement());
+    Widget result = service.createWidget(widget);
+    service.deleteWidget(widget.getName());
+    return result;
+  }
+
+  @Benchmark
+  public Widget updateWidget(Cursor cursor) {
+    int i = cursor.next(size);
+    return service.updateWidget(WidgetFixtures.name(i), Widget.builder().price(20.0 + i % 100).build());
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetServiceBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetServiceBenchmark {
+  }
+}
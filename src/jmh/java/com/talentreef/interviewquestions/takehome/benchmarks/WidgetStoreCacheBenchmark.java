@@ -0,0 +1,121 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.CachingWidgetStore;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks reading hot Widgets by name straight from a backend and through a
+ * {@link CachingWidgetStore}. The backend burns {@code backendCost} Blackhole tokens per
+ * lookup to stand in for a slower, durable store; the cached reads should not depend on it.
+ * Names are picked among the first {@code hotKeys} Widgets, or among names that do not exist.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetStoreCacheBenchmark {
+
+  private static final int SIZE = 100_000;
+
+  @Param({"0", "2000"})
+  public long backendCost;
+
+  @Param({"1000"})
+  public int hotKeys;
+
+  private WidgetStore backend;
+  private WidgetStore cached;
+  private String[] hotNames;
+  private String[] missingNames;
+
+  @Setup(Level.Trial)
+  public void fill() {
+    backend = WidgetFixtures.fill(new SlowRepository(backendCost), SIZE);
+    cached = new CachingWidgetStore(backend, new SimpleMeterRegistry(), SIZE, Duration.ofMinutes(5),
+        Duration.ofSeconds(30));
+    hotNames = new String[hotKeys];
+    missingNames = new String[hotKeys];
+    for (int i = 0; i < hotKeys; i++) {
+      hotNames[i] = WidgetFixtures.name(i);
+      missingNames[i] = WidgetFixtures.name(SIZE + i);
+    }
+  }
+
+  /**
+   * Picks the names each thread reads.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    int next(int size) {
+      return random.nextInt(size);
+    }
+  }
+
+  @Benchmark
+  public Optional<Widget> backend(Cursor cursor) {
+    return backend.findByName(hotNames[cursor.next(hotKeys)]);
+  }
+
+  @Benchmark
+  public Optional<Widget> cached(Cursor cursor) {
+    return cached.findByName(hotNames[cursor.next(hotKeys)]);
+  }
+
+  @Benchmark
+  public Optional<Widget> cachedMissing(Cursor cursor) {
+    return cached.findByName(missingNames[cursor.next(hotKeys)]);
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetStoreCacheBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetStoreCacheBenchmark {
+  }
+
+  /**
+   * Repository whose lookups by name cost extra CPU time.
+   */
+  private static final class SlowRepository extends WidgetRepository {
+
+    private final long cost;
+
+    SlowRepository(long cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public Optional<Widget> findByName(String name) {
+      Blackhole.consumeCPU(cost);
+      return super.findByName(name);
+    }
+  }
+}
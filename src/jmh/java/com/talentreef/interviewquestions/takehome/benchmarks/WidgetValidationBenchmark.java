@@ -0,0 +1,71 @@
+package com.talentreef.interviewquestions.takehome.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.services.WidgetValidator;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+/**
+ * Benchmarks validating one Widget with Bean Validation and with the {@link WidgetValidator}
+ * compiled from the same constraints, for a valid Widget and for one breaking a constraint
+ * on every field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public abstract class WidgetValidationBenchmark {
+
+  @Param({"true", "false"})
+  public boolean valid;
+
+  private Validator beanValidator;
+  private WidgetValidator widgetValidator;
+  private Widget widget;
+
+  @Setup
+  public void prepare() {
+    beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    widgetValidator = new WidgetValidator();
+    widget = valid
+        ? WidgetFixtures.widget(42)
+        : Widget.builder().name("W").description("").price(0.5).build();
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Widget>> beanValidation() {
+    return beanValidator.validate(widget);
+  }
+
+  @Benchmark
+  public List<String> widgetValidator() {
+    return widgetValidator.validate(widget);
+  }
+
+  @Threads(1)
+  public static class SingleThreaded extends WidgetValidationBenchmark {
+  }
+
+  @Threads(Threads.MAX)
+  public static class MultiThreaded extends WidgetValidationBenchmark {
+  }
+}
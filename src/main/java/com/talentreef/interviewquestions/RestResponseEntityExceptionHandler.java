@@ -1,32 +1,16 @@
 package com.talentreef.interviewquestions;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.util.List;
-
+/**
+ * Answers Spring MVC's own exceptions, such as unreadable bodies or unsupported media types,
+ * with problem details. Invalid request bodies are left to
+ * {@link com.talentreef.interviewquestions.takehome.exceptions.CustomExceptionHandler}, which
+ * is ordered first and reports them as a map of field errors on both stacks.
+ */
 @RestControllerAdvice
-@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
-
-  @Override
-  protected ResponseEntity<Object> handleMethodArgumentNotValid(
-      MethodArgumentNotValidException ex, HttpHeaders headers,
-      HttpStatusCode status, WebRequest request) {
-    List<String> errorList = ex
-        .getBindingResult()
-        .getFieldErrors()
-        .stream()
-        .map((field) -> field.getField() + ": " + field.getDefaultMessage())
-        .toList();
-
-    return ResponseEntity.badRequest().body(errorList);
-  }
-
 }
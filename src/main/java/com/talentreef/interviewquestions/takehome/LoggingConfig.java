@@ -0,0 +1,18 @@
+package com.talentreef.interviewquestions.takehome;
+
+import com.talentreef.interviewquestions.takehome.logging.AsyncLoggingMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Logs are written off the request path by the asynchronous appender configured in
+ * {@code logback-spring.xml}; this exposes how far behind it is and what it dropped.
+ */
+@Configuration
+public class LoggingConfig {
+
+    @Bean
+    public AsyncLoggingMetrics asyncLoggingMetrics() {
+        return new AsyncLoggingMetrics();
+    }
+}
@@ -0,0 +1,55 @@
+package com.talentreef.interviewquestions.takehome;
+
+import com.talentreef.interviewquestions.takehome.respositories.CachingWidgetStore;
+import com.talentreef.interviewquestions.takehome.respositories.FileWidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+public class PersistenceConfig {
+    /**
+     * Journal backing the widget repository. Widgets are kept in memory only unless
+     * {@code widgets.persistence.enabled} is set.
+     */
+    @Bean(destroyMethod = "close")
+    public WidgetJournal widgetJournal(@Value("${widgets.persistence.enabled:false}") boolean enabled,
+                                       @Value("${widgets.persistence.directory:data}") String directory,
+                                       @Value("${widgets.persistence.snapshot-interval:PT5M}") Duration snapshotInterval,
+                                       @Value("${widgets.persistence.fsync:true}") boolean fsync) throws IOException {
+        if (!enabled) {
+            return WidgetJournal.NONE;
+        }
+        return new FileWidgetJournal(Paths.get(directory), snapshotInterval, fsync);
+    }
+
+    /**
+     * Store used by the services: the repository behind a cache of lookups by name when
+     * {@code widgets.cache.enabled} is set. Unset, the cache is only used when the repository
+     * decodes widgets on reads, from a journal's snapshot or off-heap records; heap lookups
+     * already cost no more than the cache's.
+     */
+    @Bean
+    @Primary
+    public WidgetStore widgetStore(WidgetRepository widgetRepository,
+                                   MeterRegistry registry,
+                                   @Value("${widgets.cache.enabled:#{null}}") Boolean enabled,
+                                   @Value("${widgets.storage.off-heap:false}") boolean offHeap,
+                                   @Value("${widgets.cache.max-size:100000}") long maxSize,
+                                   @Value("${widgets.cache.ttl:PT5M}") Duration ttl,
+                                   @Value("${widgets.cache.negative-ttl:PT30S}") Duration negativeTtl) {
+        if (enabled == null ? !widgetRepository.isDurable() && !offHeap : !enabled) {
+            return widgetRepository;
+        }
+        return new CachingWidgetStore(widgetRepository, registry, maxSize, ttl, negativeTtl);
+    }
+}
@@ -0,0 +1,34 @@
+package com.talentreef.interviewquestions.takehome;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.replication.HttpReplicationSource;
+import com.talentreef.interviewquestions.takehome.replication.WidgetReplicator;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ReplicationConfig {
+    /**
+     * Copies the widgets of the primary at {@code widgets.replication.primary} and follows
+     * its changes when {@code widgets.replication.role} is {@code replica}. Instances are
+     * primaries otherwise, and need nothing more than their change feed to be followed.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "widgets.replication.role", havingValue = "replica")
+    public WidgetReplicator widgetReplicator(WidgetService widgetService,
+                                             ObjectMapper objectMapper,
+                                             MeterRegistry registry,
+                                             @Value("${widgets.replication.primary}") String primary,
+                                             @Value("${widgets.replication.timeout:PT5S}") Duration timeout,
+                                             @Value("${widgets.replication.wait:PT25S}") Duration wait,
+                                             @Value("${widgets.replication.retry-delay:PT1S}") Duration retryDelay) {
+        return new WidgetReplicator(new HttpReplicationSource(primary, timeout, objectMapper), widgetService,
+                registry, wait, retryDelay);
+    }
+}
@@ -1,10 +1,34 @@
 package com.talentreef.interviewquestions.takehome;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.talentreef.interviewquestions.takehome.limits.ConcurrencyLimit;
+import com.talentreef.interviewquestions.takehome.limits.ConcurrencyLimitFilter;
+import com.talentreef.interviewquestions.takehome.replication.ReplicaWriteFilter;
+import com.talentreef.interviewquestions.takehome.sharding.ConsistentHashRing;
+import com.talentreef.interviewquestions.takehome.sharding.HttpShardClient;
+import com.talentreef.interviewquestions.takehome.sharding.ShardRoutingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class WebConfig {
     @Bean
@@ -20,4 +44,115 @@ public class WebConfig {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Sheds load on the widget API with adaptive limits on the reads and writes in flight, and
+     * a fixed one on the listings of all widgets, ahead of every other filter so rejected
+     * requests cost as little as possible.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "widgets.limits.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            MeterRegistry registry,
+            @Value("${widgets.limits.initial:64}") int initial,
+            @Value("${widgets.limits.min:8}") int min,
+            @Value("${widgets.limits.max:1024}") int max,
+            @Value("${widgets.limits.tolerance:2.0}") double tolerance,
+            @Value("${widgets.limits.listings:64}") int listings) {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                new ConcurrencyLimit(initial, min, max, tolerance),
+                new ConcurrencyLimit(initial, min, max, tolerance),
+                new ConcurrencyLimit(listings, listings, listings, tolerance),
+                registry);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Runs the asynchronous work of Spring MVC, such as writing the streamed widget list, on
+     * virtual threads, so slow readers of large listings do not hold up a bounded pool. The
+     * change feed writes its events on virtual threads of its own.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebMvcConfigurer asyncSupportConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+            }
+        };
+    }
+
+    /**
+     * Spreads the widgets over the instances listed in {@code widgets.sharding.nodes} when
+     * {@code widgets.sharding.enabled} is set, right after load shedding so that rejected
+     * requests are not forwarded.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "widgets.sharding.enabled", havingValue = "true")
+    public FilterRegistrationBean<ShardRoutingFilter> shardRoutingFilter(
+            ObjectMapper objectMapper,
+            @Value("${widgets.sharding.nodes}") List<String> nodes,
+            @Value("${widgets.sharding.self}") String self,
+            @Value("${widgets.sharding.virtual-nodes:128}") int virtualNodes,
+            @Value("${widgets.sharding.timeout:PT5S}") Duration timeout,
+            @Value("${widgets.batch.max-items:10000}") int maxBatchItems) {
+        ShardRoutingFilter filter = new ShardRoutingFilter(new ConsistentHashRing(nodes, virtualNodes), self,
+                new HttpShardClient(timeout), objectMapper, maxBatchItems);
+        FilterRegistrationBean<ShardRoutingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    /**
+     * Sends the writes received by a replica to the primary, when {@code widgets.replication.role}
+     * is {@code replica}. Runs after load shedding, so rejected writes are not redirected.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "widgets.replication.role", havingValue = "replica")
+    public FilterRegistrationBean<ReplicaWriteFilter> replicaWriteFilter(
+            @Value("${widgets.replication.primary}") String primary) {
+        FilterRegistrationBean<ReplicaWriteFilter> registration = new FilterRegistrationBean<>(new ReplicaWriteFilter(primary));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    /**
+     * Smile encoding of the widget API, configured like the JSON one. Only the converter is a
+     * bean: another ObjectMapper bean would replace the application's JSON one.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+    }
+
+    /**
+     * CBOR encoding of the widget API, configured like the JSON one.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+    }
+
+    /**
+     * The same CORS policy for the reactive stack.
+     */
+    @Bean
+    public WebFluxConfigurer reactiveCorsConfigurer() {
+        return new WebFluxConfigurer() {
+            @Override
+            public void addCorsMappings(org.springframework.web.reactive.config.CorsRegistry registry) {
+                registry.addMapping("/**")
+                        .allowedOrigins("http://localhost:3000")
+                        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                        .allowedHeaders("*")
+                        .allowCredentials(true);
+            }
+        };
+    }
+}
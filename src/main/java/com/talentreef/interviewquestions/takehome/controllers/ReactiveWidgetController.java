@@ -0,0 +1,194 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+import com.talentreef.interviewquestions.takehome.services.ReactiveWidgetService;
+import com.talentreef.interviewquestions.takehome.services.WidgetValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import jakarta.validation.Valid;
+import java.util.List;
+
+/**
+ * Non-blocking version of {@link WidgetController}, serving the same {@code /v1/widgets} API
+ * when the application runs on the reactive stack ({@code spring.main.web-application-type=reactive}).
+ * Lists are written as the client consumes them: a slow client only delays reading from the
+ * repository, and holds no thread while it waits.
+ */
+@Validated
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping(value = "/v1/widgets", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveWidgetController {
+
+    static final String TOTAL_COUNT = "X-Total-Count";
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private final ReactiveWidgetService widgetService;
+    private final WidgetValidator widgetValidator;
+
+    public ReactiveWidgetController(ReactiveWidgetService widgetService) {
+        this(widgetService, new WidgetValidator());
+    }
+
+    @Autowired
+    public ReactiveWidgetController(ReactiveWidgetService widgetService, WidgetValidator widgetValidator) {
+        Assert.notNull(widgetService, "widgetService must not be null");
+        Assert.notNull(widgetValidator, "widgetValidator must not be null");
+        this.widgetService = widgetService;
+        this.widgetValidator = widgetValidator;
+    }
+
+    /**
+     * Validates {@code @Valid} Widget bodies with {@link WidgetValidator} instead of Bean
+     * Validation, reporting the same field errors without reflection.
+     */
+    @InitBinder("widget")
+    public void initWidgetBinder(WebDataBinder binder) {
+        binder.setValidator(widgetValidator);
+    }
+
+    /**
+     * Endpoint to list all Widgets in the system, as a JSON array or, when the client
+     * accepts {@code application/x-ndjson}, as one JSON document per line.
+     *
+     * @return The streamed list of all widgets.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Widget> getAllWidgets() {
+        return widgetService.streamAllWidgets();
+    }
+
+    /**
+     * Endpoint to retrieve paginated widgets.
+     * When {@code after} is given, the page following that cursor is returned and {@code page} is ignored.
+     * When the client accepts {@code application/x-ndjson}, the widgets of the page are streamed one
+     * per line instead, with the total count and next cursor in the {@code X-Total-Count} and
+     * {@code X-Next-Cursor} headers.
+     *
+     * @param page     The current page number.
+     * @param pageSize The size of the page.
+     * @param after    The {@code nextCursor} of the previous page.
+     * @param accept   The Accept header of the request.
+     * @return         A paginated result with widget data, total count and next cursor.
+     */
+    @GetMapping(value = "/paginated", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<?>> getPaginatedWidgets(@RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "4") int pageSize,
+                                                       @RequestParam(required = false) String after,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Mono<PaginatedResult> result = after != null
+                ? widgetService.getWidgetsAfter(after, pageSize)
+                : widgetService.getPaginatedWidgets(page, pageSize);
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        if (!ndjson) {
+            return result.<ResponseEntity<?>>map(ResponseEntity::ok);
+        }
+        return result.<ResponseEntity<?>>map(paginated -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .header(TOTAL_COUNT, String.valueOf(paginated.getTotal()));
+            if (paginated.getNextCursor() != null) {
+                response.header(NEXT_CURSOR, paginated.getNextCursor());
+            }
+            return response.body(Flux.fromIterable(paginated.getWidgets()));
+        });
+    }
+
+    /**
+     * Endpoint to find a page of Widgets by price band and description words, served from
+     * the repository's indexes instead of a scan.
+     *
+     * @param minPrice The lowest price, inclusive.
+     * @param maxPrice The highest price, inclusive.
+     * @param q        Words that must all appear in the description, in any case.
+     * @param sort     {@code name}, {@code price} or {@code -price}.
+     * @param after    The {@code nextCursor} of the previous page.
+     * @param limit    The most widgets to return, from 1 to 1000.
+     * @return         The matching widgets and next cursor.
+     */
+    @GetMapping("/query")
+    public Mono<QueryResult> queryWidgets(@RequestParam(required = false) Double minPrice,
+                                          @RequestParam(required = false) Double maxPrice,
+                                          @RequestParam(required = false) String q,
+                                          @RequestParam(defaultValue = "name") String sort,
+                                          @RequestParam(required = false) String after,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        return Mono.defer(() -> widgetService.queryWidgets(
+                new WidgetQuery(minPrice, maxPrice, q, WidgetQuery.Sort.fromParameter(sort)), after, limit));
+    }
+
+    /**
+     * Endpoint for type-ahead search of Widgets by name, served from the repository's name trie.
+     *
+     * @param prefix   The start of the names, in any case.
+     * @param maxEdits The number of typos to tolerate, from 0 to 2.
+     * @param limit    The most widgets to return, from 1 to 100.
+     * @return         The matching widgets, closest to the prefix first, then in name order.
+     */
+    @GetMapping("/search")
+    public Mono<List<Widget>> searchWidgets(@RequestParam String prefix, @RequestParam(defaultValue = "0") int maxEdits,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        return widgetService.searchWidgets(prefix, maxEdits, limit);
+    }
+
+    /**
+     * Endpoint to create a new Widget.
+     *
+     * @param widget The Widget object provided in the request body.
+     * @return       The created Widget.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Widget>> createWidget(@Valid @RequestBody Widget widget) {
+        return widgetService.createWidget(widget)
+                .map(createdWidget -> ResponseEntity.status(HttpStatus.CREATED).body(createdWidget));
+    }
+
+    /**
+     * Endpoint to retrieve details of a Widget by its name.
+     *
+     * @param name The name of the Widget to retrieve.
+     * @return     The Widget details if found.
+     */
+    @GetMapping("/{name}")
+    public Mono<Widget> getWidgetByName(@PathVariable String name) {
+        return widgetService.getWidgetByName(name);
+    }
+
+    /**
+     * Endpoint to update a Widget's description or price.
+     *
+     * @param name   The name of the Widget to update.
+     * @param widget The Widget object containing updated fields.
+     * @return       The updated Widget details.
+     */
+    @PutMapping(value = "/{name}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Widget> updateWidget(@PathVariable String name, @Valid @RequestBody Widget widget) {
+        return widgetService.updateWidget(name, widget);
+    }
+
+    /**
+     * Endpoint to delete a Widget by its name.
+     *
+     * @param name The name of the Widget to delete.
+     * @return     HTTP 204 status on successful deletion.
+     */
+    @DeleteMapping("/{name}")
+    public Mono<ResponseEntity<Void>> deleteWidget(@PathVariable String name) {
+        return widgetService.deleteWidget(name)
+                .then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+    }
+}
@@ -0,0 +1,67 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import com.talentreef.interviewquestions.takehome.models.BatchResult;
+import com.talentreef.interviewquestions.takehome.services.WidgetBatchService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping(value = "/v1/widgets/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+public class WidgetBatchController {
+
+    private final WidgetBatchService widgetBatchService;
+
+    public WidgetBatchController(WidgetBatchService widgetBatchService) {
+        Assert.notNull(widgetBatchService, "widgetBatchService must not be null");
+        this.widgetBatchService = widgetBatchService;
+    }
+
+    /**
+     * Endpoint to create many Widgets at once.
+     *
+     * @param body The request body, a JSON array of Widgets.
+     * @return     A report with the outcome of each Widget.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchResult> createWidgets(InputStream body) throws IOException {
+        return toResponse(widgetBatchService.createWidgets(body));
+    }
+
+    /**
+     * Endpoint to update the description or price of many Widgets at once.
+     *
+     * @param body The request body, a JSON array of Widgets identified by name.
+     * @return     A report with the outcome of each Widget.
+     */
+    @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchResult> updateWidgets(InputStream body) throws IOException {
+        return toResponse(widgetBatchService.updateWidgets(body));
+    }
+
+    /**
+     * Endpoint to delete many Widgets at once.
+     *
+     * @param body The request body, a JSON array of Widget names.
+     * @return     A report with the outcome of each Widget.
+     */
+    @DeleteMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchResult> deleteWidgets(InputStream body) throws IOException {
+        return toResponse(widgetBatchService.deleteWidgets(body));
+    }
+
+    /**
+     * Answers 400 when the body could not be read to the end, otherwise 200 with the per-item report.
+     */
+    private ResponseEntity<BatchResult> toResponse(BatchResult result) {
+        return result.getError() != null
+                ? ResponseEntity.badRequest().body(result)
+                : ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,224 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidQueryException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code /v1/widgets/changes} feed: every create, update and delete, numbered in the
+ * order it was applied. A consumer lists the widgets, keeps the {@code X-Change-Seq} header
+ * of the listing and follows the changes from it, either as Server-Sent Events or by long
+ * polling. Only the latest changes are retained; resuming from an older one answers
+ * 410 Gone and the consumer has to list the widgets again.
+ * <p>
+ * Waiting consumers hold no thread: each registers a listener on the change feed, and the
+ * changes it is woken for are read and written on a virtual thread. A single scheduler
+ * thread queues the keep-alive comments of the open streams.
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/v1/widgets/changes")
+public class WidgetChangesController implements AutoCloseable {
+
+    static final String CHANGE_SEQ_HEADER = "X-Change-Seq";
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    static final int MAX_WAIT_SECONDS = 60;
+    static final Duration HEARTBEAT = Duration.ofSeconds(15);
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final WidgetService widgetService;
+    private final ObjectMapper objectMapper;
+    private final Executor writers;
+    private final ScheduledExecutorService heartbeats;
+    private final Set<ChangeStream> streams = ConcurrentHashMap.newKeySet();
+
+    public WidgetChangesController(WidgetService widgetService, ObjectMapper objectMapper) {
+        this(widgetService, objectMapper, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    WidgetChangesController(WidgetService widgetService, ObjectMapper objectMapper, Executor writers) {
+        Assert.notNull(widgetService, "widgetService must not be null");
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        Assert.notNull(writers, "writers must not be null");
+        this.widgetService = widgetService;
+        this.objectMapper = objectMapper;
+        this.writers = writers;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "widget-changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(this::keepAlive, HEARTBEAT.toMillis(), HEARTBEAT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Endpoint to follow the changes as Server-Sent Events. Each event carries the change's
+     * {@code seq} as its id, so a reconnecting {@code EventSource} resumes where it stopped.
+     * A comment is sent every {@link #HEARTBEAT}, to keep proxies from closing the stream.
+     *
+     * @param since       The sequence number to follow from, or the latest one if absent.
+     * @param lastEventId The id of the last event received before reconnecting, preferred to {@code since}.
+     * @return            The stream of changes.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) Long since,
+                                                    @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId) {
+        long start = lastEventId != null ? lastEventId : since != null ? since : widgetService.getChangeSeq();
+        // Fails with 410 now rather than as an event once the stream has started.
+        widgetService.getChanges(start, 1);
+        log.atDebug().addKeyValue("since", start).log("Streaming widget changes");
+        ChangeStream stream = new ChangeStream(new SseEmitter(), start);
+        stream.await();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(stream.emitter);
+    }
+
+    /**
+     * Endpoint to long-poll the changes. Answers as soon as there are changes after
+     * {@code since}, or with none once {@code waitSeconds} have passed.
+     *
+     * @param since       The sequence number of the last change already seen.
+     * @param limit       The most changes to return, from 1 to 1000.
+     * @param waitSeconds How long to wait for a change, from 0 to 60.
+     * @return            The changes and the {@code next} sequence number to poll from.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ChangesResult> pollChanges(@RequestParam long since, @RequestParam(defaultValue = "100") int limit,
+                                                     @RequestParam(defaultValue = "25") int waitSeconds) {
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new InvalidQueryException("waitSeconds must be between 0 and " + MAX_WAIT_SECONDS + ".");
+        }
+        ChangesResult available = widgetService.getChanges(since, limit);
+        DeferredResult<ChangesResult> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds));
+        if (!available.getChanges().isEmpty() || waitSeconds == 0) {
+            result.setResult(available);
+            return result;
+        }
+        Runnable cancel = widgetService.onChanges(since, () -> writers.execute(() -> poll(result, since, limit)));
+        result.onTimeout(() -> poll(result, since, limit));
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    /**
+     * Stops the keep-alive comments. Open streams end when their requests time out.
+     */
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        if (writers instanceof ExecutorService executor) {
+            executor.shutdown();
+        }
+    }
+
+    private void poll(DeferredResult<ChangesResult> result, long since, int limit) {
+        try {
+            result.setResult(widgetService.getChanges(since, limit));
+        } catch (ChangesExpiredException e) {
+            result.setErrorResult(e);
+        }
+    }
+
+    private void keepAlive() {
+        for (ChangeStream stream : streams) {
+            writers.execute(stream::keepAlive);
+        }
+    }
+
+    /**
+     * An open event stream. It waits for the changes after {@code seq} with a listener, writes
+     * them once woken, then waits again, until the client goes away, the request times out or
+     * the consumer falls so far behind that changes expired.
+     */
+    private final class ChangeStream {
+
+        private final SseEmitter emitter;
+        private volatile long seq;
+        private volatile Runnable cancel = () -> {
+        };
+
+        ChangeStream(SseEmitter emitter, long seq) {
+            this.emitter = emitter;
+            this.seq = seq;
+            streams.add(this);
+            emitter.onCompletion(this::closed);
+            emitter.onTimeout(emitter::complete);
+            emitter.onError(error -> closed());
+        }
+
+        void await() {
+            cancel = widgetService.onChanges(seq, () -> writers.execute(this::write));
+            if (!streams.contains(this)) {
+                cancel.run();
+            }
+        }
+
+        private void write() {
+            if (!streams.contains(this)) {
+                return;
+            }
+            try {
+                ChangesResult batch = widgetService.getChanges(seq, STREAM_BATCH_SIZE);
+                for (WidgetChange change : batch.getChanges()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.getSeq()))
+                            .name(change.getType().name().toLowerCase(Locale.ROOT))
+                            .data(objectMapper.writeValueAsString(change)));
+                }
+                seq = batch.getNext();
+                await();
+            } catch (ChangesExpiredException e) {
+                log.info("Widget change stream fell behind: {}", e.getMessage());
+                try {
+                    emitter.send(SseEmitter.event().name("expired").data(objectMapper.writeValueAsString(e.getMessage())));
+                    emitter.complete();
+                } catch (IOException sendFailed) {
+                    emitter.completeWithError(sendFailed);
+                }
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void keepAlive() {
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            } catch (IllegalStateException e) {
+                // The stream completed since the heartbeat was queued.
+            }
+        }
+
+        private void closed() {
+            streams.remove(this);
+            cancel.run();
+        }
+    }
+}
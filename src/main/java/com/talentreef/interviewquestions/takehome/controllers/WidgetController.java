@@ -1,53 +1,185 @@
 package com.talentreef.interviewquestions.takehome.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
 import com.talentreef.interviewquestions.takehome.services.WidgetService;
-import lombok.extern.slf4j.Slf4j;
+import com.talentreef.interviewquestions.takehome.services.WidgetValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-@Slf4j
+/**
+ * The {@code /v1/widgets} API. Reads carry ETags built from the repository's versions and are
+ * answered with 304 Not Modified, without serializing anything, when the client's
+ * {@code If-None-Match} still matches. Updates and deletes honour {@code If-Match} for
+ * optimistic concurrency and fail with 412 Precondition Failed when the Widget has changed.
+ * <p>
+ * The listing, page and query endpoints also negotiate the binary Smile and CBOR encodings,
+ * which are smaller and cheaper to parse than JSON. Their ETags are weak, since the
+ * representations they cover are equivalent rather than byte-identical, and since the server
+ * only compresses responses without a strong ETag.
+ */
 @Validated
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping(value = "/v1/widgets", produces = MediaType.APPLICATION_JSON_VALUE)
 
 public class WidgetController {
 
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+    private static final List<MediaType> LISTING_TYPES = List.of(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_NDJSON, APPLICATION_SMILE, MediaType.APPLICATION_CBOR);
+
     private final WidgetService widgetService;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+    private final WidgetValidator widgetValidator;
+
+    public WidgetController(WidgetService widgetService, ObjectMapper objectMapper) {
+        this(widgetService, objectMapper, new WidgetValidator());
+    }
 
-    public WidgetController(WidgetService widgetService) {
+    @Autowired
+    public WidgetController(WidgetService widgetService, ObjectMapper objectMapper, WidgetValidator widgetValidator) {
         Assert.notNull(widgetService, "widgetService must not be null");
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        Assert.notNull(widgetValidator, "widgetValidator must not be null");
         this.widgetService = widgetService;
+        this.objectMapper = objectMapper;
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.widgetValidator = widgetValidator;
+    }
+
+    /**
+     * Validates {@code @Valid} Widget bodies with {@link WidgetValidator} instead of Bean
+     * Validation, reporting the same field errors without reflection.
+     */
+    @InitBinder("widget")
+    public void initWidgetBinder(WebDataBinder binder) {
+        binder.setValidator(widgetValidator);
     }
 
     /**
      * Endpoint to list all Widgets in the system.
+     * Widgets are written to the response one by one as they are read from the repository,
+     * as an array in the first of JSON, Smile or CBOR that the client accepts or, for
+     * {@code application/x-ndjson}, as one JSON document per line. The {@code X-Change-Seq} header gives the point to follow
+     * the {@code /v1/widgets/changes} feed from to keep the list up to date. With {@code versions}, each widget also
+     * carries the {@code version} its ETag is made of, for replicas to keep it.
      *
-     * @return The list of all widgets.
+     * @param accept   The Accept header of the request.
+     * @param versions Whether to include each widget's version.
+     * @param request  The request, checked against the catalog version.
+     * @return        The streamed list of all widgets, or nothing if the catalog is not modified.
      */
-    @GetMapping
-    public ResponseEntity<List<Widget>> getAllWidgets() {
-        return ResponseEntity.ok(widgetService.getAllWidgets());
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAllWidgets(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                               @RequestParam(defaultValue = "false") boolean versions,
+                                                               WebRequest request) {
+        // Read before streaming, so the tag is never newer than the list. The check also
+        // sets the ETag header, which streamed bodies do not get from the ResponseEntity.
+        long changeSeq = widgetService.getChangeSeq();
+        if (request.checkNotModified(weakEtag(widgetService.getCatalogVersion()))) {
+            return null;
+        }
+        MediaType contentType = listingType(accept);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(contentType)
+                .header(WidgetChangesController.CHANGE_SEQ_HEADER, Long.toString(changeSeq))
+                .body(outputStream -> writeWidgets(outputStream, contentType, versions));
     }
 
     /**
      * Endpoint to retrieve paginated widgets.
+     * When {@code after} is given, the page following that cursor is returned and {@code page} is ignored.
      *
      * @param page     The current page number.
      * @param pageSize The size of the page.
-     * @return         A paginated result with widget data and total count.
+     * @param after    The {@code nextCursor} of the previous page.
+     * @return         A paginated result with widget data, total count and next cursor.
+     */
+    @GetMapping(value = "/paginated", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<PaginatedResult> getPaginatedWidgets(@RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "4") int pageSize,
+                                                               @RequestParam(required = false) String after) {
+        String etag = weakEtag(widgetService.getCatalogVersion());
+        PaginatedResult result = after != null
+                ? widgetService.getWidgetsAfter(after, pageSize)
+                : widgetService.getPaginatedWidgets(page, pageSize);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(result);
+    }
+
+    /**
+     * Endpoint to find a page of Widgets by price band and description words, served from
+     * the repository's indexes instead of a scan.
+     *
+     * @param minPrice The lowest price, inclusive.
+     * @param maxPrice The highest price, inclusive.
+     * @param q        Words that must all appear in the description, in any case.
+     * @param sort     {@code name}, {@code price} or {@code -price}.
+     * @param after    The {@code nextCursor} of the previous page.
+     * @param limit    The most widgets to return, from 1 to 1000.
+     * @return         The matching widgets and next cursor.
+     */
+    @GetMapping(value = "/query", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<QueryResult> queryWidgets(@RequestParam(required = false) Double minPrice,
+                                                    @RequestParam(required = false) Double maxPrice,
+                                                    @RequestParam(required = false) String q,
+                                                    @RequestParam(defaultValue = "name") String sort,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(defaultValue = "100") int limit) {
+        String etag = weakEtag(widgetService.getCatalogVersion());
+        QueryResult result = widgetService.queryWidgets(
+                new WidgetQuery(minPrice, maxPrice, q, WidgetQuery.Sort.fromParameter(sort)), after, limit);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(result);
+    }
+
+    /**
+     * Endpoint for type-ahead search of Widgets by name, served from the repository's name trie.
+     *
+     * @param prefix   The start of the names, in any case.
+     * @param maxEdits The number of typos to tolerate, from 0 to 2.
+     * @param limit    The most widgets to return, from 1 to 100.
+     * @return         The matching widgets, closest to the prefix first, then in name order.
      */
-    @GetMapping("/paginated")
-    public PaginatedResult getPaginatedWidgets(@RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "4") int pageSize) {
-        return widgetService.getPaginatedWidgets(page, pageSize);
+    @GetMapping("/search")
+    public List<Widget> searchWidgets(@RequestParam String prefix, @RequestParam(defaultValue = "0") int maxEdits,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        return widgetService.searchWidgets(prefix, maxEdits, limit);
     }
 
     /**
@@ -58,48 +190,138 @@ public class WidgetController {
      */
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Widget> createWidget(@Valid @RequestBody Widget widget) {
-        log.info("Creating new widget with name: {}", widget.getName());
         Widget createdWidget = widgetService.createWidget(widget);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdWidget);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(widgetService.getVersion(createdWidget))).body(createdWidget);
     }
 
     /**
      * Endpoint to retrieve details of a Widget by its name.
      *
-     * @param name The name of the Widget to retrieve.
-     * @return     The Widget details if found.
+     * When {@code If-None-Match} matches the ETag, 304 is answered before the Widget is encoded.
+     * Otherwise the body is the Widget's JSON as cached by the service, written as is.
+     *
+     * @param name    The name of the Widget to retrieve.
+     * @param request The request, checked against the Widget's version.
+     * @return        The Widget details if found, or nothing if the Widget is not modified.
      */
     @GetMapping("/{name}")
-    public ResponseEntity<Widget> getWidgetByName(@PathVariable String name) {
-        log.info("Fetching widget details for name: {}", name);
+    public ResponseEntity<byte[]> getWidgetByName(@PathVariable String name, WebRequest request) {
         Widget widget = widgetService.getWidgetByName(name);
-        return ResponseEntity.ok(widget);
+        String etag = etag(widgetService.getVersion(widget));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(widgetService.toJson(widget));
     }
 
     /**
      * Endpoint to update a Widget's description or price.
      *
-     * @param name   The name of the Widget to update.
-     * @param widget The Widget object containing updated fields.
-     * @return       The updated Widget details.
+     * @param name    The name of the Widget to update.
+     * @param widget  The Widget object containing updated fields.
+     * @param ifMatch The ETags the Widget must still have, if any.
+     * @return        The updated Widget details.
      */
     @PutMapping(value = "/{name}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Widget> updateWidget(@PathVariable String name, @Valid @RequestBody Widget widget) {
-        log.info("Updating widget with name: {}", name);
-        Widget updatedWidget = widgetService.updateWidget(name, widget);
-        return ResponseEntity.ok(updatedWidget);
+    public ResponseEntity<Widget> updateWidget(@PathVariable String name, @Valid @RequestBody Widget widget,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Widget updatedWidget = widgetService.updateWidget(name, widget, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(widgetService.getVersion(updatedWidget))).body(updatedWidget);
     }
 
     /**
      * Endpoint to delete a Widget by its name.
      *
-     * @param name The name of the Widget to delete.
-     * @return     HTTP 204 status on successful deletion.
+     * @param name    The name of the Widget to delete.
+     * @param ifMatch The ETags the Widget must still have, if any.
+     * @return        HTTP 204 status on successful deletion.
      */
     @DeleteMapping("/{name}")
-    public ResponseEntity<Void> deleteWidget(@PathVariable String name) {
-        log.info("Deleting widget with name: {}", name);
-        widgetService.deleteWidget(name);
+    public ResponseEntity<Void> deleteWidget(@PathVariable String name,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        widgetService.deleteWidget(name, expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    private static String etag(String version) {
+        return "\"" + version + "\"";
+    }
+
+    private static String weakEtag(String version) {
+        return "W/" + etag(version);
+    }
+
+    /**
+     * Picks the listing's encoding: the first supported type the client accepts, in the
+     * order it lists them, or JSON.
+     */
+    private static MediaType listingType(String accept) {
+        if (accept != null) {
+            for (MediaType accepted : MediaType.parseMediaTypes(accept)) {
+                for (MediaType supported : LISTING_TYPES) {
+                    if (accepted.equalsTypeAndSubtype(supported)) {
+                        return supported;
+                    }
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Parses an If-Match header into a test of the Widget's current version, or null when any
+     * version is accepted. If-Match uses strong comparison, so weak tags never match.
+     */
+    private static Predicate<String> expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<String> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                versions.add(tag.substring(1, tag.length() - 1));
+            }
+        }
+        return versions::contains;
+    }
+
+    /**
+     * Writes every Widget to the output without holding the full list in memory.
+     */
+    private void writeWidgets(OutputStream outputStream, MediaType contentType, boolean versions) throws IOException {
+        boolean ndjson = contentType.equals(MediaType.APPLICATION_NDJSON);
+        ObjectMapper mapper = contentType.equals(APPLICATION_SMILE) ? smileMapper
+                : contentType.equals(MediaType.APPLICATION_CBOR) ? cborMapper
+                : objectMapper;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream);
+             Stream<Widget> widgets = widgetService.streamAllWidgets()) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            Iterator<Widget> iterator = widgets.iterator();
+            while (iterator.hasNext()) {
+                Widget widget = iterator.next();
+                if (versions) {
+                    ObjectNode node = mapper.valueToTree(widget);
+                    node.put("version", widgetService.getVersion(widget));
+                    generator.writeTree(node);
+                } else {
+                    generator.writeObject(widget);
+                }
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            }
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
 }
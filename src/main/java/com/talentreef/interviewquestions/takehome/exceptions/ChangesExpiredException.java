@@ -0,0 +1,7 @@
+package com.talentreef.interviewquestions.takehome.exceptions;
+
+public class ChangesExpiredException extends RuntimeException {
+    public ChangesExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.talentreef.interviewquestions.takehome.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
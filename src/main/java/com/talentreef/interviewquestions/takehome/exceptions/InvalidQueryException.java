@@ -0,0 +1,7 @@
+package com.talentreef.interviewquestions.takehome.exceptions;
+
+public class InvalidQueryException extends RuntimeException {
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
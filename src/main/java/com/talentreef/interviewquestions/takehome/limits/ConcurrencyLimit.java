@@ -0,0 +1,154 @@
+package com.talentreef.interviewquestions.takehome.limits;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive limit on the number of requests in flight, adjusted from their latency in the
+ * manner of a gradient limiter.
+ * <p>
+ * Latencies are sampled over windows of at least {@value #WINDOW_MILLIS} ms. At the end of
+ * each window its median latency is compared with a baseline: the lowest median seen. In
+ * windows that did not reach the limit, the baseline rises slowly towards their median, so
+ * it follows lasting changes in the cost of requests, such as a growing catalog, but not the
+ * queueing of an overload. The limit then moves a fifth of the way towards a
+ * target. While the median stays within {@code tolerance} times the baseline, the target is the limit plus its square root, leaving
+ * room to discover more capacity. Beyond that, the target is the limit scaled down by the
+ * ratio, to no less than half, which is also the target after a window with dropped requests.
+ * Windows that used less than half of the limit leave it unchanged, so a quiet period does
+ * not inflate it.
+ * <p>
+ * Acquiring takes no lock. Releasing adds a sample under a lock held for a few array stores,
+ * and the window's last release recomputes the limit.
+ */
+public final class ConcurrencyLimit {
+
+    static final long WINDOW_MILLIS = 100;
+    private static final int WINDOW_SAMPLES = 128;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int BASELINE_WINDOWS = 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int limit;
+
+    // Guarded by the lock.
+    private final long[] samples = new long[WINDOW_SAMPLES];
+    private int sampleCount;
+    private int maxInFlight;
+    private boolean dropped;
+    private long windowStart;
+    private double estimatedLimit;
+    private double baselineRtt;
+
+    /**
+     * @param initialLimit The limit until enough latency has been sampled.
+     * @param minLimit     The lowest the limit can go.
+     * @param maxLimit     The highest the limit can go.
+     * @param tolerance    How many times the baseline latency a window's latency can reach
+     *                     before the limit shrinks.
+     */
+    public ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this(initialLimit, minLimit, maxLimit, tolerance, System::nanoTime);
+    }
+
+    ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a slot if fewer requests than the limit are in flight.
+     *
+     * @return True if the request may proceed and must be {@link #release released}, false to reject it.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot taken by {@link #tryAcquire} and records how the request went.
+     *
+     * @param rttNanos How long the request held the slot.
+     * @param dropped  True if the request failed in a way that signals overload, such as a timeout.
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        lock.lock();
+        try {
+            samples[sampleCount++ % WINDOW_SAMPLES] = rttNanos;
+            maxInFlight = Math.max(maxInFlight, current);
+            this.dropped |= dropped;
+            long now = nanoClock.getAsLong();
+            if (now - windowStart >= WINDOW_MILLIS * 1_000_000 && sampleCount >= MIN_WINDOW_SAMPLES) {
+                adjust();
+                windowStart = now;
+                sampleCount = 0;
+                maxInFlight = 0;
+                this.dropped = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The current limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The number of requests holding a slot.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void adjust() {
+        long[] window = Arrays.copyOf(samples, Math.min(sampleCount, WINDOW_SAMPLES));
+        Arrays.sort(window);
+        double shortRtt = Math.max(window[window.length / 2], 1);
+        if (baselineRtt == 0 || shortRtt < baselineRtt) {
+            baselineRtt = shortRtt;
+        } else if (maxInFlight < limit) {
+            baselineRtt += (shortRtt - baselineRtt) / BASELINE_WINDOWS;
+        }
+        double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit / 2;
+        } else if (maxInFlight < estimatedLimit / 2) {
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineRtt / shortRtt));
+            newLimit = gradient < 1.0 ? estimatedLimit * gradient : estimatedLimit + Math.sqrt(estimatedLimit);
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,156 @@
+package com.talentreef.interviewquestions.takehome.limits;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds load on the {@code /v1/widgets} API once more requests are in flight than an
+ * adaptive {@link ConcurrencyLimit} allows, answering 503 Service Unavailable with a
+ * {@code Retry-After} header instead of queueing them behind the ones already running.
+ * <p>
+ * Reads and writes have separate limits: writes wait for the journal, so their latency says
+ * nothing about the load reads can take, and a burst of reads must not starve writes.
+ * Listings of all widgets have a third limit, usually fixed: they stream for as long as the
+ * client takes to read them, so their latency would pull the read limit down and their slots
+ * would crowd out ordinary reads. Asynchronous responses hold their slot until they complete.
+ * The change feed is not limited, since its requests wait for changes rather than work.
+ * <p>
+ * Meters, tagged by {@code group} ({@code read}, {@code write} or {@code listing}):
+ * <ul>
+ *     <li>{@code widgets.limit}: the current limit.</li>
+ *     <li>{@code widgets.limit.in.flight}: requests holding a slot.</li>
+ *     <li>{@code widgets.limit.rejected}: requests answered with 503.</li>
+ * </ul>
+ */
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+    private static final byte[] REJECTION = "{\"error\":\"The server is overloaded, retry later.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ConcurrencyLimit reads;
+    private final ConcurrencyLimit writes;
+    private final ConcurrencyLimit listings;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+    private final Counter listingsRejected;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimit reads, ConcurrencyLimit writes, ConcurrencyLimit listings,
+                                  MeterRegistry registry) {
+        Assert.notNull(reads, "reads must not be null");
+        Assert.notNull(writes, "writes must not be null");
+        Assert.notNull(listings, "listings must not be null");
+        Assert.notNull(registry, "registry must not be null");
+        this.reads = reads;
+        this.writes = writes;
+        this.listings = listings;
+        this.readsRejected = register(registry, "read", reads);
+        this.writesRejected = register(registry, "write", writes);
+        this.listingsRejected = register(registry, "listing", listings);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals("/v1/widgets") || path.startsWith("/v1/widgets/"))
+                || path.startsWith("/v1/widgets/changes")
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        boolean listing = read && request.getRequestURI().substring(request.getContextPath().length()).equals("/v1/widgets");
+        ConcurrencyLimit limit = listing ? listings : read ? reads : writes;
+        if (!limit.tryAcquire()) {
+            (listing ? listingsRejected : read ? readsRejected : writesRejected).increment();
+            log.debug("Shedding {} {}: {} requests in flight", request.getMethod(), request.getRequestURI(), limit.getInFlight());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(REJECTION);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Release(limit, start));
+            } else {
+                limit.release(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    private static Counter register(MeterRegistry registry, String group, ConcurrencyLimit limit) {
+        Gauge.builder("widgets.limit", limit, ConcurrencyLimit::getLimit)
+                .description("Requests allowed in flight before new ones are rejected")
+                .tag("group", group)
+                .register(registry);
+        Gauge.builder("widgets.limit.in.flight", limit, ConcurrencyLimit::getInFlight)
+                .description("Requests in flight")
+                .tag("group", group)
+                .register(registry);
+        return Counter.builder("widgets.limit.rejected")
+                .description("Requests rejected because the limit was reached")
+                .tag("group", group)
+                .register(registry);
+    }
+
+    /**
+     * Releases the slot of an asynchronous request once it completes, counting timeouts
+     * and errors as dropped.
+     */
+    private static final class Release implements AsyncListener {
+
+        private final ConcurrencyLimit limit;
+        private final long start;
+        private final AtomicBoolean dropped = new AtomicBoolean();
+
+        Release(ConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start, dropped.get());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            dropped.set(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            dropped.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.talentreef.interviewquestions.takehome.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+
+/**
+ * Meters the {@link MeteredAsyncAppender}s attached to the root logger, tagged by
+ * {@code appender} name:
+ * <ul>
+ *     <li>{@code logging.queue.depth}: events waiting for the worker thread.</li>
+ *     <li>{@code logging.queue.capacity}: the size of the queue.</li>
+ *     <li>{@code logging.events.dropped}: events dropped because the queue was full.</li>
+ * </ul>
+ * Nothing is registered when logging is not backed by Logback.
+ */
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        for (Iterator<Appender<ILoggingEvent>> appenders = root.iteratorForAppenders(); appenders.hasNext(); ) {
+            if (appenders.next() instanceof MeteredAsyncAppender appender) {
+                Gauge.builder("logging.queue.depth", appender, MeteredAsyncAppender::getNumberOfElementsInQueue)
+                        .description("Log events waiting to be written")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                Gauge.builder("logging.queue.capacity", appender, MeteredAsyncAppender::getQueueSize)
+                        .description("Log events the queue holds")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                FunctionCounter.builder("logging.events.dropped", appender, MeteredAsyncAppender::getDroppedCount)
+                        .description("Log events dropped because the queue was full")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.talentreef.interviewquestions.takehome.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback's {@link AsyncAppender}, which hands events to a worker thread through a bounded
+ * queue, counting the events it drops. Configured with {@code neverBlock}, a full queue drops
+ * events instead of stalling the request that logged them; past the discarding threshold,
+ * events below WARN are dropped first.
+ * <p>
+ * Drops are counted from the queue's capacity just before the event is queued, so under
+ * contention the count is approximate.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private final LongAdder dropped = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int remaining = getRemainingCapacity();
+        if ((remaining < getDiscardingThreshold() && isDiscardable(event)) || (remaining == 0 && isNeverBlock())) {
+            dropped.increment();
+        }
+        super.append(event);
+    }
+
+    /**
+     * @return The number of events dropped since the appender was created.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,31 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+import java.util.List;
+
+/**
+ * This model class reports the outcome of a single item of a batch request.
+ * The status mirrors the HTTP status the equivalent single-widget call would return.
+ */
+public class BatchItemResult {
+    private String name;
+    private int status;
+    private List<String> errors;
+
+    public BatchItemResult(String name, int status, List<String> errors) {
+        this.name = name;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
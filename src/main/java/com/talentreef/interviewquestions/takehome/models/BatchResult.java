@@ -0,0 +1,38 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+import java.util.List;
+
+/**
+ * This model class represents the report of a batch request.
+ * Items are listed in request order. When the request body could not be read to the end,
+ * {@code error} describes the problem and only the items before it were applied.
+ */
+public class BatchResult {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> items;
+    private String error;
+
+    public BatchResult(int succeeded, int failed, List<BatchItemResult> items, String error) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.items = items;
+        this.error = error;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<BatchItemResult> getItems() {
+        return items;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
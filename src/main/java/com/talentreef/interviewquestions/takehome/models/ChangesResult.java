@@ -0,0 +1,25 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+import java.util.List;
+
+/**
+ * This model class represents a batch of the change feed.
+ * {@code next} is the {@code seq} to pass back as {@code since} to fetch the changes that follow.
+ */
+public class ChangesResult {
+    private List<WidgetChange> changes;
+    private long next;
+
+    public ChangesResult(List<WidgetChange> changes, long next) {
+        this.changes = changes;
+        this.next = next;
+    }
+
+    public List<WidgetChange> getChanges() {
+        return changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+}
@@ -4,14 +4,22 @@ import java.util.List;
 
 /**
  * This model class represents a subset of widgets used for pagination.
+ * When more widgets follow the page, {@code nextCursor} can be passed back
+ * as the {@code after} parameter to fetch them.
  */
 public class PaginatedResult {
     private List<Widget> widgets;
     private int total;
+    private String nextCursor;
 
     public PaginatedResult(List<Widget> widgets, int total) {
+        this(widgets, total, null);
+    }
+
+    public PaginatedResult(List<Widget> widgets, int total, String nextCursor) {
         this.widgets = widgets;
         this.total = total;
+        this.nextCursor = nextCursor;
     }
 
     public List<Widget> getWidgets() {
@@ -21,4 +29,8 @@ public class PaginatedResult {
     public int getTotal() {
         return total;
     }
-}
\ No newline at end of file
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,26 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+import java.util.List;
+
+/**
+ * This model class represents a page of the widgets matching a query.
+ * When more widgets match, {@code nextCursor} can be passed back as the
+ * {@code after} parameter to fetch them.
+ */
+public class QueryResult {
+    private List<Widget> widgets;
+    private String nextCursor;
+
+    public QueryResult(List<Widget> widgets, String nextCursor) {
+        this.widgets = widgets;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Widget> getWidgets() {
+        return widgets;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -4,7 +4,9 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.validation.constraints.DecimalMax;
@@ -16,6 +18,7 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 
@@ -49,4 +52,14 @@ public class Widget {
     @DecimalMin(value = "1.00", message = "Price must be at least 1.")
     @DecimalMax(value = "20000.00", message = "Price must not exceed 20000.")
     private Double price;
+
+    /**
+     * Version of the stored Widget, assigned by the repository on every write and exposed
+     * as the ETag of its resource rather than in the JSON body. Null for Widgets not
+     * written since startup.
+     */
+    @Version
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+/**
+ * This model class represents one write of a widget, as published to the change feed.
+ * Changes are numbered by {@code seq} in the order they were applied, and a consumer that
+ * has applied every change up to a {@code seq} can resume after it.
+ */
+public class WidgetChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final long seq;
+    private final Type type;
+    private final String name;
+    private final Widget widget;
+    private final String version;
+    private final long timestamp;
+
+    public WidgetChange(long seq, Type type, String name, Widget widget, String version) {
+        this(seq, type, name, widget, version, System.currentTimeMillis());
+    }
+
+    public WidgetChange(long seq, Type type, String name, Widget widget, String version, long timestamp) {
+        this.seq = seq;
+        this.type = type;
+        this.name = name;
+        this.widget = widget;
+        this.version = version;
+        this.timestamp = timestamp;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The widget as stored by the write, or null for a deletion.
+     */
+    public Widget getWidget() {
+        return widget;
+    }
+
+    /**
+     * @return The version of the stored widget, as used in its ETag, or null for a deletion.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return When the change was applied, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,80 @@
+package com.talentreef.interviewquestions.takehome.models;
+
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidQueryException;
+
+import java.util.Comparator;
+
+/**
+ * This model class represents a filtered query over the widgets: an inclusive price band,
+ * words that must all appear in the description, and the order of the results.
+ * Missing bounds and blank text match every widget.
+ */
+public class WidgetQuery {
+
+    /**
+     * Orders of query results. Ties on price are broken by name.
+     */
+    public enum Sort {
+        NAME(Comparator.comparing(Widget::getName)),
+        PRICE(Comparator.comparing(Widget::getPrice).thenComparing(Widget::getName)),
+        PRICE_DESC(PRICE.comparator.reversed());
+
+        private final Comparator<Widget> comparator;
+
+        Sort(Comparator<Widget> comparator) {
+            this.comparator = comparator;
+        }
+
+        public Comparator<Widget> comparator() {
+            return comparator;
+        }
+
+        /**
+         * Parses the {@code sort} request parameter: {@code name}, {@code price} or {@code -price}.
+         *
+         * @throws InvalidQueryException if the value is none of those.
+         */
+        public static Sort fromParameter(String value) {
+            return switch (value) {
+                case "name" -> NAME;
+                case "price" -> PRICE;
+                case "-price" -> PRICE_DESC;
+                default -> throw new InvalidQueryException("Sort must be one of name, price or -price.");
+            };
+        }
+    }
+
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final String text;
+    private final Sort sort;
+
+    public WidgetQuery(Double minPrice, Double maxPrice, String text, Sort sort) {
+        if (minPrice != null && !Double.isFinite(minPrice) || maxPrice != null && !Double.isFinite(maxPrice)) {
+            throw new InvalidQueryException("minPrice and maxPrice must be finite numbers.");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new InvalidQueryException("minPrice must not exceed maxPrice.");
+        }
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.text = text;
+        this.sort = sort != null ? sort : Sort.NAME;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+}
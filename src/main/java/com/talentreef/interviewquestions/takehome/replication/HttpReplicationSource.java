@@ -0,0 +1,122 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link ReplicationSource} reading the primary's {@code /v1/widgets} listing, with the
+ * widgets' versions, and long-polling its {@code /v1/widgets/changes} feed over the JDK's
+ * HTTP client.
+ */
+public class HttpReplicationSource implements ReplicationSource {
+
+    static final String CHANGE_SEQ_HEADER = "X-Change-Seq";
+
+    private final HttpClient httpClient;
+    private final String primary;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param primary      The primary's base URL, such as {@code http://localhost:9000}.
+     * @param timeout      How long to wait for the primary, on top of the long-poll wait.
+     * @param objectMapper Reads the primary's JSON.
+     */
+    public HttpReplicationSource(String primary, Duration timeout, ObjectMapper objectMapper) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.primary = primary;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public long list(BiConsumer<Widget, String> widgets) throws IOException {
+        HttpResponse<InputStream> response = send("/v1/widgets?versions=true", timeout, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Primary answered " + response.statusCode() + " to the widget listing: "
+                        + new String(body.readNBytes(1024), StandardCharsets.UTF_8));
+            }
+            long seq = response.headers().firstValueAsLong(CHANGE_SEQ_HEADER)
+                    .orElseThrow(() -> new IOException("Primary did not send " + CHANGE_SEQ_HEADER));
+            try (JsonParser parser = objectMapper.createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Primary did not answer the widget listing with an array");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode widget = parser.readValueAsTree();
+                    String version = widget.path("version").textValue();
+                    if (version == null) {
+                        throw new IOException("Primary did not send the version of " + widget.path("name").asText());
+                    }
+                    widgets.accept(objectMapper.treeToValue(widget, Widget.class), version);
+                }
+            }
+            return seq;
+        }
+    }
+
+    @Override
+    public ChangesResult changes(long since, int limit, Duration wait) throws IOException {
+        HttpResponse<byte[]> response = send("/v1/widgets/changes?since=" + since + "&limit=" + limit
+                + "&waitSeconds=" + wait.toSeconds(), timeout.plus(wait), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == HttpStatus.GONE.value()) {
+            throw new ChangesExpiredException(new String(response.body(), StandardCharsets.UTF_8));
+        }
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new IOException("Primary answered " + response.statusCode() + " to the change feed");
+        }
+        JsonNode result = objectMapper.readTree(response.body());
+        List<WidgetChange> changes = new ArrayList<>();
+        for (JsonNode change : result.path("changes")) {
+            JsonNode widget = change.path("widget");
+            changes.add(new WidgetChange(
+                    change.path("seq").asLong(),
+                    WidgetChange.Type.valueOf(change.path("type").asText()),
+                    change.path("name").asText(),
+                    widget.isObject() ? objectMapper.treeToValue(widget, Widget.class) : null,
+                    change.path("version").textValue(),
+                    change.path("timestamp").asLong()));
+        }
+        return new ChangesResult(changes, result.path("next").asLong(since));
+    }
+
+    private <T> HttpResponse<T> send(String pathAndQuery, Duration timeout, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(primary + pathAndQuery))
+                .timeout(timeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the primary", e);
+        }
+    }
+}
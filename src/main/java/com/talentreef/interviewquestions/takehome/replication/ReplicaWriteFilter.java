@@ -0,0 +1,47 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.util.Set;
+
+/**
+ * Keeps the primary the only instance accepting writes. On a replica, every request of the
+ * {@code /v1/widgets} API other than a read is answered with {@code 307 Temporary Redirect}
+ * to the same URL on the primary, which clients follow with the same method and body.
+ */
+public class ReplicaWriteFilter extends OncePerRequestFilter {
+
+    private static final String WIDGETS_PATH = "/v1/widgets";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final String primary;
+
+    /**
+     * @param primary The primary's base URL, such as {@code http://localhost:9000}.
+     */
+    public ReplicaWriteFilter(String primary) {
+        Assert.hasText(primary, "primary must not be empty");
+        this.primary = primary;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals(WIDGETS_PATH) || path.startsWith(WIDGETS_PATH + "/"))
+                || READ_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) {
+        String query = request.getQueryString();
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(HttpHeaders.LOCATION,
+                primary + request.getRequestURI() + (query == null ? "" : "?" + query));
+    }
+}
@@ -0,0 +1,37 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * The primary's widgets and change feed, as read by a replica.
+ */
+public interface ReplicationSource {
+
+    /**
+     * Lists every widget of the primary.
+     *
+     * @param widgets Receives the widgets, in name order, each with its version on the primary.
+     * @return        The sequence number of the primary's latest change, read before the
+     *                widgets, to follow the changes from.
+     * @throws IOException if the primary could not be reached or answered with an error.
+     */
+    long list(BiConsumer<Widget, String> widgets) throws IOException;
+
+    /**
+     * Reads the changes following a sequence number, waiting for one if there is none yet.
+     *
+     * @param since The sequence number of the last change already applied.
+     * @param limit The most changes to return.
+     * @param wait  How long the primary may wait for a change before answering with none.
+     * @return      The changes and the sequence number to resume from.
+     * @throws ChangesExpiredException if the primary no longer retains the changes following {@code since}.
+     * @throws IOException             if the primary could not be reached or answered with an error.
+     */
+    ChangesResult changes(long since, int limit, Duration wait) throws IOException;
+}
@@ -0,0 +1,209 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a replica's widgets in step with the primary's. The replica first copies the
+ * primary's listing, then follows its change feed from the listing's {@code X-Change-Seq}
+ * and applies each change in order on a single thread, so every name goes through the same
+ * states as on the primary. Widgets are stored with their version on the primary, so the
+ * replica serves them with the same ETags. The listing may already contain some of the
+ * changes that follow; applying them again leaves the same widgets. When the primary no longer retains
+ * the changes the replica needs, it copies the listing again.
+ * <p>
+ * Meters:
+ * <ul>
+ *     <li>{@code widgets.replication.lag}: how far behind the primary the replica's widgets
+ *     are, in seconds. Zero while the last answer of the feed held every change the primary
+ *     had; otherwise the age of the last change applied, or of the last time the replica was
+ *     caught up when the primary cannot be reached.</li>
+ *     <li>{@code widgets.replication.changes}: changes applied from the feed.</li>
+ *     <li>{@code widgets.replication.resyncs}: times the listing was copied.</li>
+ * </ul>
+ */
+@Slf4j
+public class WidgetReplicator implements AutoCloseable {
+
+    static final int BATCH_SIZE = 1000;
+
+    private final ReplicationSource source;
+    private final WidgetService widgetService;
+    private final Duration wait;
+    private final Duration retryDelay;
+    private final LongSupplier clock;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private volatile boolean running;
+    private Thread thread;
+    private boolean synced;
+    private long since;
+    private long caughtUpAt;
+    /**
+     * Time from which the replica is known to be behind, or -1 while it is caught up.
+     */
+    private volatile long behindSince;
+
+    /**
+     * @param source        The primary.
+     * @param widgetService The replica's widgets.
+     * @param registry      Registry of the replication meters.
+     * @param wait          How long each poll of the change feed may wait on the primary.
+     * @param retryDelay    How long to wait before retrying when the primary cannot be reached.
+     */
+    public WidgetReplicator(ReplicationSource source, WidgetService widgetService, MeterRegistry registry,
+                            Duration wait, Duration retryDelay) {
+        this(source, widgetService, registry, wait, retryDelay, System::currentTimeMillis);
+    }
+
+    WidgetReplicator(ReplicationSource source, WidgetService widgetService, MeterRegistry registry,
+                     Duration wait, Duration retryDelay, LongSupplier clock) {
+        Assert.notNull(source, "source must not be null");
+        Assert.notNull(widgetService, "widgetService must not be null");
+        this.source = source;
+        this.widgetService = widgetService;
+        this.wait = wait;
+        this.retryDelay = retryDelay;
+        this.clock = clock;
+        this.caughtUpAt = clock.getAsLong();
+        this.behindSince = caughtUpAt;
+        Gauge.builder("widgets.replication.lag", this, WidgetReplicator::lagSeconds)
+                .description("How far behind the primary the replica's widgets are")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("widgets.replication.changes", applied, LongAdder::sum)
+                .description("Widget changes applied from the primary's feed")
+                .register(registry);
+        FunctionCounter.builder("widgets.replication.resyncs", resyncs, LongAdder::sum)
+                .description("Times the primary's widgets were copied in full")
+                .register(registry);
+    }
+
+    /**
+     * Starts following the primary on a background thread.
+     */
+    public synchronized void start() {
+        Assert.state(thread == null, "Replication already started");
+        running = true;
+        thread = Thread.ofPlatform().name("widget-replicator").daemon().start(this::run);
+    }
+
+    /**
+     * Stops following the primary and waits for the change being applied.
+     */
+    @Override
+    public synchronized void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * @return The replication lag, as published by {@code widgets.replication.lag}.
+     */
+    public double lagSeconds() {
+        long behind = behindSince;
+        return behind < 0 ? 0 : Math.max(clock.getAsLong() - behind, 0) / 1000.0;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                step();
+            } catch (ChangesExpiredException e) {
+                log.warn("Widget changes expired on the primary, copying its widgets again: {}", e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Widget replication failed, retrying in {}: {}", retryDelay, e.toString());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the primary's widgets if needed, then applies the next batch of its changes.
+     * Runs on one thread at a time.
+     */
+    void step() throws IOException {
+        try {
+            if (!synced) {
+                resync();
+            }
+            poll();
+        } catch (ChangesExpiredException e) {
+            synced = false;
+            fallBehind();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            fallBehind();
+            throw e;
+        }
+    }
+
+    private void resync() throws IOException {
+        Set<String> names = new HashSet<>();
+        since = source.list((widget, version) -> {
+            widgetService.saveReplicated(widget, version);
+            names.add(widget.getName());
+        });
+        List<String> removed = widgetService.streamAllWidgets()
+                .map(Widget::getName)
+                .filter(name -> !names.contains(name))
+                .toList();
+        removed.forEach(widgetService::deleteReplicated);
+        synced = true;
+        resyncs.increment();
+        log.info("Copied {} widgets from the primary, following its changes after {}", names.size(), since);
+    }
+
+    private void poll() throws IOException {
+        ChangesResult batch = source.changes(since, BATCH_SIZE, wait);
+        long answeredAt = clock.getAsLong();
+        for (WidgetChange change : batch.getChanges()) {
+            if (change.getType() == WidgetChange.Type.DELETED) {
+                widgetService.deleteReplicated(change.getName());
+            } else {
+                widgetService.saveReplicated(change.getWidget(), change.getVersion());
+            }
+            since = change.getSeq();
+            applied.increment();
+        }
+        since = Math.max(since, batch.getNext());
+        if (batch.getChanges().size() < BATCH_SIZE) {
+            caughtUpAt = answeredAt;
+            behindSince = -1;
+        } else {
+            behindSince = batch.getChanges().get(batch.getChanges().size() - 1).getTimestamp();
+        }
+    }
+
+    private void fallBehind() {
+        if (behindSince < 0) {
+            behindSince = caughtUpAt;
+        }
+    }
+}
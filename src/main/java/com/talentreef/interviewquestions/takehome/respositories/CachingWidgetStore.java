@@ -0,0 +1,277 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.springframework.util.Assert;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link WidgetStore} caching the lookups of another store by name, so that reads of hot
+ * Widgets cost a hash lookup whatever the backend. Every other operation is passed through.
+ * <p>
+ * The cache is Caffeine's, bounded in entries and admitting new ones with its W-TinyLFU
+ * policy, so a scan of cold names does not evict the hot ones. Found Widgets expire after
+ * {@code ttl}, and names found missing are cached too, for the shorter {@code negativeTtl}.
+ * Concurrent lookups of a name that is not cached wait for a single load from the backend.
+ * <p>
+ * Writes through this store invalidate the names they touch once the backend returns,
+ * whether or not they succeeded. Removing an entry waits for a load of the same name in
+ * progress, so a load that read the Widget before the write cannot be cached after it. Writes
+ * made to the backend directly are only seen once their entries expire.
+ * <ul>
+ *     <li>{@code widgets.store.cache}: lookups, tagged with {@code result} {@code hit} or {@code miss}.</li>
+ *     <li>{@code widgets.store.cache.size}: gauge of the entries held, found or missing.</li>
+ * </ul>
+ */
+public class CachingWidgetStore implements WidgetStore {
+
+  private final WidgetStore backend;
+  private final Cache<String, Optional<Widget>> cache;
+
+  /**
+   * @param backend     The store holding the Widgets.
+   * @param registry    Registry of the cache meters.
+   * @param maxSize     The most names to cache.
+   * @param ttl         How long a found Widget stays cached.
+   * @param negativeTtl How long a missing name stays cached.
+   */
+  public CachingWidgetStore(WidgetStore backend, MeterRegistry registry, long maxSize, Duration ttl,
+                            Duration negativeTtl) {
+    this(backend, registry, maxSize, ttl, negativeTtl, Ticker.systemTicker());
+  }
+
+  /**
+   * @param backend     The store holding the Widgets.
+   * @param registry    Registry of the cache meters.
+   * @param maxSize     The most names to cache.
+   * @param ttl         How long a found Widget stays cached.
+   * @param negativeTtl How long a missing name stays cached.
+   * @param ticker      The time source entries expire by.
+   */
+  public CachingWidgetStore(WidgetStore backend, MeterRegistry registry, long maxSize, Duration ttl,
+                            Duration negativeTtl, Ticker ticker) {
+    Assert.notNull(backend, "backend must not be null");
+    Assert.notNull(registry, "registry must not be null");
+    Assert.isTrue(maxSize >= 0, "maxSize must not be negative");
+    this.backend = backend;
+    long ttlNanos = ttl.toNanos();
+    long negativeTtlNanos = negativeTtl.toNanos();
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .ticker(ticker)
+        .expireAfter(new Expiry<String, Optional<Widget>>() {
+          @Override
+          public long expireAfterCreate(String name, Optional<Widget> widget, long currentTime) {
+            return widget.isPresent() ? ttlNanos : negativeTtlNanos;
+          }
+
+          @Override
+          public long expireAfterUpdate(String name, Optional<Widget> widget, long currentTime, long currentDuration) {
+            return expireAfterCreate(name, widget, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String name, Optional<Widget> widget, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+    FunctionCounter.builder("widgets.store.cache", cache, c -> c.stats().hitCount())
+        .description("Lookups of Widgets by name in the store cache")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("widgets.store.cache", cache, c -> c.stats().missCount())
+        .description("Lookups of Widgets by name in the store cache")
+        .tag("result", "miss")
+        .register(registry);
+    Gauge.builder("widgets.store.cache.size", cache, Cache::estimatedSize)
+        .description("Names held by the store cache, found or missing")
+        .register(registry);
+  }
+
+  @Override
+  public Optional<Widget> findByName(String name) {
+    return cache.get(name, backend::findByName);
+  }
+
+  @Override
+  public boolean existsByName(String name) {
+    Optional<Widget> cached = cache.getIfPresent(name);
+    return cached != null ? cached.isPresent() : backend.existsByName(name);
+  }
+
+  @Override
+  public Widget save(Widget widget) {
+    try {
+      return backend.save(widget);
+    } finally {
+      cache.invalidate(widget.getName());
+    }
+  }
+
+  @Override
+  public Widget saveReplicated(Widget widget, String version) {
+    try {
+      return backend.saveReplicated(widget, version);
+    } finally {
+      cache.invalidate(widget.getName());
+    }
+  }
+
+  @Override
+  public Widget saveIfAbsent(Widget widget) {
+    try {
+      return backend.saveIfAbsent(widget);
+    } finally {
+      cache.invalidate(widget.getName());
+    }
+  }
+
+  @Override
+  public Optional<Widget> update(Widget changes, BinaryOperator<Widget> merge, Predicate<String> precondition) {
+    try {
+      return backend.update(changes, merge, precondition);
+    } finally {
+      cache.invalidate(changes.getName());
+    }
+  }
+
+  @Override
+  public Optional<Widget> deleteById(String name) {
+    try {
+      return backend.deleteById(name);
+    } finally {
+      cache.invalidate(name);
+    }
+  }
+
+  @Override
+  public Optional<Widget> deleteById(String name, Predicate<String> precondition) {
+    try {
+      return backend.deleteById(name, precondition);
+    } finally {
+      cache.invalidate(name);
+    }
+  }
+
+  @Override
+  public List<Optional<Widget>> saveAllIfAbsent(List<Widget> widgets) {
+    try {
+      return backend.saveAllIfAbsent(widgets);
+    } finally {
+      widgets.forEach(widget -> cache.invalidate(widget.getName()));
+    }
+  }
+
+  @Override
+  public List<Optional<Widget>> updateAll(List<Widget> widgets, BinaryOperator<Widget> merge) {
+    try {
+      return backend.updateAll(widgets, merge);
+    } finally {
+      widgets.forEach(widget -> cache.invalidate(widget.getName()));
+    }
+  }
+
+  @Override
+  public List<Optional<Widget>> deleteAll(List<String> names) {
+    try {
+      return backend.deleteAll(names);
+    } finally {
+      cache.invalidateAll(names);
+    }
+  }
+
+  @Override
+  public List<Widget> findAll() {
+    return backend.findAll();
+  }
+
+  @Override
+  public Stream<Widget> streamAll() {
+    return backend.streamAll();
+  }
+
+  @Override
+  public PaginatedResult findPaginated(int page, int pageSize) {
+    return backend.findPaginated(page, pageSize);
+  }
+
+  @Override
+  public PaginatedResult findPageAfter(String cursor, int pageSize) {
+    return backend.findPageAfter(cursor, pageSize);
+  }
+
+  @Override
+  public QueryResult findByQuery(WidgetQuery query, String cursor, int limit) {
+    return backend.findByQuery(query, cursor, limit);
+  }
+
+  @Override
+  public List<Widget> searchByName(String prefix, int maxEdits, int limit) {
+    return backend.searchByName(prefix, maxEdits, limit);
+  }
+
+  @Override
+  public int size() {
+    return backend.size();
+  }
+
+  @Override
+  public String versionOf(Widget widget) {
+    return backend.versionOf(widget);
+  }
+
+  @Override
+  public String catalogVersion() {
+    return backend.catalogVersion();
+  }
+
+  @Override
+  public long lastChangeSeq() {
+    return backend.lastChangeSeq();
+  }
+
+  @Override
+  public List<WidgetChange> changesSince(long since, int limit) {
+    return backend.changesSince(since, limit);
+  }
+
+  @Override
+  public Runnable onChanges(long since, Runnable listener) {
+    return backend.onChanges(since, listener);
+  }
+
+  @Override
+  public boolean isDurable() {
+    return backend.isDurable();
+  }
+
+  @Override
+  public boolean writesBlock() {
+    return backend.writesBlock();
+  }
+
+  @Override
+  public double indexLoad() {
+    return backend.indexLoad();
+  }
+}
@@ -0,0 +1,379 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRecords.Record;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRecords.RecordBuffer;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRecords.RecordReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link WidgetJournal} stored in a local directory.
+ * <p>
+ * Records are appended to an in-memory buffer and written to the current log segment
+ * through a {@link FileChannel}. Writers waiting for durability use group commit: the first
+ * one to find its record unflushed becomes the leader, writes everything buffered so far
+ * and forces it to disk once, which makes the records of every writer queued behind it
+ * durable too.
+ * <p>
+ * A checkpoint periodically rotates to a new segment, writes a {@link MappedWidgetSnapshot}
+ * of the repository and deletes the segments the snapshot covers. Startup maps the snapshot
+ * without reading it and replays the remaining segments, cutting off a torn tail left by a
+ * crash.
+ */
+@Slf4j
+public class FileWidgetJournal implements WidgetJournal {
+
+  static final String SNAPSHOT_FILE = "widgets.snapshot";
+
+  private static final String SEGMENT_PREFIX = "widgets-";
+  private static final String SEGMENT_SUFFIX = ".wal";
+  private static final int MAX_SPARE_BUFFER = 4 * 1024 * 1024;
+
+  private final Path directory;
+  private final Duration snapshotInterval;
+  private final boolean fsync;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final ReentrantLock checkpointLock = new ReentrantLock();
+
+  // Guarded by appendLock.
+  private RecordBuffer pending = new RecordBuffer();
+  private long appendedLsn;
+
+  // Guarded by flushLock.
+  private RecordBuffer spare = new RecordBuffer();
+  private FileChannel segment;
+  private long segmentNumber;
+
+  // Guarded by checkpointLock.
+  private long checkpointedLsn;
+
+  private volatile long durableLsn;
+  private volatile IOException failure;
+  private Supplier<Stream<Widget>> contents;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Creates a journal in the given directory.
+   *
+   * @param directory        The directory holding the log segments and the snapshot.
+   * @param snapshotInterval How often to compact the log into a snapshot, or zero to only compact on demand.
+   * @param fsync            Whether to force records to disk before acknowledging them.
+   * @throws IOException if the directory cannot be created.
+   */
+  public FileWidgetJournal(Path directory, Duration snapshotInterval, boolean fsync) throws IOException {
+    this.directory = directory;
+    this.snapshotInterval = snapshotInterval;
+    this.fsync = fsync;
+    Files.createDirectories(directory);
+  }
+
+  @Override
+  public void recover(RecoveryTarget target, Supplier<Stream<Widget>> contents) {
+    try {
+      long covered = loadSnapshot(target);
+      long lastSegment = covered;
+      long replayed = 0;
+      for (long number : listSegments()) {
+        if (number <= covered) {
+          Files.deleteIfExists(segmentPath(number));
+          continue;
+        }
+        replayed += replaySegment(number, target);
+        lastSegment = number;
+      }
+
+      flushLock.lock();
+      try {
+        segmentNumber = lastSegment + 1;
+        segment = openSegment(segmentNumber);
+      } finally {
+        flushLock.unlock();
+      }
+      this.contents = contents;
+      // Force the first checkpoint to fold the replayed segments into a fresh snapshot.
+      checkpointedLsn = replayed > 0 ? -1 : 0;
+      log.info("Recovered widgets from {}: snapshot covers segment {}, replayed {} log records", directory, covered, replayed);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not recover widgets from " + directory, e);
+    }
+
+    if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "widget-journal-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long interval = snapshotInterval.toMillis();
+      scheduler.scheduleWithFixedDelay(this::checkpointQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public long appendSave(Widget widget) {
+    appendLock.lock();
+    try {
+      pending.writeSave(widget);
+      return ++appendedLsn;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  @Override
+  public long appendDelete(String name) {
+    appendLock.lock();
+    try {
+      pending.writeDelete(name);
+      return ++appendedLsn;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  @Override
+  public void awaitDurable(long lsn) {
+    if (durableLsn >= lsn) {
+      return;
+    }
+    flushLock.lock();
+    try {
+      // A previous leader may have flushed this record while we were queued on the lock.
+      if (durableLsn < lsn) {
+        flush(fsync);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Compacts the log: rotates to a new segment, writes a snapshot of the repository and
+   * deletes the segments the snapshot covers. Does nothing if nothing was logged since the
+   * last checkpoint.
+   *
+   * @throws UncheckedIOException if the snapshot cannot be written.
+   */
+  public void checkpoint() {
+    checkpointLock.lock();
+    try {
+      long rotatedSegment;
+      long coveredLsn;
+      flushLock.lock();
+      try {
+        flush(true);
+        coveredLsn = durableLsn;
+        if (coveredLsn == checkpointedLsn) {
+          return;
+        }
+        rotatedSegment = segmentNumber;
+        segment.close();
+        segmentNumber++;
+        segment = openSegment(segmentNumber);
+      } finally {
+        flushLock.unlock();
+      }
+
+      // Every record of the rotated segments was applied to the repository before it was
+      // appended, so the snapshot taken now contains them; later writes may be in it too,
+      // and replaying them again from the new segment is idempotent.
+      int count = writeSnapshot(rotatedSegment);
+      for (long number : listSegments()) {
+        if (number <= rotatedSegment) {
+          Files.deleteIfExists(segmentPath(number));
+        }
+      }
+      checkpointedLsn = coveredLsn;
+      log.info("Wrote widget snapshot of {} widgets covering log segment {}", count, rotatedSegment);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write widget snapshot to " + directory, e);
+    } finally {
+      checkpointLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    flushLock.lock();
+    try {
+      if (segment != null && segment.isOpen()) {
+        flush(true);
+        segment.close();
+      }
+    } catch (IOException e) {
+      log.warn("Could not close widget journal segment {}", segmentNumber, e);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Writes every buffered record to the current segment. Must hold the flush lock.
+   */
+  private void flush(boolean force) {
+    if (failure != null) {
+      throw new UncheckedIOException("Widget journal is unavailable after an earlier write failure", failure);
+    }
+    RecordBuffer batch;
+    long upTo;
+    appendLock.lock();
+    try {
+      batch = pending;
+      pending = spare;
+      upTo = appendedLsn;
+    } finally {
+      appendLock.unlock();
+    }
+
+    try {
+      ByteBuffer bytes = batch.toByteBuffer();
+      while (bytes.hasRemaining()) {
+        segment.write(bytes);
+      }
+      if (force) {
+        segment.force(false);
+      }
+      durableLsn = upTo;
+    } catch (IOException e) {
+      // The state of a failed write or fsync is unknown, so no later write can be trusted either.
+      failure = e;
+      throw new UncheckedIOException("Could not write widget journal segment " + segmentNumber, e);
+    } finally {
+      batch.reset();
+      spare = batch.capacity() > MAX_SPARE_BUFFER ? new RecordBuffer() : batch;
+    }
+  }
+
+  private void checkpointQuietly() {
+    try {
+      checkpoint();
+    } catch (RuntimeException e) {
+      log.error("Widget journal checkpoint failed", e);
+    }
+  }
+
+  /**
+   * Loads the snapshot into the target.
+   *
+   * @return The last log segment the snapshot covers, or 0 without a snapshot.
+   */
+  private long loadSnapshot(RecoveryTarget target) throws IOException {
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    if (!Files.exists(snapshot)) {
+      return 0;
+    }
+    MappedWidgetSnapshot mapped = MappedWidgetSnapshot.open(snapshot);
+    target.attach(mapped);
+    return mapped.coveredSegment();
+  }
+
+  /**
+   * Writes a snapshot of the repository contents, replacing the previous one atomically.
+   * A snapshot that is still mapped keeps serving reads from the replaced file.
+   *
+   * @return The number of Widgets written.
+   */
+  private int writeSnapshot(long coveredSegment) throws IOException {
+    Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+    int count;
+    try (Stream<Widget> widgets = contents.get()) {
+      count = MappedWidgetSnapshot.write(temporary, coveredSegment, widgets.iterator());
+    }
+    Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory();
+    return count;
+  }
+
+  /**
+   * Replays one log segment into the target, truncating it after the last valid record.
+   *
+   * @return The number of records replayed.
+   */
+  private long replaySegment(long number, RecoveryTarget target) throws IOException {
+    Path path = segmentPath(number);
+    long replayed = 0;
+    long validLength;
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      RecordReader reader = new RecordReader(in);
+      Record record;
+      while ((record = reader.next()) != null) {
+        if (record.op() == WidgetRecords.DELETE) {
+          target.forget(record.name());
+        } else {
+          target.restore(record.widget());
+        }
+        replayed++;
+      }
+      validLength = reader.position();
+    }
+
+    long size = Files.size(path);
+    if (validLength < size) {
+      log.warn("Truncating torn tail of widget journal segment {} from {} to {} bytes", number, size, validLength);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+        channel.force(true);
+      }
+    }
+    return replayed;
+  }
+
+  private FileChannel openSegment(long number) throws IOException {
+    FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    syncDirectory();
+    return channel;
+  }
+
+  private List<Long> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+          .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+          .sorted()
+          .toList();
+    }
+  }
+
+  private Path segmentPath(long number) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  /**
+   * Makes file creations and renames in the directory durable. Not supported on every
+   * platform, in which case the rename is still atomic, just not yet durable.
+   */
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      log.debug("Could not sync widget journal directory {}", directory, e);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * {@link WidgetTable} of Widget objects.
+ * Widgets are indexed by name in a {@link ConcurrentHashMap} for O(1) lookups, and kept
+ * in a name-ordered {@link WidgetTree} so listing follows a stable order and pagination can
+ * seek straight to the next page.
+ * <p>
+ * The tree is immutable: each update publishes a new version of it with a compare-and-set,
+ * and iteration walks the version that was current when it started. Listings and pages are
+ * therefore consistent as of one point in time, and readers neither copy the table nor
+ * block, or are blocked by, writers.
+ * <p>
+ * Updates of a name are serialized by one of a fixed set of {@link ReentrantLock}s picked by
+ * the name's hash, rather than by {@link ConcurrentHashMap#compute}: compute holds a monitor
+ * while the update runs, and the update appends to the journal, which may park. Parking
+ * inside a monitor pins a virtual thread to its carrier, while parking on a
+ * {@code ReentrantLock} does not.
+ */
+final class HeapWidgetTable implements WidgetTable {
+
+  private static final int STRIPES = 1024;
+
+  private final ConcurrentHashMap<String, Widget> index = new ConcurrentHashMap<>();
+  private final AtomicReference<WidgetTree> ordered = new AtomicReference<>(WidgetTree.EMPTY);
+  private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+  HeapWidgetTable() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public Widget get(String name) {
+    return index.get(name);
+  }
+
+  @Override
+  public Widget compute(String name, BiFunction<String, Widget, Widget> update) {
+    int hash = name.hashCode();
+    ReentrantLock stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    stripe.lock();
+    try {
+      Widget existing = index.get(name);
+      Widget entry = update.apply(name, existing);
+      if (entry == null) {
+        index.remove(name);
+      } else if (entry != existing) {
+        index.put(name, entry);
+      }
+      return entry;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  @Override
+  public void order(String name, Widget entry) {
+    ordered.updateAndGet(tree -> entry == null ? tree.without(name) : tree.with(name, entry));
+  }
+
+  @Override
+  public boolean locksAllNames() {
+    return false;
+  }
+
+  @Override
+  public double load() {
+    return Double.NaN; // ConcurrentHashMap does not expose its capacity.
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, Widget>> entries(String after) {
+    return ordered.get().entries(after);
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, Widget>> entriesFrom(long position) {
+    return ordered.get().entriesFrom(position);
+  }
+}
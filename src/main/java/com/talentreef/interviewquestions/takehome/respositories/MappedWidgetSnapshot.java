@@ -0,0 +1,327 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Read-only snapshot of Widgets served straight from a memory-mapped file.
+ * <p>
+ * The file holds the Widgets sorted by name, followed by an index of record offsets, so a
+ * name is found with a binary search over the mapping and only the records that are read
+ * are decoded into {@link Widget} objects. Opening a snapshot maps it without reading it,
+ * which makes startup time independent of the catalog size.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header  magic:int version:int coveredSegment:long count:int reserved:int indexOffset:long maxVersion:long
+ * record  nameLength:short name:utf8 descriptionLength:int description:utf8 hasPrice:byte price:double widgetVersion:long
+ * index   count x recordOffset:long
+ * </pre>
+ * A widget version of 0 means the Widget had none. Version 2 files, which have neither
+ * {@code maxVersion} nor widget versions, are still read; their Widgets have no version.
+ * Files larger than a single mapping are mapped in overlapping segments, so a record that
+ * starts in one segment can always be read from it.
+ */
+public final class MappedWidgetSnapshot {
+
+  static final int MAGIC = 0x57534e50;
+  static final int VERSION = 3;
+  static final int UNVERSIONED = 2;
+
+  /**
+   * Snapshot holding no Widgets.
+   */
+  public static final MappedWidgetSnapshot EMPTY = new MappedWidgetSnapshot(new ByteBuffer[0], 0, 0, 0, 1, true, 0);
+
+  private static final int HEADER = 40;
+  private static final int UNVERSIONED_HEADER = 32;
+  private static final int COUNT_OFFSET = 16;
+  private static final int INDEX_OFFSET_OFFSET = 24;
+  private static final int MAX_VERSION_OFFSET = 32;
+  private static final int NULL_LENGTH = -1;
+  private static final int MAX_RECORD = 64 * 1024;
+  private static final long SEGMENT_SIZE = 1L << 30;
+  private static final int WRITE_CHUNK = 256 * 1024;
+
+  private final ByteBuffer[] segments;
+  private final long segmentSize;
+  private final long coveredSegment;
+  private final int count;
+  private final long indexOffset;
+  private final boolean versioned;
+  private final long maxVersion;
+
+  private MappedWidgetSnapshot(ByteBuffer[] segments, long coveredSegment, int count, long indexOffset,
+                               long segmentSize, boolean versioned, long maxVersion) {
+    this.segments = segments;
+    this.coveredSegment = coveredSegment;
+    this.count = count;
+    this.indexOffset = indexOffset;
+    this.segmentSize = segmentSize;
+    this.versioned = versioned;
+    this.maxVersion = maxVersion;
+  }
+
+  /**
+   * Maps a snapshot file.
+   *
+   * @param path The snapshot file.
+   * @return     The mapped snapshot.
+   * @throws IOException if the file cannot be mapped or is not a snapshot.
+   */
+  public static MappedWidgetSnapshot open(Path path) throws IOException {
+    return open(path, SEGMENT_SIZE);
+  }
+
+  static MappedWidgetSnapshot open(Path path, long segmentSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < UNVERSIONED_HEADER) {
+        throw new IOException("Widget snapshot " + path + " is truncated");
+      }
+      int segmentCount = (int) ((size + segmentSize - 1) / segmentSize);
+      ByteBuffer[] segments = new ByteBuffer[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        long start = i * segmentSize;
+        long length = Math.min(size - start, segmentSize + MAX_RECORD);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        segments[i] = mapped;
+      }
+
+      ByteBuffer header = segments[0];
+      int format = header.getInt(4);
+      if (header.getInt(0) != MAGIC || (format != VERSION && format != UNVERSIONED)) {
+        throw new IOException("Unrecognized widget snapshot " + path);
+      }
+      boolean versioned = format == VERSION;
+      int count = header.getInt(COUNT_OFFSET);
+      long indexOffset = header.getLong(INDEX_OFFSET_OFFSET);
+      if (count < 0 || indexOffset < (versioned ? HEADER : UNVERSIONED_HEADER)
+          || indexOffset + (long) count * Long.BYTES != size) {
+        throw new IOException("Widget snapshot " + path + " is corrupt");
+      }
+      long maxVersion = versioned ? header.getLong(MAX_VERSION_OFFSET) : 0;
+      return new MappedWidgetSnapshot(segments, header.getLong(8), count, indexOffset, segmentSize, versioned, maxVersion);
+    }
+  }
+
+  /**
+   * Writes a snapshot file.
+   *
+   * @param path           The file to write.
+   * @param coveredSegment The last journal segment whose records the snapshot contains.
+   * @param widgets        The Widgets to write, sorted by name.
+   * @return               The number of Widgets written.
+   * @throws IOException if the file cannot be written or a Widget is too large.
+   */
+  public static int write(Path path, long coveredSegment, Iterator<Widget> widgets) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK + MAX_RECORD);
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(coveredSegment).putInt(0).putInt(0).putLong(0).putLong(0);
+
+      long position = 0;
+      long[] offsets = new long[1024];
+      int count = 0;
+      long maxVersion = 0;
+      while (widgets.hasNext()) {
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = position + buffer.position();
+        Widget widget = widgets.next();
+        writeRecord(buffer, widget);
+        if (widget.getVersion() != null) {
+          maxVersion = Math.max(maxVersion, widget.getVersion());
+        }
+        if (buffer.position() >= WRITE_CHUNK) {
+          position += drain(channel, buffer);
+        }
+      }
+      position += drain(channel, buffer);
+
+      long indexOffset = position;
+      for (int i = 0; i < count; i++) {
+        buffer.putLong(offsets[i]);
+        if (buffer.position() >= WRITE_CHUNK) {
+          drain(channel, buffer);
+        }
+      }
+      drain(channel, buffer);
+
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, count), COUNT_OFFSET);
+      channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, indexOffset), INDEX_OFFSET_OFFSET);
+      channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, maxVersion), MAX_VERSION_OFFSET);
+      channel.force(true);
+      return count;
+    }
+  }
+
+  /**
+   * @return The last journal segment whose records the snapshot contains.
+   */
+  public long coveredSegment() {
+    return coveredSegment;
+  }
+
+  /**
+   * @return The highest version of a Widget in the snapshot, or 0 if none has a version.
+   */
+  public long maxVersion() {
+    return maxVersion;
+  }
+
+  /**
+   * @return The number of Widgets in the snapshot.
+   */
+  public int size() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Finds a Widget by name, decoding it from the mapping.
+   *
+   * @param name The name to look for.
+   * @return     The Widget, or null if the snapshot does not contain it.
+   */
+  public Widget find(String name) {
+    int position = indexOf(name);
+    return position >= 0 ? widgetAt(position) : null;
+  }
+
+  /**
+   * Checks whether the snapshot contains a name, without decoding the Widget.
+   *
+   * @param name The name to look for.
+   * @return     True if the snapshot contains the name.
+   */
+  public boolean contains(String name) {
+    return count > 0 && indexOf(name) >= 0;
+  }
+
+  /**
+   * Binary searches the snapshot for a name.
+   *
+   * @param name The name to look for.
+   * @return     The position of the name, or {@code -(insertionPoint + 1)} if it is absent.
+   */
+  public int indexOf(String name) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = nameAt(middle).compareTo(name);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Decodes the name at a position.
+   *
+   * @param position The position, between 0 and {@link #size()}.
+   * @return         The name.
+   */
+  public String nameAt(int position) {
+    long offset = recordOffset(position);
+    ByteBuffer segment = segment(offset);
+    int local = local(offset);
+    return readString(segment, local + Short.BYTES, segment.getShort(local));
+  }
+
+  /**
+   * Decodes the Widget at a position.
+   *
+   * @param position The position, between 0 and {@link #size()}.
+   * @return         The Widget.
+   */
+  public Widget widgetAt(int position) {
+    long offset = recordOffset(position);
+    ByteBuffer segment = segment(offset);
+    int local = local(offset);
+
+    int nameLength = segment.getShort(local);
+    String name = readString(segment, local + Short.BYTES, nameLength);
+    local += Short.BYTES + nameLength;
+
+    int descriptionLength = segment.getInt(local);
+    local += Integer.BYTES;
+    String description = descriptionLength == NULL_LENGTH ? null : readString(segment, local, descriptionLength);
+    local += Math.max(descriptionLength, 0);
+
+    Double price = segment.get(local) == 1 ? segment.getDouble(local + 1) : null;
+    long version = versioned ? segment.getLong(local + 1 + Double.BYTES) : 0;
+    return Widget.builder().name(name).description(description).price(price)
+        .version(version != 0 ? version : null).build();
+  }
+
+  private long recordOffset(int position) {
+    if (position < 0 || position >= count) {
+      throw new IndexOutOfBoundsException(position);
+    }
+    long offset = indexOffset + (long) position * Long.BYTES;
+    return segment(offset).getLong(local(offset));
+  }
+
+  private ByteBuffer segment(long offset) {
+    return segments[(int) (offset / segmentSize)];
+  }
+
+  private int local(long offset) {
+    return (int) (offset % segmentSize);
+  }
+
+  private static String readString(ByteBuffer segment, int local, int length) {
+    byte[] bytes = new byte[length];
+    segment.get(local, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeRecord(ByteBuffer buffer, Widget widget) throws IOException {
+    byte[] name = widget.getName().getBytes(StandardCharsets.UTF_8);
+    byte[] description = widget.getDescription() == null ? null : widget.getDescription().getBytes(StandardCharsets.UTF_8);
+    int length = Short.BYTES + name.length + Integer.BYTES + (description == null ? 0 : description.length) + 1 + Double.BYTES
+        + Long.BYTES;
+    if (name.length > Short.MAX_VALUE || length > MAX_RECORD) {
+      throw new IOException("Widget '" + widget.getName() + "' is too large for a snapshot");
+    }
+    buffer.putShort((short) name.length).put(name);
+    if (description == null) {
+      buffer.putInt(NULL_LENGTH);
+    } else {
+      buffer.putInt(description.length).put(description);
+    }
+    buffer.put((byte) (widget.getPrice() != null ? 1 : 0));
+    buffer.putDouble(widget.getPrice() != null ? widget.getPrice() : 0);
+    buffer.putLong(widget.getVersion() != null ? widget.getVersion() : 0);
+  }
+
+  private static int drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    int written = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    return written;
+  }
+}
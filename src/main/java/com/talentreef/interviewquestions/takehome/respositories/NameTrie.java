@@ -0,0 +1,334 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Radix trie of Widget names for type-ahead search, keyed by the lower-cased name.
+ * Chains of single-child nodes are collapsed into one edge, so the trie has at most two
+ * nodes per name whatever the names' length. Each node holds the names that end at it.
+ * <p>
+ * Readers take no lock. A node's children and names are arrays that writers replace
+ * rather than modify, and a node whose edge changes is replaced by a copy, so a reader
+ * always walks a consistent, if possibly outdated, trie. Writers are serialized by a
+ * single lock; they only run after the table is written and never block while holding it.
+ */
+final class NameTrie {
+
+  private static final Node[] NO_CHILDREN = new Node[0];
+  private static final String[] NO_NAMES = new String[0];
+
+  private final Node root = new Node("", NO_CHILDREN, NO_NAMES);
+  private final ReentrantLock writes = new ReentrantLock();
+
+  /**
+   * Adds a name. Adding a name twice has no effect.
+   */
+  void add(String name) {
+    String key = key(name);
+    writes.lock();
+    try {
+      Node node = root;
+      int position = 0;
+      while (position < key.length()) {
+        Node[] children = node.children;
+        int slot = find(children, key.charAt(position));
+        if (slot < 0) {
+          node.children = inserted(children, -(slot + 1), new Node(key.substring(position), NO_CHILDREN, new String[]{name}));
+          return;
+        }
+        Node child = children[slot];
+        int common = commonPrefix(child.edge, key, position);
+        if (common < child.edge.length()) {
+          node.children = replaced(children, slot, split(child, common, key, position + common, name));
+          return;
+        }
+        node = child;
+        position += common;
+      }
+      node.names = withName(node.names, name);
+    } finally {
+      writes.unlock();
+    }
+  }
+
+  /**
+   * Removes a name, merging the nodes it leaves with a single child.
+   */
+  void remove(String name) {
+    String key = key(name);
+    writes.lock();
+    try {
+      Node grandparent = null;
+      Node parent = null;
+      int parentSlot = -1;
+      int slot = -1;
+      Node node = root;
+      int position = 0;
+      while (position < key.length()) {
+        int next = find(node.children, key.charAt(position));
+        if (next < 0 || !key.startsWith(node.children[next].edge, position)) {
+          return;
+        }
+        grandparent = parent;
+        parentSlot = slot;
+        parent = node;
+        slot = next;
+        node = node.children[next];
+        position += node.edge.length();
+      }
+      String[] names = withoutName(node.names, name);
+      if (names == node.names) {
+        return;
+      }
+      if (names.length > 0 || node == root || node.children.length > 1) {
+        node.names = names;
+      } else if (node.children.length == 1) {
+        parent.children = replaced(parent.children, slot, merged(node, node.children[0]));
+      } else {
+        parent.children = removed(parent.children, slot);
+        if (parent != root && parent.names.length == 0 && parent.children.length == 1) {
+          grandparent.children = replaced(grandparent.children, parentSlot, merged(parent, parent.children[0]));
+        }
+      }
+    } finally {
+      writes.unlock();
+    }
+  }
+
+  /**
+   * Finds names starting with a prefix, ignoring case, allowing up to {@code maxEdits}
+   * inserted, deleted or substituted characters between the prefix and the start of the name.
+   * Names closer to the prefix come first, and names at the same distance are in order.
+   *
+   * @param prefix   The start of the names.
+   * @param maxEdits The number of typos to tolerate.
+   * @param limit    The most names to return.
+   * @return         The matching names, best first.
+   */
+  List<String> search(String prefix, int maxEdits, int limit) {
+    String key = key(prefix);
+    Set<String> found = new LinkedHashSet<>();
+    int[] start = new int[key.length() + 1];
+    for (int i = 0; i < start.length; i++) {
+      start[i] = i;
+    }
+    for (int edits = 0; edits <= maxEdits && found.size() < limit; edits++) {
+      walk(root, start, key, edits, found, limit);
+    }
+    return new ArrayList<>(found);
+  }
+
+  /**
+   * Computes the fewest edits between a prefix and any start of a name, ignoring case, which
+   * is the distance {@link #search} ranks names by.
+   *
+   * @param name     The name.
+   * @param prefix   The lower-cased prefix.
+   * @param maxEdits The distance past which to stop computing.
+   * @return         The distance, or some value above {@code maxEdits}.
+   */
+  static int distance(String name, String prefix, int maxEdits) {
+    String path = key(name);
+    int[] row = new int[prefix.length() + 1];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = i;
+    }
+    int best = row[prefix.length()];
+    for (int i = 0; i < path.length() && best > 0 && min(row) <= maxEdits; i++) {
+      row = step(row, path.charAt(i), prefix);
+      best = Math.min(best, row[prefix.length()]);
+    }
+    return best;
+  }
+
+  /**
+   * Descends below a node while some start of the path is within {@code edits} of the key,
+   * collecting every name under the first node whose path is.
+   *
+   * @param row The edit distances between the path to the node and each start of the key.
+   */
+  private static void walk(Node node, int[] row, String key, int edits, Set<String> found, int limit) {
+    if (row[key.length()] <= edits) {
+      collect(node, found, limit);
+      return;
+    }
+    for (Node child : node.children) {
+      int[] current = row;
+      boolean matched = false;
+      boolean pruned = false;
+      for (int i = 0; i < child.edge.length() && !matched && !pruned; i++) {
+        current = step(current, child.edge.charAt(i), key);
+        matched = current[key.length()] <= edits;
+        pruned = !matched && min(current) > edits;
+      }
+      if (matched) {
+        collect(child, found, limit);
+      } else if (!pruned) {
+        walk(child, current, key, edits, found, limit);
+      }
+      if (found.size() >= limit) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds the names under a node, in order, until there are {@code limit}.
+   */
+  private static void collect(Node node, Set<String> found, int limit) {
+    for (String name : node.names) {
+      if (found.size() >= limit) {
+        return;
+      }
+      found.add(name);
+    }
+    for (Node child : node.children) {
+      if (found.size() >= limit) {
+        return;
+      }
+      collect(child, found, limit);
+    }
+  }
+
+  /**
+   * Computes the next row of the Levenshtein table after appending a character to the path.
+   */
+  private static int[] step(int[] row, char c, String key) {
+    int[] next = new int[row.length];
+    next[0] = row[0] + 1;
+    for (int i = 1; i < row.length; i++) {
+      int substitution = row[i - 1] + (key.charAt(i - 1) == c ? 0 : 1);
+      next[i] = Math.min(substitution, Math.min(row[i] + 1, next[i - 1] + 1));
+    }
+    return next;
+  }
+
+  private static int min(int[] row) {
+    int min = row[0];
+    for (int value : row) {
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  /**
+   * Splits a child's edge after {@code common} characters, adding the name as a branch
+   * or at the split point.
+   */
+  private static Node split(Node child, int common, String key, int position, String name) {
+    Node tail = new Node(child.edge.substring(common), child.children, child.names);
+    String head = child.edge.substring(0, common);
+    if (position == key.length()) {
+      return new Node(head, new Node[]{tail}, new String[]{name});
+    }
+    Node leaf = new Node(key.substring(position), NO_CHILDREN, new String[]{name});
+    Node[] children = leaf.edge.charAt(0) < tail.edge.charAt(0) ? new Node[]{leaf, tail} : new Node[]{tail, leaf};
+    return new Node(head, children, NO_NAMES);
+  }
+
+  private static Node merged(Node node, Node child) {
+    return new Node(node.edge + child.edge, child.children, child.names);
+  }
+
+  private static int commonPrefix(String edge, String key, int position) {
+    int length = Math.min(edge.length(), key.length() - position);
+    int common = 0;
+    while (common < length && edge.charAt(common) == key.charAt(position + common)) {
+      common++;
+    }
+    return common;
+  }
+
+  /**
+   * Finds the child whose edge starts with a character, children being sorted by it.
+   *
+   * @return The child's slot, or {@code -(insertion point) - 1} if there is none.
+   */
+  private static int find(Node[] children, char c) {
+    int low = 0;
+    int high = children.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char first = children[middle].edge.charAt(0);
+      if (first < c) {
+        low = middle + 1;
+      } else if (first > c) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private static Node[] inserted(Node[] children, int slot, Node child) {
+    Node[] copy = new Node[children.length + 1];
+    System.arraycopy(children, 0, copy, 0, slot);
+    copy[slot] = child;
+    System.arraycopy(children, slot, copy, slot + 1, children.length - slot);
+    return copy;
+  }
+
+  private static Node[] replaced(Node[] children, int slot, Node child) {
+    Node[] copy = children.clone();
+    copy[slot] = child;
+    return copy;
+  }
+
+  private static Node[] removed(Node[] children, int slot) {
+    Node[] copy = new Node[children.length - 1];
+    System.arraycopy(children, 0, copy, 0, slot);
+    System.arraycopy(children, slot + 1, copy, slot, children.length - slot - 1);
+    return copy;
+  }
+
+  private static String[] withName(String[] names, String name) {
+    int slot = Arrays.binarySearch(names, name);
+    if (slot >= 0) {
+      return names;
+    }
+    int insertion = -(slot + 1);
+    String[] copy = new String[names.length + 1];
+    System.arraycopy(names, 0, copy, 0, insertion);
+    copy[insertion] = name;
+    System.arraycopy(names, insertion, copy, insertion + 1, names.length - insertion);
+    return copy;
+  }
+
+  /**
+   * @return The names without the given one, or the same array if it was not there.
+   */
+  private static String[] withoutName(String[] names, String name) {
+    int slot = Arrays.binarySearch(names, name);
+    if (slot < 0) {
+      return names;
+    }
+    String[] copy = new String[names.length - 1];
+    System.arraycopy(names, 0, copy, 0, slot);
+    System.arraycopy(names, slot + 1, copy, slot, names.length - slot - 1);
+    return copy;
+  }
+
+  private static String key(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Node {
+
+    final String edge;
+    volatile Node[] children;
+    volatile String[] names;
+
+    Node(String edge, Node[] children, String[] names) {
+      this.edge = edge;
+      this.children = children;
+      this.names = names;
+    }
+  }
+}
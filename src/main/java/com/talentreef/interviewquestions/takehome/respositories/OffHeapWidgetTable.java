@@ -0,0 +1,545 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * {@link WidgetTable} that keeps Widgets outside the Java heap.
+ * <p>
+ * Each entry is encoded as a UTF-8 record with a primitive price and version and appended to
+ * an arena of direct buffers. Entries are identified by an int id; an open-addressing hash table maps
+ * names to ids and a list of sorted id blocks keeps them in name order, so the heap only
+ * holds a few primitive array slots per Widget. Widgets are decoded into fresh objects when
+ * read. Replaced records are reclaimed by compacting the arena once they outweigh the live
+ * ones.
+ * <p>
+ * A read-write lock guards the table: reads share it and storing an entry holds it
+ * exclusively. Updates of a name are serialized by one of a fixed set of
+ * {@link ReentrantLock}s picked by the name's hash, like the heap table, and only take the
+ * table lock to read the current entry and to store the new one when the update orders it.
+ * The journal append and the change listeners the update runs therefore never hold up
+ * readers or updates of other names.
+ */
+final class OffHeapWidgetTable implements WidgetTable {
+
+  private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+  private static final int BLOCK_SIZE = 512;
+  private static final int ITERATION_BATCH = 256;
+  private static final int NO_ID = -1;
+  private static final int NULL_LENGTH = -1;
+  private static final byte HAS_PRICE = 1;
+  private static final byte IS_TOMBSTONE = 2;
+  private static final int STRIPES = 1024;
+
+  private final Widget tombstone;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+  // The entry the running update of this thread's name has stored through order.
+  private final ThreadLocal<Ordered> ordered = new ThreadLocal<>();
+
+  // Arena.
+  private List<ByteBuffer> chunks = new ArrayList<>();
+  private int chunkPosition = CHUNK_SIZE;
+  private long garbageBytes;
+
+  // Records by id, as chunk * CHUNK_SIZE + offset.
+  private long[] addresses = new long[1024];
+  private int[] freeIds = new int[16];
+  private int freeCount;
+  private int nextId;
+
+  // Open-addressing name index: id + 1 per slot, 0 when empty, with the name's hash alongside.
+  private int[] slots = new int[1024];
+  private int[] hashes = new int[1024];
+  private int count;
+
+  // Ids in name order.
+  private final List<Block> blocks = new ArrayList<>(List.of(new Block()));
+
+  /**
+   * @param tombstone The instance the repository marks deleted names with.
+   */
+  OffHeapWidgetTable(Widget tombstone) {
+    this.tombstone = tombstone;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  public Widget get(String name) {
+    lock.readLock().lock();
+    try {
+      int id = find(name, name.getBytes(StandardCharsets.UTF_8), hash(name));
+      return id == NO_ID ? null : decode(id);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Widget compute(String name, BiFunction<String, Widget, Widget> update) {
+    byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(name);
+    ReentrantLock stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    stripe.lock();
+    try {
+      Widget existing;
+      lock.readLock().lock();
+      try {
+        int id = find(name, encodedName, hash);
+        existing = id == NO_ID ? null : decode(id);
+      } finally {
+        lock.readLock().unlock();
+      }
+      Widget entry = update.apply(name, existing);
+      Ordered stored = ordered.get();
+      if (entry != existing && (stored == null || stored.entry() != entry)) {
+        store(name, encodedName, hash, entry);
+      }
+      return entry;
+    } finally {
+      ordered.remove();
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Stores the entry right away, so it is visible before the update goes on to log and
+   * publish it. Must run inside {@link #compute} for the name.
+   */
+  @Override
+  public void order(String name, Widget entry) {
+    store(name, name.getBytes(StandardCharsets.UTF_8), hash(name), entry);
+    ordered.set(new Ordered(entry));
+  }
+
+  @Override
+  public boolean locksAllNames() {
+    return true;
+  }
+
+  @Override
+  public double load() {
+    lock.readLock().lock();
+    try {
+      return (double) count / slots.length;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, Widget>> entries(String after) {
+    return new EntryIterator(after);
+  }
+
+  // Arena.
+
+  private long append(byte[] name, Widget widget) {
+    boolean isTombstone = widget == tombstone;
+    byte[] description = isTombstone || widget.getDescription() == null
+        ? null
+        : widget.getDescription().getBytes(StandardCharsets.UTF_8);
+    int length = Short.BYTES + 1 + name.length + Integer.BYTES
+        + (description == null ? 0 : description.length) + Double.BYTES + Long.BYTES;
+    if (name.length > Short.MAX_VALUE || length > CHUNK_SIZE) {
+      throw new IllegalArgumentException("Widget '" + widget.getName() + "' is too large to store off-heap");
+    }
+    if (chunkPosition + length > CHUNK_SIZE) {
+      chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+      chunkPosition = 0;
+    }
+    ByteBuffer chunk = chunks.get(chunks.size() - 1);
+    long address = (long) (chunks.size() - 1) * CHUNK_SIZE + chunkPosition;
+
+    byte flags = isTombstone ? IS_TOMBSTONE : widget.getPrice() != null ? HAS_PRICE : 0;
+    chunk.putShort(chunkPosition, (short) name.length);
+    chunk.put(chunkPosition + Short.BYTES, flags);
+    chunk.put(chunkPosition + Short.BYTES + 1, name);
+    int position = chunkPosition + Short.BYTES + 1 + name.length;
+    chunk.putInt(position, description == null ? NULL_LENGTH : description.length);
+    position += Integer.BYTES;
+    if (description != null) {
+      chunk.put(position, description);
+      position += description.length;
+    }
+    chunk.putDouble(position, !isTombstone && widget.getPrice() != null ? widget.getPrice() : 0);
+    chunk.putLong(position + Double.BYTES, !isTombstone && widget.getVersion() != null ? widget.getVersion() : 0);
+    chunkPosition += length;
+    return address;
+  }
+
+  private Widget decode(int id) {
+    long address = addresses[id];
+    ByteBuffer chunk = chunks.get((int) (address / CHUNK_SIZE));
+    int position = (int) (address % CHUNK_SIZE);
+    int nameLength = chunk.getShort(position);
+    byte flags = chunk.get(position + Short.BYTES);
+    if ((flags & IS_TOMBSTONE) != 0) {
+      return tombstone;
+    }
+    position += Short.BYTES + 1;
+    String name = readString(chunk, position, nameLength);
+    position += nameLength;
+    int descriptionLength = chunk.getInt(position);
+    position += Integer.BYTES;
+    String description = descriptionLength == NULL_LENGTH ? null : readString(chunk, position, descriptionLength);
+    position += Math.max(descriptionLength, 0);
+    Double price = (flags & HAS_PRICE) != 0 ? chunk.getDouble(position) : null;
+    long version = chunk.getLong(position + Double.BYTES);
+    return Widget.builder().name(name).description(description).price(price)
+        .version(version != 0 ? version : null).build();
+  }
+
+  private String nameOf(int id) {
+    long address = addresses[id];
+    ByteBuffer chunk = chunks.get((int) (address / CHUNK_SIZE));
+    int position = (int) (address % CHUNK_SIZE);
+    return readString(chunk, position + Short.BYTES + 1, chunk.getShort(position));
+  }
+
+  private boolean nameEquals(int id, byte[] name) {
+    long address = addresses[id];
+    ByteBuffer chunk = chunks.get((int) (address / CHUNK_SIZE));
+    int position = (int) (address % CHUNK_SIZE);
+    if (chunk.getShort(position) != name.length) {
+      return false;
+    }
+    return chunk.slice(position + Short.BYTES + 1, name.length).mismatch(ByteBuffer.wrap(name)) == -1;
+  }
+
+  private int recordLength(long address) {
+    return recordLength(chunks.get((int) (address / CHUNK_SIZE)), (int) (address % CHUNK_SIZE));
+  }
+
+  /**
+   * Copies the live records into fresh chunks once replaced records take up more space
+   * than live ones.
+   */
+  private void compactIfWasteful() {
+    long totalBytes = (long) (chunks.size() - 1) * CHUNK_SIZE + chunkPosition;
+    if (garbageBytes < 2L * CHUNK_SIZE || garbageBytes < totalBytes - garbageBytes) {
+      return;
+    }
+    List<ByteBuffer> oldChunks = chunks;
+    chunks = new ArrayList<>();
+    chunkPosition = CHUNK_SIZE;
+    for (Block block : blocks) {
+      for (int i = 0; i < block.size; i++) {
+        int id = block.ids[i];
+        long address = addresses[id];
+        ByteBuffer source = oldChunks.get((int) (address / CHUNK_SIZE));
+        int position = (int) (address % CHUNK_SIZE);
+        int length = recordLength(source, position);
+        if (chunkPosition + length > CHUNK_SIZE) {
+          chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+          chunkPosition = 0;
+        }
+        chunks.get(chunks.size() - 1).put(chunkPosition, source, position, length);
+        addresses[id] = (long) (chunks.size() - 1) * CHUNK_SIZE + chunkPosition;
+        chunkPosition += length;
+      }
+    }
+    garbageBytes = 0;
+  }
+
+  private static int recordLength(ByteBuffer chunk, int position) {
+    int nameLength = chunk.getShort(position);
+    int descriptionLength = chunk.getInt(position + Short.BYTES + 1 + nameLength);
+    return Short.BYTES + 1 + nameLength + Integer.BYTES + Math.max(descriptionLength, 0) + Double.BYTES + Long.BYTES;
+  }
+
+  private static String readString(ByteBuffer chunk, int position, int length) {
+    byte[] bytes = new byte[length];
+    chunk.get(position, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Ids.
+
+  private int allocateId() {
+    if (freeCount > 0) {
+      return freeIds[--freeCount];
+    }
+    if (nextId == addresses.length) {
+      addresses = Arrays.copyOf(addresses, addresses.length * 2);
+    }
+    return nextId++;
+  }
+
+  private void release(int id, String name, int hash) {
+    garbageBytes += recordLength(addresses[id]);
+    removeSlot(id, hash);
+    removeOrdered(name);
+    if (freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+    }
+    freeIds[freeCount++] = id;
+  }
+
+  /**
+   * Replaces the record of a name, or removes it when the entry is null.
+   */
+  private void store(String name, byte[] encodedName, int hash, Widget entry) {
+    lock.writeLock().lock();
+    try {
+      int id = find(name, encodedName, hash);
+      if (entry == null) {
+        if (id != NO_ID) {
+          release(id, name, hash);
+        }
+        return;
+      }
+      long address = append(encodedName, entry);
+      if (id == NO_ID) {
+        id = allocateId();
+        insertSlot(id, hash);
+        insertOrdered(id, name);
+      } else {
+        garbageBytes += recordLength(addresses[id]);
+      }
+      addresses[id] = address;
+      compactIfWasteful();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Hash index, with linear probing.
+
+  private static int hash(String name) {
+    int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private int find(String name, byte[] encodedName, int hash) {
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int id = slots[slot] - 1;
+      if (hashes[slot] == hash && nameEquals(id, encodedName)) {
+        return id;
+      }
+    }
+    return NO_ID;
+  }
+
+  private void insertSlot(int id, int hash) {
+    if ((count + 1) * 4L > slots.length * 3L) {
+      resize();
+    }
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = id + 1;
+    hashes[slot] = hash;
+    count++;
+  }
+
+  /**
+   * Removes a slot and shifts back the entries probed past it, so lookups need no
+   * tombstones.
+   */
+  private void removeSlot(int id, int hash) {
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != id + 1) {
+      slot = (slot + 1) & mask;
+    }
+    int hole = slot;
+    for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+      int home = hashes[next] & mask;
+      boolean movable = hole <= next ? home <= hole || home > next : home <= hole && home > next;
+      if (movable) {
+        slots[hole] = slots[next];
+        hashes[hole] = hashes[next];
+        hole = next;
+      }
+    }
+    slots[hole] = 0;
+    count--;
+  }
+
+  private void resize() {
+    int[] oldSlots = slots;
+    int[] oldHashes = hashes;
+    slots = new int[oldSlots.length * 2];
+    hashes = new int[oldSlots.length * 2];
+    int mask = slots.length - 1;
+    for (int i = 0; i < oldSlots.length; i++) {
+      if (oldSlots[i] != 0) {
+        int slot = oldHashes[i] & mask;
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = oldSlots[i];
+        hashes[slot] = oldHashes[i];
+      }
+    }
+  }
+
+  // Name order.
+
+  /**
+   * Sorted run of ids. Blocks split when full, keeping inserts to a bounded array copy.
+   */
+  private static final class Block {
+    final int[] ids = new int[BLOCK_SIZE];
+    int size;
+  }
+
+  /**
+   * @return The index of the block a name belongs in: the last block whose first name is
+   *         not greater than it, or the first block.
+   */
+  private int blockOf(String name) {
+    int low = 1;
+    int high = blocks.size() - 1;
+    int result = 0;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (nameOf(blocks.get(middle).ids[0]).compareTo(name) <= 0) {
+        result = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return The position of the name in the block, or {@code -(insertionPoint + 1)}.
+   */
+  private int positionIn(Block block, String name) {
+    int low = 0;
+    int high = block.size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = nameOf(block.ids[middle]).compareTo(name);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private void insertOrdered(int id, String name) {
+    int blockIndex = blockOf(name);
+    Block block = blocks.get(blockIndex);
+    int position = -(positionIn(block, name) + 1);
+    if (block.size == BLOCK_SIZE) {
+      Block upper = new Block();
+      int half = BLOCK_SIZE / 2;
+      System.arraycopy(block.ids, half, upper.ids, 0, BLOCK_SIZE - half);
+      upper.size = BLOCK_SIZE - half;
+      block.size = half;
+      blocks.add(blockIndex + 1, upper);
+      if (position > half) {
+        block = upper;
+        position -= half;
+      }
+    }
+    System.arraycopy(block.ids, position, block.ids, position + 1, block.size - position);
+    block.ids[position] = id;
+    block.size++;
+  }
+
+  private void removeOrdered(String name) {
+    int blockIndex = blockOf(name);
+    Block block = blocks.get(blockIndex);
+    int position = positionIn(block, name);
+    System.arraycopy(block.ids, position + 1, block.ids, position, block.size - position - 1);
+    block.size--;
+    if (block.size == 0 && blocks.size() > 1) {
+      blocks.remove(blockIndex);
+    }
+  }
+
+  /**
+   * Reads the ordered entries in batches, each under the read lock, seeking past the last
+   * name of the previous batch so concurrent updates never invalidate the iterator.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<String, Widget>> {
+
+    private final ArrayDeque<Map.Entry<String, Widget>> batch = new ArrayDeque<>(ITERATION_BATCH);
+    private String after;
+    private boolean exhausted;
+
+    EntryIterator(String after) {
+      this.after = after;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (batch.isEmpty() && !exhausted) {
+        fill();
+      }
+      return !batch.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, Widget> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return batch.poll();
+    }
+
+    private void fill() {
+      lock.readLock().lock();
+      try {
+        int blockIndex = 0;
+        int position = 0;
+        if (after != null) {
+          blockIndex = blockOf(after);
+          int found = positionIn(blocks.get(blockIndex), after);
+          position = found >= 0 ? found + 1 : -(found + 1);
+        }
+        while (batch.size() < ITERATION_BATCH && blockIndex < blocks.size()) {
+          Block block = blocks.get(blockIndex);
+          if (position >= block.size) {
+            blockIndex++;
+            position = 0;
+            continue;
+          }
+          int id = block.ids[position++];
+          Widget entry = decode(id);
+          String name = entry == tombstone ? nameOf(id) : entry.getName();
+          batch.add(new AbstractMap.SimpleImmutableEntry<>(name, entry));
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      exhausted = batch.size() < ITERATION_BATCH;
+      if (!batch.isEmpty()) {
+        after = batch.peekLast().getKey();
+      }
+    }
+  }
+
+  /**
+   * An entry stored by {@link #order}, which may be null.
+   */
+  private record Ordered(Widget entry) {
+  }
+}
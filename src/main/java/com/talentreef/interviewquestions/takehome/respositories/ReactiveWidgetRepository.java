@@ -0,0 +1,139 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking view of a {@link WidgetStore}.
+ * Reads only touch memory or the mapped snapshot, so they run on the subscribing thread.
+ * Mutations block while the journal makes them durable, and off-heap mutations wait for a
+ * lock shared by every name, so in either case they are moved onto a scheduler meant for
+ * blocking work and never hold up an event loop.
+ * <p>
+ * Listings are emitted lazily from the repository's name-ordered iterator, one Widget per
+ * request from downstream, so a slow subscriber holds back reading instead of buffering.
+ */
+@Repository
+public class ReactiveWidgetRepository {
+
+  private final WidgetStore repository;
+  private final Scheduler writes;
+
+  /**
+   * Creates a facade that runs mutations on the bounded elastic scheduler when they may block.
+   *
+   * @param repository The repository to delegate to.
+   */
+  @Autowired
+  public ReactiveWidgetRepository(WidgetStore repository) {
+    this(repository, repository.writesBlock() ? Schedulers.boundedElastic() : Schedulers.immediate());
+  }
+
+  /**
+   * Creates a facade that runs mutations on the given scheduler.
+   *
+   * @param repository The repository to delegate to.
+   * @param writes     The scheduler mutations subscribe on.
+   */
+  public ReactiveWidgetRepository(WidgetStore repository, Scheduler writes) {
+    this.repository = repository;
+    this.writes = writes;
+  }
+
+  /**
+   * Emits all Widgets in name order, reading them as they are requested.
+   *
+   * @return A Flux of all Widgets.
+   */
+  public Flux<Widget> findAll() {
+    return Flux.fromStream(repository::streamAll);
+  }
+
+  /**
+   * @see WidgetStore#findPaginated(int, int)
+   */
+  public Mono<PaginatedResult> findPaginated(int page, int pageSize) {
+    return Mono.fromSupplier(() -> repository.findPaginated(page, pageSize));
+  }
+
+  /**
+   * @see WidgetStore#findPageAfter(String, int)
+   */
+  public Mono<PaginatedResult> findPageAfter(String cursor, int pageSize) {
+    return Mono.fromSupplier(() -> repository.findPageAfter(cursor, pageSize));
+  }
+
+  /**
+   * @see WidgetStore#findByQuery(WidgetQuery, String, int)
+   */
+  public Mono<QueryResult> findByQuery(WidgetQuery query, String cursor, int limit) {
+    return Mono.fromSupplier(() -> repository.findByQuery(query, cursor, limit));
+  }
+
+  /**
+   * @see WidgetStore#searchByName(String, int, int)
+   */
+  public Mono<List<Widget>> searchByName(String prefix, int maxEdits, int limit) {
+    return Mono.fromSupplier(() -> repository.searchByName(prefix, maxEdits, limit));
+  }
+
+  /**
+   * Finds a Widget by its name.
+   *
+   * @param name The name of the Widget to search for.
+   * @return     A Mono of the Widget, or empty if not found.
+   */
+  public Mono<Widget> findByName(String name) {
+    return Mono.defer(() -> Mono.justOrEmpty(repository.findByName(name)));
+  }
+
+  /**
+   * Saves a new Widget, atomically checking that its name is not taken.
+   *
+   * @param widget The Widget to save.
+   * @return       A Mono of the saved Widget, failing with {@link WidgetAlreadyExistsException}
+   *               if a Widget with the same name already exists.
+   */
+  public Mono<Widget> saveIfAbsent(Widget widget) {
+    return Mono.fromCallable(() -> repository.saveIfAbsent(widget)).subscribeOn(writes);
+  }
+
+  /**
+   * Merges changes into an existing Widget atomically.
+   *
+   * @param changes The Widget holding the changes, identified by name.
+   * @param merge   Builds the updated Widget from the stored Widget and the changes.
+   * @return        A Mono of the updated Widget, or empty if not found.
+   */
+  public Mono<Widget> update(Widget changes, BinaryOperator<Widget> merge) {
+    return Mono.fromCallable(() -> repository.updateAll(List.of(changes), merge).get(0))
+        .flatMap(Mono::justOrEmpty)
+        .subscribeOn(writes);
+  }
+
+  /**
+   * Deletes a Widget by its name.
+   *
+   * @param name The name of the Widget to delete.
+   * @return     A Mono of the deleted Widget, or empty if not found.
+   */
+  public Mono<Widget> deleteById(String name) {
+    return Mono.fromCallable(() -> repository.deleteById(name))
+        .flatMap(Mono::justOrEmpty)
+        .subscribeOn(writes);
+  }
+}
@@ -0,0 +1,143 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ring buffer of the most recent Widget changes, numbered by a sequence that only grows.
+ * {@link WidgetRepository} publishes each change while the name is locked, so the changes
+ * of a name are numbered in the order they were applied.
+ * <p>
+ * Sequence numbers start from the startup time in milliseconds times 1000, so numbers from
+ * an earlier run are lower than any number of the current one and are reported as expired
+ * rather than silently resumed from the wrong place.
+ * <p>
+ * Readers take no lock: a change is written to its slot before the last sequence number is
+ * advanced, and a slot overwritten under a reader is detected by its sequence number.
+ * Readers waiting for new changes do not hold a thread: they register a listener, which the
+ * next change runs once.
+ */
+@Slf4j
+final class WidgetChangeFeed {
+
+  private final WidgetChange[] ring;
+  private final int mask;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Set<Runnable> listeners = new LinkedHashSet<>();
+  private volatile long last;
+
+  /**
+   * @param capacity The number of changes to retain, rounded up to a power of two.
+   */
+  WidgetChangeFeed(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.ring = new WidgetChange[size];
+    this.mask = size - 1;
+    this.last = System.currentTimeMillis() * 1000;
+  }
+
+  /**
+   * Appends a change and runs the listeners waiting for one, on the calling thread.
+   */
+  void publish(WidgetChange.Type type, String name, Widget widget, String version) {
+    List<Runnable> notified;
+    lock.lock();
+    try {
+      long seq = last + 1;
+      ring[(int) (seq & mask)] = new WidgetChange(seq, type, name, widget, version);
+      last = seq;
+      if (listeners.isEmpty()) {
+        return;
+      }
+      notified = List.copyOf(listeners);
+      listeners.clear();
+    } finally {
+      lock.unlock();
+    }
+    for (Runnable listener : notified) {
+      try {
+        listener.run();
+      } catch (RuntimeException e) {
+        log.warn("Widget change listener failed", e);
+      }
+    }
+  }
+
+  /**
+   * @return The sequence number of the last change, or the starting number if there was none.
+   */
+  long last() {
+    return last;
+  }
+
+  /**
+   * Reads the changes following a sequence number, oldest first.
+   *
+   * @param since The sequence number of the last change already seen.
+   * @param limit The most changes to return.
+   * @return      Up to {@code limit} changes, or none if there are no newer changes.
+   * @throws ChangesExpiredException if changes following {@code since} are no longer retained,
+   *                                 or {@code since} was not issued by this feed.
+   */
+  List<WidgetChange> since(long since, int limit) {
+    long head = last;
+    if (since > head) {
+      throw expired(since);
+    }
+    List<WidgetChange> changes = new ArrayList<>((int) Math.min(Math.max(limit, 0), head - since));
+    for (long seq = since + 1; seq <= head && changes.size() < limit; seq++) {
+      WidgetChange change = ring[(int) (seq & mask)];
+      if (change == null || change.getSeq() != seq) {
+        throw expired(since);
+      }
+      changes.add(change);
+    }
+    return changes;
+  }
+
+  /**
+   * Runs a listener once a change follows a sequence number: at once if there is one
+   * already, otherwise on the thread publishing the next change. The listener must not block.
+   *
+   * @param since    The sequence number of the last change already seen.
+   * @param listener The listener to run once.
+   * @return         Removes the listener if it has not run yet.
+   */
+  Runnable subscribe(long since, Runnable listener) {
+    lock.lock();
+    try {
+      if (last <= since) {
+        listeners.add(listener);
+        return () -> unsubscribe(listener);
+      }
+    } finally {
+      lock.unlock();
+    }
+    listener.run();
+    return () -> {
+    };
+  }
+
+  private void unsubscribe(Runnable listener) {
+    lock.lock();
+    try {
+      listeners.remove(listener);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ChangesExpiredException expired(long since) {
+    return new ChangesExpiredException("Changes after " + since + " are no longer available. "
+        + "Reload the widgets and resume from the X-Change-Seq of the listing.");
+  }
+}
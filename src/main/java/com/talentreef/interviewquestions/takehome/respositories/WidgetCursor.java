@@ -0,0 +1,98 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidCursorException;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Encodes and decodes the opaque pagination cursors handed out to clients.
+ * A cursor wraps the name of the last Widget of a page, so the next page can be
+ * located directly in the name-ordered index. Cursors of results in price order also
+ * wrap the Widget's price, to seek the price index.
+ */
+public final class WidgetCursor {
+
+  private static final String PREFIX = "w:";
+  private static final String PRICE_PREFIX = "p:";
+
+  private WidgetCursor() {
+  }
+
+  /**
+   * Encodes a Widget name into a cursor.
+   *
+   * @param name The name of the last Widget returned.
+   * @return     The opaque cursor.
+   */
+  public static String encode(String name) {
+    return wrap(PREFIX + name);
+  }
+
+  /**
+   * Encodes the price and name of a Widget into a cursor for results in price order.
+   *
+   * @param price The price of the last Widget returned.
+   * @param name  The name of the last Widget returned.
+   * @return      The opaque cursor.
+   */
+  public static String encode(double price, String name) {
+    return wrap(PRICE_PREFIX + price + ":" + name);
+  }
+
+  /**
+   * Decodes a cursor back into the Widget name it points after.
+   *
+   * @param cursor The cursor received from a client.
+   * @return       The Widget name.
+   * @throws InvalidCursorException if the cursor was not produced by {@link #encode(String)}.
+   */
+  public static String decode(String cursor) {
+    String decoded = unwrap(cursor);
+    if (decoded == null || !decoded.startsWith(PREFIX)) {
+      throw invalid(cursor);
+    }
+    return decoded.substring(PREFIX.length());
+  }
+
+  /**
+   * Decodes a cursor produced by {@link #encode(double, String)}.
+   *
+   * @param cursor The cursor received from a client.
+   * @return       A Widget holding only the name and price the cursor points after.
+   * @throws InvalidCursorException if the cursor was not produced by {@link #encode(double, String)}.
+   */
+  public static Widget decodePriced(String cursor) {
+    String decoded = unwrap(cursor);
+    int separator = decoded != null && decoded.startsWith(PRICE_PREFIX) ? decoded.indexOf(':', PRICE_PREFIX.length()) : -1;
+    if (separator < 0) {
+      throw invalid(cursor);
+    }
+    try {
+      double price = Double.parseDouble(decoded.substring(PRICE_PREFIX.length(), separator));
+      return Widget.builder().name(decoded.substring(separator + 1)).price(price).build();
+    } catch (NumberFormatException e) {
+      throw invalid(cursor);
+    }
+  }
+
+  private static String wrap(String value) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return The decoded cursor, or null if it is not Base64.
+   */
+  private static String unwrap(String cursor) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static InvalidCursorException invalid(String cursor) {
+    return new InvalidCursorException("Invalid pagination cursor '" + cursor + "'.");
+  }
+}
@@ -0,0 +1,216 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Secondary indexes of the stored Widgets, maintained by {@link WidgetRepository} as it
+ * writes each name.
+ * <ul>
+ *     <li>Prices: a skip list of {@code (price, name)} keys ordered by the primitive price,
+ *     so a price band is a range seek.</li>
+ *     <li>Description words: an inverted index from each lower-cased word to the names of
+ *     the Widgets whose description contains it, kept in name order.</li>
+ *     <li>Names: a {@link NameTrie} for prefix and typo-tolerant name search.</li>
+ * </ul>
+ * The indexes are updated right after the table, so they can briefly disagree with it.
+ * Callers must check the Widgets they load against the query.
+ */
+final class WidgetIndexes {
+
+  private static final Comparator<PriceKey> PRICE_ORDER =
+      Comparator.comparingDouble(PriceKey::price).thenComparing(PriceKey::name);
+
+  private final ConcurrentSkipListSet<PriceKey> prices = new ConcurrentSkipListSet<>(PRICE_ORDER);
+  private final ConcurrentHashMap<String, Postings> words = new ConcurrentHashMap<>();
+  private final NameTrie names = new NameTrie();
+
+  /**
+   * Moves a name's entries from its previous Widget to its current one. Must run while the
+   * name is locked, so updates of one name are applied in order.
+   *
+   * @param previous The Widget previously stored under the name, or null.
+   * @param current  The Widget now stored under the name, or null if it was deleted.
+   */
+  void replace(Widget previous, Widget current) {
+    if (previous == null && current != null) {
+      names.add(current.getName());
+    } else if (previous != null && current == null) {
+      names.remove(previous.getName());
+    }
+    PriceKey previousPrice = previous != null ? priceKey(previous) : null;
+    PriceKey currentPrice = current != null ? priceKey(current) : null;
+    if (!Objects.equals(previousPrice, currentPrice)) {
+      if (previousPrice != null) {
+        prices.remove(previousPrice);
+      }
+      if (currentPrice != null) {
+        prices.add(currentPrice);
+      }
+    }
+    Set<String> previousWords = previous != null ? tokenize(previous.getDescription()) : Set.of();
+    Set<String> currentWords = current != null ? tokenize(current.getDescription()) : Set.of();
+    for (String word : previousWords) {
+      if (!currentWords.contains(word)) {
+        words.computeIfPresent(word, (key, postings) -> postings.remove(previous.getName()) ? null : postings);
+      }
+    }
+    for (String word : currentWords) {
+      if (!previousWords.contains(word)) {
+        words.compute(word, (key, postings) -> (postings != null ? postings : new Postings()).add(current.getName()));
+      }
+    }
+  }
+
+  /**
+   * Iterates the names of the Widgets priced within a band, in price order, then name order.
+   *
+   * @param minPrice   The lowest price, inclusive.
+   * @param maxPrice   The highest price, inclusive.
+   * @param descending Whether to start from the highest price.
+   * @param after      The Widget to start after in that order, or null to start from the first.
+   */
+  Iterator<String> namesByPrice(double minPrice, double maxPrice, boolean descending, Widget after) {
+    NavigableSet<PriceKey> band = prices.subSet(new PriceKey(minPrice, ""), true,
+        new PriceKey(Math.nextUp(maxPrice), ""), false);
+    if (after != null) {
+      PriceKey start = priceKey(after);
+      band = descending ? band.headSet(start, false) : band.tailSet(start, false);
+    }
+    Iterator<PriceKey> keys = (descending ? band.descendingSet() : band).iterator();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return keys.hasNext();
+      }
+
+      @Override
+      public String next() {
+        return keys.next().name();
+      }
+    };
+  }
+
+  /**
+   * Iterates, in name order, the names of the Widgets whose description contains every word.
+   * Walks the shortest posting list and probes the others.
+   *
+   * @param required Words as returned by {@link #tokenize}, not empty.
+   * @param after    The name to start after, or null to start from the first.
+   */
+  Iterator<String> namesWithWords(Set<String> required, String after) {
+    List<Postings> lists = new ArrayList<>(required.size());
+    for (String word : required) {
+      Postings postings = words.get(word);
+      if (postings == null) {
+        return Collections.emptyIterator();
+      }
+      lists.add(postings);
+    }
+    Postings shortest = Collections.min(lists, Comparator.comparingInt(postings -> postings.size));
+    lists.remove(shortest);
+    Iterator<String> candidates = (after != null ? shortest.names.tailSet(after, false) : shortest.names).iterator();
+    return new Iterator<>() {
+      private String next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public String next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        String name = next;
+        next = advance();
+        return name;
+      }
+
+      private String advance() {
+        while (candidates.hasNext()) {
+          String name = candidates.next();
+          if (lists.stream().allMatch(postings -> postings.names.contains(name))) {
+            return name;
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * @see NameTrie#search(String, int, int)
+   */
+  List<String> namesLike(String prefix, int maxEdits, int limit) {
+    return names.search(prefix, maxEdits, limit);
+  }
+
+  /**
+   * Splits text into its distinct lower-cased words: runs of letters and digits.
+   *
+   * @param text The text, possibly null.
+   * @return     The words, in order of first appearance.
+   */
+  static Set<String> tokenize(String text) {
+    if (text == null || text.isBlank()) {
+      return Set.of();
+    }
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private static PriceKey priceKey(Widget widget) {
+    return widget.getPrice() != null ? new PriceKey(widget.getPrice(), widget.getName()) : null;
+  }
+
+  private record PriceKey(double price, String name) {
+  }
+
+  /**
+   * The names of the Widgets containing a word, with their count kept alongside so the
+   * shortest list of a query can be picked without walking the skip lists. Only changed
+   * inside the word's {@code compute}.
+   */
+  private static final class Postings {
+
+    private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+    private volatile int size;
+
+    Postings add(String name) {
+      if (names.add(name)) {
+        size++;
+      }
+      return this;
+    }
+
+    /**
+     * @return True if no names are left.
+     */
+    boolean remove(String name) {
+      if (names.remove(name)) {
+        size--;
+      }
+      return size == 0;
+    }
+  }
+}
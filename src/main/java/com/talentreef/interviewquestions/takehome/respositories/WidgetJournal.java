@@ -0,0 +1,93 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Durable log of the mutations applied to a {@link WidgetRepository}.
+ * The repository appends a record while it holds the lock of the mutated name, so records
+ * of a name are logged in the order they were applied, and then waits outside the lock
+ * until the record is durable. Waiting is separate from appending so that concurrent
+ * writers can share a single flush.
+ */
+public interface WidgetJournal extends AutoCloseable {
+
+  /**
+   * Journal that keeps nothing, used when persistence is disabled.
+   */
+  WidgetJournal NONE = new WidgetJournal() {
+    @Override
+    public void recover(RecoveryTarget target, Supplier<Stream<Widget>> contents) {
+    }
+
+    @Override
+    public long appendSave(Widget widget) {
+      return 0;
+    }
+
+    @Override
+    public long appendDelete(String name) {
+      return 0;
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+
+  /**
+   * Replays the durable state into the repository and starts accepting appends.
+   *
+   * @param target   Receives the recovered snapshot, then the Widgets and deletions logged after it, in log order.
+   * @param contents Supplies the current repository contents when the journal compacts itself.
+   */
+  void recover(RecoveryTarget target, Supplier<Stream<Widget>> contents);
+
+  /**
+   * Appends the saving of a Widget.
+   *
+   * @param widget The saved Widget.
+   * @return       The log sequence number of the record.
+   */
+  long appendSave(Widget widget);
+
+  /**
+   * Appends the deletion of a Widget.
+   *
+   * @param name The name of the deleted Widget.
+   * @return     The log sequence number of the record.
+   */
+  long appendDelete(String name);
+
+  /**
+   * Blocks until every record up to the given sequence number is durable.
+   *
+   * @param lsn The log sequence number to wait for.
+   */
+  void awaitDurable(long lsn);
+
+  @Override
+  void close();
+
+  /**
+   * Receives the state replayed from the journal on startup.
+   */
+  interface RecoveryTarget {
+
+    /**
+     * Installs the snapshot the rest of the log is replayed on top of. Called at most once,
+     * before any other method.
+     */
+    void attach(MappedWidgetSnapshot snapshot);
+
+    void restore(Widget widget);
+
+    void forget(String name);
+  }
+}
@@ -0,0 +1,178 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Binary encoding of the records written to the journal's log segments. Snapshots use the
+ * layout of {@link MappedWidgetSnapshot} instead.
+ * Each record is framed as {@code length, crc32, body} so a torn or corrupted tail
+ * can be detected and cut off on replay.
+ */
+final class WidgetRecords {
+
+  static final byte SAVE = 1;
+  static final byte DELETE = 2;
+
+  private static final int FRAME_HEADER = 8;
+  private static final int MAX_RECORD = 64 * 1024;
+
+  private WidgetRecords() {
+  }
+
+  /**
+   * A decoded record. The Widget is null for deletions.
+   */
+  record Record(byte op, String name, Widget widget) {
+  }
+
+  /**
+   * Growable buffer that frames records in place, exposing its bytes without copying.
+   */
+  static final class RecordBuffer extends ByteArrayOutputStream {
+
+    private final DataOutputStream data = new DataOutputStream(this);
+
+    RecordBuffer() {
+      super(8 * 1024);
+    }
+
+    /**
+     * Frames a save with the Widget's version, or 0 if it has none.
+     */
+    void writeSave(Widget widget) {
+      int start = beginRecord();
+      try {
+        data.writeByte(SAVE);
+        data.writeUTF(widget.getName());
+        writeNullableUTF(widget.getDescription());
+        data.writeBoolean(widget.getPrice() != null);
+        if (widget.getPrice() != null) {
+          data.writeDouble(widget.getPrice());
+        }
+        data.writeLong(widget.getVersion() != null ? widget.getVersion() : 0);
+      } catch (IOException e) {
+        count = start;
+        throw new UncheckedIOException(e);
+      }
+      endRecord(start);
+    }
+
+    void writeDelete(String name) {
+      int start = beginRecord();
+      try {
+        data.writeByte(DELETE);
+        data.writeUTF(name);
+      } catch (IOException e) {
+        count = start;
+        throw new UncheckedIOException(e);
+      }
+      endRecord(start);
+    }
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    int capacity() {
+      return buf.length;
+    }
+
+    private void writeNullableUTF(String value) throws IOException {
+      data.writeBoolean(value != null);
+      if (value != null) {
+        data.writeUTF(value);
+      }
+    }
+
+    private int beginRecord() {
+      int start = count;
+      write(new byte[FRAME_HEADER], 0, FRAME_HEADER);
+      return start;
+    }
+
+    private void endRecord(int start) {
+      int length = count - start - FRAME_HEADER;
+      CRC32 crc = new CRC32();
+      crc.update(buf, start + FRAME_HEADER, length);
+      ByteBuffer header = ByteBuffer.wrap(buf, start, FRAME_HEADER);
+      header.putInt(length);
+      header.putInt((int) crc.getValue());
+    }
+  }
+
+  /**
+   * Reads framed records until the end of the stream or the first invalid record.
+   */
+  static final class RecordReader {
+
+    private final DataInputStream in;
+    private long position;
+
+    RecordReader(InputStream in) {
+      this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record, or null at the end of the valid data.
+     * @throws IOException if the stream cannot be read.
+     */
+    Record next() throws IOException {
+      byte[] body;
+      try {
+        int length = in.readInt();
+        int crc = in.readInt();
+        if (length <= 0 || length > MAX_RECORD) {
+          return null;
+        }
+        body = new byte[length];
+        in.readFully(body);
+        CRC32 actual = new CRC32();
+        actual.update(body);
+        if ((int) actual.getValue() != crc) {
+          return null;
+        }
+      } catch (EOFException e) {
+        return null;
+      }
+      position += FRAME_HEADER + body.length;
+      return decode(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * @return The offset just past the last valid record read.
+     */
+    long position() {
+      return position;
+    }
+
+    private static Record decode(DataInputStream body) throws IOException {
+      byte op = body.readByte();
+      String name = body.readUTF();
+      if (op == DELETE) {
+        return new Record(op, name, null);
+      }
+      if (op != SAVE) {
+        throw new IOException("Unknown widget record type " + op);
+      }
+      String description = body.readBoolean() ? body.readUTF() : null;
+      Double price = body.readBoolean() ? body.readDouble() : null;
+      // Saves journaled before versions were recorded end after the price.
+      long version = body.available() >= Long.BYTES ? body.readLong() : 0;
+      return new Record(op, name, Widget.builder().name(name).description(description).price(price)
+          .version(version != 0 ? version : null).build());
+    }
+  }
+}
@@ -1,42 +1,340 @@
 package com.talentreef.interviewquestions.takehome.respositories;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
 import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
 
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory Widget storage.
+ * Widgets live in a {@link WidgetTable} that looks them up by name and lists them in name
+ * order, so cursor pagination can seek straight to the next page. By default the table
+ * holds Widget objects; the off-heap table stores them as compact records outside the heap
+ * for large catalogs. All mutations of a name run inside the table's per-name
+ * {@code compute}, so concurrent writers never corrupt it.
+ * <p>
+ * The heap table publishes each write as a new immutable version of its name order, so a
+ * listing, stream or page reads the table as of one point in time without copying it or
+ * blocking writers. The off-heap table reads its order in batches under a shared lock, so
+ * its listings are weakly consistent.
+ * <p>
+ * Every mutation is also appended to a {@link WidgetJournal} while the name is locked, and
+ * the call returns once the journal reports it durable. Batch operations wait once for the
+ * whole batch.
+ * <p>
+ * When the journal recovers from a {@link MappedWidgetSnapshot}, the snapshot becomes a
+ * read-only base layer and the table only holds the Widgets written since startup, with
+ * tombstones for deleted snapshot Widgets. Reads check the table first and fall back to the
+ * snapshot, decoding Widgets on demand and caching a bounded number of them, so cold
+ * Widgets stay on disk and out of the heap.
+ * <p>
+ * Every write stores a copy of the Widget stamped with a new version from a counter that
+ * starts from the startup time in milliseconds times 1000, like the change feed, so versions
+ * are not reused by later runs and a replica can keep the versions of its primary. The
+ * journal and its snapshots record each Widget's version, so recovery restores them and
+ * ETags survive a restart; the counter is moved past the highest recovered version. A
+ * separate catalog counter is only advanced once the write is visible, so a catalog version
+ * read before the data it describes can be older than that data but never newer, which
+ * makes it safe to use as an ETag.
+ * <p>
+ * {@link WidgetIndexes} on price, description words and names are updated with every
+ * write, so queries and searches seek the matching names instead of scanning every Widget.
+ * The Widgets of a base snapshot are indexed by a background thread after startup, so
+ * startup does not decode them; until it finishes, queries and searches scan instead. The
+ * indexes hold every name and description word on the heap, whatever the table; without
+ * them, queries and searches always scan, and off-heap Widgets cost no heap.
+ * <p>
+ * Every write is also published to a {@link WidgetChangeFeed} while the name is locked, so
+ * consumers can follow the changes in the order they were applied instead of listing the
+ * catalog again. Writes replayed by the journal at startup are not published.
+ */
+@Slf4j
 @Repository
-public class WidgetRepository {
+public class WidgetRepository implements WidgetStore {
+
+  /**
+   * Marks a name deleted from the base snapshot. Compared by identity.
+   */
+  private static final Widget TOMBSTONE = new Widget();
+  private static final int DEFAULT_HOT_CACHE_SIZE = 65_536;
+  private static final int DEFAULT_CHANGE_CAPACITY = 16_384;
 
-  private List<Widget> table = new ArrayList<>();
+  private final WidgetTable table;
+  private final ConcurrentHashMap<String, Widget> hot = new ConcurrentHashMap<>();
+  private final WidgetIndexes indexes;
+  private final WidgetChangeFeed changes;
+  private final AtomicInteger size = new AtomicInteger();
+  private final WidgetJournal journal;
+  private final int hotCacheSize;
+  private final long baseVersion = System.currentTimeMillis() * 1000;
+  private final AtomicLong version = new AtomicLong(baseVersion);
+  private final AtomicLong catalog = new AtomicLong();
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private volatile MappedWidgetSnapshot base = MappedWidgetSnapshot.EMPTY;
+  private volatile boolean indexed;
+  private volatile String indexedThrough = "";
+  private boolean recovering;
+
+  /**
+   * Creates a repository that keeps Widgets in memory only.
+   */
+  public WidgetRepository() {
+    this(WidgetJournal.NONE);
+  }
+
+  /**
+   * Creates a repository persisted through the given journal, recovering its durable state.
+   *
+   * @param journal The journal to recover from and log mutations to.
+   */
+  public WidgetRepository(WidgetJournal journal) {
+    this(journal, DEFAULT_HOT_CACHE_SIZE, false);
+  }
+
+  /**
+   * Creates a repository persisted through the given journal, recovering its durable state.
+   *
+   * @param journal      The journal to recover from and log mutations to.
+   * @param hotCacheSize How many Widgets decoded from a mapped snapshot to keep on the heap.
+   * @param offHeap      Whether to store Widgets as compact records outside the heap.
+   */
+  public WidgetRepository(WidgetJournal journal, int hotCacheSize, boolean offHeap) {
+    this(journal, hotCacheSize, offHeap, DEFAULT_CHANGE_CAPACITY);
+  }
+
+  /**
+   * Creates a repository persisted through the given journal, recovering its durable state.
+   *
+   * @param journal        The journal to recover from and log mutations to.
+   * @param hotCacheSize   How many Widgets decoded from a mapped snapshot to keep on the heap.
+   * @param offHeap        Whether to store Widgets as compact records outside the heap.
+   * @param changeCapacity How many of the latest changes the change feed retains.
+   */
+  public WidgetRepository(WidgetJournal journal, int hotCacheSize, boolean offHeap, int changeCapacity) {
+    this(journal, hotCacheSize, offHeap, changeCapacity, true);
+  }
+
+  /**
+   * Creates a repository persisted through the given journal, recovering its durable state.
+   *
+   * @param journal        The journal to recover from and log mutations to.
+   * @param hotCacheSize   How many Widgets decoded from a mapped snapshot to keep on the heap.
+   * @param offHeap        Whether to store Widgets as compact records outside the heap.
+   * @param changeCapacity How many of the latest changes the change feed retains.
+   * @param indexing       Whether to keep price, word and name indexes on the heap.
+   */
+  @Autowired
+  public WidgetRepository(WidgetJournal journal,
+                          @Value("${widgets.persistence.hot-cache-size:65536}") int hotCacheSize,
+                          @Value("${widgets.storage.off-heap:false}") boolean offHeap,
+                          @Value("${widgets.changes.capacity:16384}") int changeCapacity,
+                          @Value("${widgets.storage.indexes:true}") boolean indexing) {
+    this.journal = journal;
+    this.hotCacheSize = hotCacheSize;
+    this.table = offHeap ? new OffHeapWidgetTable(TOMBSTONE) : new HeapWidgetTable();
+    this.changes = new WidgetChangeFeed(changeCapacity);
+    this.indexes = indexing ? new WidgetIndexes() : null;
+    this.indexed = indexing;
+    recovering = true;
+    journal.recover(new WidgetJournal.RecoveryTarget() {
+      @Override
+      public void attach(MappedWidgetSnapshot snapshot) {
+        base = snapshot;
+        size.set(snapshot.size());
+        version.accumulateAndGet(snapshot.maxVersion(), Math::max);
+        indexed = indexes != null && snapshot.isEmpty();
+      }
+
+      @Override
+      public void restore(Widget widget) {
+        if (widget.getVersion() != null) {
+          version.accumulateAndGet(widget.getVersion(), Math::max);
+        }
+        table.compute(widget.getName(), (name, existing) -> {
+          put(name, existing, widget, WidgetJournal.NONE);
+          return widget;
+        });
+      }
+
+      @Override
+      public void forget(String name) {
+        table.compute(name, (key, existing) ->
+            exists(key, existing) ? remove(key, existing, new long[1], WidgetJournal.NONE) : existing);
+      }
+    }, this::streamAll);
+    recovering = false;
+    if (indexes != null && !indexed) {
+      indexInBackground(base);
+    }
+  }
 
   /**
    * Finds all Widgets in the system.
    *
-   * @return A list of all Widgets.
+   * @return A detached list of all Widgets, read like {@link #streamAll}.
    */
+  @Override
   public List<Widget> findAll() {
-    return new ArrayList<>(table); // Return a copy to ensure immutability of the original list.
+    List<Widget> widgets = new ArrayList<>(size.get());
+    iterateAfter(null).forEachRemaining(widgets::add);
+    return widgets;
+  }
+
+  /**
+   * Streams all Widgets in name order without copying the table.
+   * Over the heap table, the stream reads the table as it was when the stream was created.
+   * Otherwise it is weakly consistent: it reflects some of the writes made while it is consumed.
+   *
+   * @return A stream over all Widgets.
+   */
+  @Override
+  public Stream<Widget> streamAll() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterateAfter(null),
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
   }
 
   /**
    * Retrieves a paginated list of Widgets.
+   * Pages past the end of the table are returned empty. Without a base snapshot, the heap
+   * table seeks the first Widget of the page in O(log n); otherwise the Widgets before the
+   * page are skipped one by one.
    *
    * @param page     The current page number.
    * @param pageSize The number of Widgets per page.
    * @return         A {@link PaginatedResult} containing the list of Widgets and total count.
    */
+  @Override
   public PaginatedResult findPaginated(int page, int pageSize) {
-    int start = (page - 1) * pageSize;
-    int end = Math.min(start + pageSize, table.size());
+    long start = (long) Math.max(page - 1, 0) * Math.max(pageSize, 0);
+    if (base.isEmpty()) {
+      return page(widgets(table.entriesFrom(start)), pageSize);
+    }
+    Iterator<Widget> widgets = iterateAfter(null);
+    for (long skipped = 0; skipped < start && widgets.hasNext(); skipped++) {
+      widgets.next();
+    }
+    return page(widgets, pageSize);
+  }
+
+  /**
+   * Retrieves the page of Widgets following the given cursor.
+   * The page is located by seeking the name-ordered index, so its cost does not depend
+   * on how deep into the table it is.
+   *
+   * @param cursor   The cursor returned with the previous page, or null for the first page.
+   * @param pageSize The number of Widgets per page.
+   * @return         A {@link PaginatedResult} containing the list of Widgets, total count and next cursor.
+   */
+  @Override
+  public PaginatedResult findPageAfter(String cursor, int pageSize) {
+    return page(iterateAfter(cursor == null ? null : WidgetCursor.decode(cursor)), pageSize);
+  }
+
+  /**
+   * Finds a page of the Widgets matching a query, in the query's order.
+   * Text is matched by whole words, ignoring case, and every word must appear in the
+   * description. When text is given, the shortest posting list of its words is walked;
+   * otherwise a price band or price order seeks the price index. Only a query with neither
+   * filter nor price order lists the table, as do all queries without indexes or while the
+   * base snapshot is being indexed. When the walk is already in the query's order,
+   * it starts after the cursor and stops after the page; otherwise the first matches after
+   * the cursor are kept in a heap bounded by the page size. The result is weakly
+   * consistent, like {@link #streamAll}.
+   *
+   * @param query  The filters and order.
+   * @param cursor The cursor returned with the previous page, or null for the first page.
+   * @param limit  The most Widgets to return.
+   * @return       The matching Widgets and the next cursor.
+   */
+  @Override
+  public QueryResult findByQuery(WidgetQuery query, String cursor, int limit) {
+    double minPrice = query.getMinPrice() != null ? query.getMinPrice() : Double.NEGATIVE_INFINITY;
+    double maxPrice = query.getMaxPrice() != null ? query.getMaxPrice() : Double.POSITIVE_INFINITY;
+    Set<String> words = WidgetIndexes.tokenize(query.getText());
+    boolean priced = query.getMinPrice() != null || query.getMaxPrice() != null;
+    WidgetQuery.Sort sort = query.getSort();
+    boolean byName = sort == WidgetQuery.Sort.NAME;
+    Widget after = cursor == null ? null
+        : byName ? Widget.builder().name(WidgetCursor.decode(cursor)).build()
+        : WidgetCursor.decodePriced(cursor);
+    Iterator<Widget> widgets;
+    boolean ordered;
+    if (!indexed) {
+      ordered = byName;
+      widgets = matching(iterateAfter(ordered && after != null ? after.getName() : null), minPrice, maxPrice, words);
+    } else if (!words.isEmpty()) {
+      ordered = byName;
+      Iterator<String> names = indexes.namesWithWords(words, ordered && after != null ? after.getName() : null);
+      widgets = matching(load(names), minPrice, maxPrice, words);
+    } else if (priced || !byName) {
+      ordered = !byName;
+      Iterator<String> names = indexes.namesByPrice(minPrice, maxPrice, sort == WidgetQuery.Sort.PRICE_DESC,
+          ordered ? after : null);
+      widgets = matching(load(names), minPrice, maxPrice, words);
+    } else {
+      ordered = true;
+      widgets = iterateAfter(after != null ? after.getName() : null);
+    }
+    if (!ordered) {
+      widgets = firstAfter(widgets, sort.comparator(), after, limit + 1);
+    }
+    return queryPage(widgets, sort, limit);
+  }
 
-    List<Widget> paginatedData = table.subList(start, end);
-    return new PaginatedResult(paginatedData, table.size());
+  /**
+   * Finds the Widgets whose name starts with a prefix, ignoring case and tolerating up to
+   * {@code maxEdits} typos. The name trie is walked instead of the table, so the cost
+   * depends on the prefix and the limit rather than on the number of Widgets. Without
+   * indexes, or while the base snapshot is being indexed, every name is compared instead.
+   *
+   * @param prefix   The start of the names.
+   * @param maxEdits The number of inserted, deleted or substituted characters to tolerate.
+   * @param limit    The most Widgets to return.
+   * @return         The matching Widgets, closest to the prefix first, then in name order.
+   */
+  @Override
+  public List<Widget> searchByName(String prefix, int maxEdits, int limit) {
+    if (!indexed) {
+      return scanNames(prefix, maxEdits, limit);
+    }
+    List<Widget> widgets = new ArrayList<>(Math.min(limit, 64));
+    for (String name : indexes.namesLike(prefix, maxEdits, limit)) {
+      Widget widget = current(name, table.get(name));
+      if (widget != null) {
+        widgets.add(widget);
+      }
+    }
+    return widgets;
   }
 
   /**
@@ -46,10 +344,64 @@ public class WidgetRepository {
    * @param widget The Widget to save.
    * @return       The saved Widget.
    */
+  @Override
   public Widget save(Widget widget) {
-    deleteById(widget.getName());
-    table.add(widget);
-    return widget;
+    long[] lsn = new long[1];
+    Widget saved = table.compute(widget.getName(), (name, existing) -> {
+      Widget stored = stamp(widget);
+      lsn[0] = put(name, existing, stored, journal);
+      return stored;
+    });
+    catalog.incrementAndGet();
+    journal.awaitDurable(lsn[0]);
+    return saved;
+  }
+
+  /**
+   * Saves a Widget copied from another repository, keeping its version there, so that it is
+   * served with the same ETag.
+   *
+   * @param widget  The Widget to save.
+   * @param version The version of the Widget, as formatted by {@link #versionOf}.
+   * @return        The saved Widget.
+   * @throws IllegalArgumentException if {@code version} is not a version of this format.
+   */
+  @Override
+  public Widget saveReplicated(Widget widget, String version) {
+    long parsed;
+    try {
+      parsed = Long.parseLong(version, Character.MAX_RADIX);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not a widget version: " + version, e);
+    }
+    long[] lsn = new long[1];
+    Widget saved = table.compute(widget.getName(), (name, existing) -> {
+      Widget stored = widget.toBuilder().version(parsed).build();
+      lsn[0] = put(name, existing, stored, journal);
+      return stored;
+    });
+    catalog.incrementAndGet();
+    journal.awaitDurable(lsn[0]);
+    return saved;
+  }
+
+  /**
+   * Saves a new Widget, atomically checking that its name is not taken.
+   *
+   * @param widget The Widget to save.
+   * @return       The saved Widget.
+   * @throws WidgetAlreadyExistsException if a Widget with the same name already exists.
+   */
+  @Override
+  public Widget saveIfAbsent(Widget widget) {
+    long[] lsn = new long[1];
+    Widget saved = insert(widget, lsn);
+    if (saved == null) {
+      throw new WidgetAlreadyExistsException("A Widget with the name '" + widget.getName() + "' already exists.");
+    }
+    catalog.incrementAndGet();
+    journal.awaitDurable(lsn[0]);
+    return saved;
   }
 
   /**
@@ -58,9 +410,102 @@ public class WidgetRepository {
    * @param name The name to check for.
    * @return     True if a Widget with the name exists, otherwise false.
    */
+  @Override
   public boolean existsByName(String name) {
-    return table.stream()
-        .anyMatch(widget -> name.equals(widget.getName()));
+    return exists(name, table.get(name));
+  }
+
+  /**
+   * @return The number of stored Widgets.
+   */
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Formats the version of a Widget returned by this repository. Versions are unique for the
+   * life of the repository and differ from those of any earlier run, so they can serve as
+   * strong ETags. Recovered Widgets keep the version they were journaled with; only Widgets
+   * recovered from files written before versions were persisted share the base version of
+   * this run.
+   *
+   * @param widget A Widget returned by this repository.
+   * @return       The version of the Widget.
+   */
+  @Override
+  public String versionOf(Widget widget) {
+    return Long.toString(widget.getVersion() != null ? widget.getVersion() : baseVersion, Character.MAX_RADIX);
+  }
+
+  /**
+   * Formats the version of the whole catalog, which changes after every write. Reading it
+   * before reading Widgets gives a version that is never newer than what was read.
+   *
+   * @return The catalog version.
+   */
+  @Override
+  public String catalogVersion() {
+    return epoch + "-" + catalog.get();
+  }
+
+  /**
+   * @return The sequence number of the latest change. Reading it before listing the Widgets
+   *         gives a point to follow the change feed from without missing a write.
+   */
+  @Override
+  public long lastChangeSeq() {
+    return changes.last();
+  }
+
+  /**
+   * Reads the changes following a sequence number, in the order they were applied.
+   *
+   * @param since The sequence number of the last change already seen.
+   * @param limit The most changes to return.
+   * @return      Up to {@code limit} changes, oldest first.
+   * @throws ChangesExpiredException if the changes following {@code since} are no longer retained.
+   */
+  @Override
+  public List<WidgetChange> changesSince(long since, int limit) {
+    return changes.since(since, limit);
+  }
+
+  /**
+   * Runs a listener once a change follows a sequence number, without holding a thread until
+   * then. A listener run by a write runs while the name is locked, so it must not block.
+   *
+   * @param since    The sequence number of the last change already seen.
+   * @param listener The listener to run once.
+   * @return         Removes the listener if it has not run yet.
+   */
+  @Override
+  public Runnable onChanges(long since, Runnable listener) {
+    return changes.subscribe(since, listener);
+  }
+
+  /**
+   * @return True if mutations wait for a journal to make them durable, and so may block.
+   */
+  @Override
+  public boolean isDurable() {
+    return journal != WidgetJournal.NONE;
+  }
+
+  /**
+   * @return True if mutations wait for a journal, or for the off-heap table's lock.
+   */
+  @Override
+  public boolean writesBlock() {
+    return isDurable() || table.locksAllNames();
+  }
+
+  /**
+   * @return The fraction of the name index's capacity in use, or NaN if the storage does not expose it.
+   */
+  @Override
+  public double indexLoad() {
+    return table.load();
   }
 
   /**
@@ -69,22 +514,564 @@ public class WidgetRepository {
    * @param name The name of the Widget to search for.
    * @return     An Optional containing the Widget if found, or empty if not.
    */
+  @Override
   public Optional<Widget> findByName(String name) {
-    return table.stream()
-        .filter((Widget widget) -> name.equals(widget.getName()))
-        .findAny();
+    return Optional.ofNullable(current(name, table.get(name)));
   }
 
   /**
    * Deletes a Widget by its name.
    *
    * @param name The name of the Widget to delete.
-   * @return     The updated list of Widgets after deletion.
+   * @return     An Optional containing the deleted Widget, or empty if no Widget had that name.
+   */
+  @Override
+  public Optional<Widget> deleteById(String name) {
+    return deleteById(name, null);
+  }
+
+  /**
+   * Deletes a Widget by its name if its current version satisfies a precondition.
+   *
+   * @param name         The name of the Widget to delete.
+   * @param precondition Tests the {@link #versionOf version} of the stored Widget, or null to delete any version.
+   * @return             An Optional containing the deleted Widget, or empty if no Widget had that name.
+   * @throws WidgetVersionMismatchException if the stored Widget's version fails the precondition.
    */
-  public List<Widget> deleteById(String name) {
-    this.table = table.stream()
-        .filter((Widget widget) -> !name.equals(widget.getName()))
-        .collect(Collectors.toCollection(ArrayList::new));
-    return table;
+  @Override
+  public Optional<Widget> deleteById(String name, Predicate<String> precondition) {
+    Widget[] removed = new Widget[1];
+    long lsn = delete(name, precondition, removed);
+    if (removed[0] != null) {
+      catalog.incrementAndGet();
+    }
+    journal.awaitDurable(lsn);
+    return Optional.ofNullable(removed[0]);
+  }
+
+  /**
+   * Saves a batch of new Widgets, skipping those whose name is already taken.
+   *
+   * @param widgets The Widgets to save.
+   * @return        For each Widget, in order, the saved Widget or empty if its name was taken.
+   */
+  @Override
+  public List<Optional<Widget>> saveAllIfAbsent(List<Widget> widgets) {
+    List<Optional<Widget>> results = new ArrayList<>(widgets.size());
+    long lastLsn = 0;
+    long[] lsn = new long[1];
+    boolean changed = false;
+    for (Widget widget : widgets) {
+      Widget saved = insert(widget, lsn);
+      lastLsn = Math.max(lastLsn, lsn[0]);
+      results.add(Optional.ofNullable(saved));
+      changed |= saved != null;
+    }
+    if (changed) {
+      catalog.incrementAndGet();
+    }
+    journal.awaitDurable(lastLsn);
+    return results;
+  }
+
+  /**
+   * Updates a batch of existing Widgets, skipping names that do not exist.
+   * Each Widget is merged into the stored one atomically.
+   *
+   * @param widgets The Widgets holding the changes.
+   * @param merge   Builds the updated Widget from the stored Widget and the changes.
+   * @return        For each Widget, in order, the updated Widget or empty if it was not found.
+   */
+  @Override
+  public List<Optional<Widget>> updateAll(List<Widget> widgets, BinaryOperator<Widget> merge) {
+    List<Optional<Widget>> results = new ArrayList<>(widgets.size());
+    long[] lastLsn = new long[1];
+    boolean changed = false;
+    for (Widget changes : widgets) {
+      Widget updated = merge(changes, merge, null, lastLsn);
+      results.add(Optional.ofNullable(updated));
+      changed |= updated != null;
+    }
+    if (changed) {
+      catalog.incrementAndGet();
+    }
+    journal.awaitDurable(lastLsn[0]);
+    return results;
+  }
+
+  /**
+   * Updates an existing Widget if its current version satisfies a precondition.
+   * The changes are merged into the stored Widget atomically.
+   *
+   * @param changes      The Widget holding the changes, identified by name.
+   * @param merge        Builds the updated Widget from the stored Widget and the changes.
+   * @param precondition Tests the {@link #versionOf version} of the stored Widget, or null to update any version.
+   * @return             An Optional containing the updated Widget, or empty if it was not found.
+   * @throws WidgetVersionMismatchException if the stored Widget's version fails the precondition.
+   */
+  @Override
+  public Optional<Widget> update(Widget changes, BinaryOperator<Widget> merge, Predicate<String> precondition) {
+    long[] lsn = new long[1];
+    Widget updated = merge(changes, merge, precondition, lsn);
+    if (updated != null) {
+      catalog.incrementAndGet();
+    }
+    journal.awaitDurable(lsn[0]);
+    return Optional.ofNullable(updated);
+  }
+
+  /**
+   * Deletes a batch of Widgets by name.
+   *
+   * @param names The names of the Widgets to delete.
+   * @return      For each name, in order, the deleted Widget or empty if it was not found.
+   */
+  @Override
+  public List<Optional<Widget>> deleteAll(List<String> names) {
+    List<Optional<Widget>> results = new ArrayList<>(names.size());
+    long lastLsn = 0;
+    boolean changed = false;
+    for (String name : names) {
+      Widget[] removed = new Widget[1];
+      lastLsn = Math.max(lastLsn, delete(name, null, removed));
+      results.add(Optional.ofNullable(removed[0]));
+      changed |= removed[0] != null;
+    }
+    if (changed) {
+      catalog.incrementAndGet();
+    }
+    journal.awaitDurable(lastLsn);
+    return results;
+  }
+
+  /**
+   * Inserts a Widget if its name is free, without waiting for the journal.
+   *
+   * @return The stored Widget, or null if the name was taken. The journal sequence number of
+   *         the insert, or 0, is left in {@code lsn}.
+   */
+  private Widget insert(Widget widget, long[] lsn) {
+    Widget[] inserted = new Widget[1];
+    lsn[0] = 0;
+    table.compute(widget.getName(), (name, existing) -> {
+      if (exists(name, existing)) {
+        return existing;
+      }
+      inserted[0] = stamp(widget);
+      lsn[0] = put(name, existing, inserted[0], journal);
+      return inserted[0];
+    });
+    return inserted[0];
+  }
+
+  /**
+   * Merges changes into a Widget if it exists and its version satisfies the precondition,
+   * without waiting for the journal. The highest journal sequence number seen is kept in
+   * {@code lastLsn}.
+   *
+   * @return The stored Widget, or null if it was not found.
+   */
+  private Widget merge(Widget changes, BinaryOperator<Widget> merge, Predicate<String> precondition, long[] lastLsn) {
+    Widget[] updated = new Widget[1];
+    table.compute(changes.getName(), (name, existing) -> {
+      Widget stored = current(name, existing);
+      if (stored == null) {
+        return existing;
+      }
+      checkVersion(stored, precondition);
+      updated[0] = stamp(merge.apply(stored, changes));
+      lastLsn[0] = Math.max(lastLsn[0], put(name, existing, updated[0], journal));
+      return updated[0];
+    });
+    return updated[0];
+  }
+
+  /**
+   * Deletes a Widget if it exists, without waiting for the journal.
+   *
+   * @return The journal sequence number of the removal, or 0 if nothing was removed.
+   */
+  private long delete(String name, Predicate<String> precondition, Widget[] removed) {
+    long[] lsn = new long[1];
+    table.compute(name, (key, existing) -> {
+      Widget stored = current(key, existing);
+      if (stored == null) {
+        return existing;
+      }
+      checkVersion(stored, precondition);
+      removed[0] = stored;
+      return remove(key, existing, lsn, journal);
+    });
+    return lsn[0];
+  }
+
+  /**
+   * Orders a Widget in the table and logs it. Must run inside the table's compute for the
+   * name, with {@code existing} being the name's current entry. The Widget is ordered
+   * first, so a snapshot taken after the record is flushed is guaranteed to contain it.
+   *
+   * @return The journal sequence number of the record.
+   */
+  private long put(String name, Widget existing, Widget widget, WidgetJournal log) {
+    Widget previous = current(name, existing);
+    table.order(name, widget);
+    long lsn;
+    try {
+      lsn = log.appendSave(widget);
+    } catch (RuntimeException e) {
+      rollback(name, existing);
+      throw e;
+    }
+    hot.remove(name);
+    if (indexes != null) {
+      indexes.replace(indexedPrevious(name, existing, previous), widget);
+    }
+    if (previous == null) {
+      size.incrementAndGet();
+    }
+    if (!recovering) {
+      changes.publish(previous == null ? WidgetChange.Type.CREATED : WidgetChange.Type.UPDATED,
+          name, widget, versionOf(widget));
+    }
+    return lsn;
+  }
+
+  /**
+   * Removes an existing Widget from the table's order and logs it, under the same rules as
+   * {@link #put}. A name still present in the base snapshot is shadowed by a tombstone.
+   *
+   * @return The new table entry for the name.
+   */
+  private Widget remove(String name, Widget existing, long[] lsn, WidgetJournal log) {
+    Widget previous = current(name, existing);
+    Widget replacement = base.contains(name) ? TOMBSTONE : null;
+    table.order(name, replacement);
+    try {
+      lsn[0] = log.appendDelete(name);
+    } catch (RuntimeException e) {
+      rollback(name, existing);
+      throw e;
+    }
+    hot.remove(name);
+    if (indexes != null) {
+      indexes.replace(indexedPrevious(name, existing, previous), null);
+    }
+    size.decrementAndGet();
+    if (!recovering) {
+      changes.publish(WidgetChange.Type.DELETED, name, null, null);
+    }
+    return replacement;
+  }
+
+  private void rollback(String name, Widget existing) {
+    table.order(name, existing);
+  }
+
+  /**
+   * Returns the Widget a write must remove from the indexes: the previous Widget, unless it
+   * comes from the base snapshot and the background build has not indexed it yet. The build
+   * skips names written since startup, so the write then indexes the new Widget in full.
+   * Must run inside the table's compute for the name.
+   */
+  private Widget indexedPrevious(String name, Widget existing, Widget previous) {
+    if (existing == null && !indexed && name.compareTo(indexedThrough) > 0) {
+      return null;
+    }
+    return previous;
+  }
+
+  /**
+   * Indexes the Widgets of the base snapshot on a daemon thread, in name order. Each name is
+   * indexed inside the table's compute for it, and skipped if it was written since startup.
+   */
+  private void indexInBackground(MappedWidgetSnapshot snapshot) {
+    Thread thread = new Thread(() -> {
+      long start = System.nanoTime();
+      try {
+        for (int position = 0; position < snapshot.size(); position++) {
+          Widget widget = snapshot.widgetAt(position);
+          table.compute(widget.getName(), (name, existing) -> {
+            if (existing == null) {
+              indexes.replace(null, widget);
+            }
+            indexedThrough = name;
+            return existing;
+          });
+        }
+        indexed = true;
+        log.info("Indexed {} snapshot widgets in {} ms", snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+      } catch (RuntimeException e) {
+        log.error("Could not index snapshot widgets, queries and searches keep scanning", e);
+      }
+    }, "widget-index-build");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Finds names like a prefix by comparing every name, ordered like {@link NameTrie#search}.
+   */
+  private List<Widget> scanNames(String prefix, int maxEdits, int limit) {
+    String key = prefix.toLowerCase(Locale.ROOT);
+    Comparator<NameMatch> order = Comparator.comparingInt(NameMatch::distance)
+        .thenComparing(match -> match.widget().getName().toLowerCase(Locale.ROOT))
+        .thenComparing(match -> match.widget().getName());
+    PriorityQueue<NameMatch> best = new PriorityQueue<>(order.reversed());
+    Iterator<Widget> widgets = iterateAfter(null);
+    while (widgets.hasNext()) {
+      Widget widget = widgets.next();
+      int distance = NameTrie.distance(widget.getName(), key, maxEdits);
+      if (distance <= maxEdits) {
+        best.add(new NameMatch(distance, widget));
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+    }
+    List<NameMatch> matches = new ArrayList<>(best);
+    matches.sort(order);
+    return matches.stream().map(NameMatch::widget).toList();
+  }
+
+  /**
+   * Copies a Widget with a new version. Must run inside the table's compute for the name,
+   * before the write becomes visible.
+   */
+  private Widget stamp(Widget widget) {
+    return widget.toBuilder().version(version.incrementAndGet()).build();
+  }
+
+  private void checkVersion(Widget stored, Predicate<String> precondition) {
+    if (precondition != null && !precondition.test(versionOf(stored))) {
+      throw new WidgetVersionMismatchException("Widget with name '" + stored.getName() + "' has changed.");
+    }
+  }
+
+  /**
+   * Resolves the Widget stored under a name from its table entry, falling back to the base
+   * snapshot when the name was not written since startup.
+   */
+  private Widget current(String name, Widget entry) {
+    if (entry != null) {
+      return entry == TOMBSTONE ? null : entry;
+    }
+    if (base.isEmpty()) {
+      return null;
+    }
+    Widget widget = hot.get(name);
+    if (widget == null) {
+      widget = base.find(name);
+      if (widget != null) {
+        cache(name, widget);
+      }
+    }
+    return widget;
+  }
+
+  private boolean exists(String name, Widget entry) {
+    if (entry != null) {
+      return entry != TOMBSTONE;
+    }
+    return base.contains(name);
+  }
+
+  /**
+   * Loads the Widgets of the names found through an index.
+   */
+  private Iterator<Widget> load(Iterator<String> names) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(names, Spliterator.ORDERED), false)
+        .map(name -> current(name, table.get(name)))
+        .iterator();
+  }
+
+  /**
+   * Keeps the Widgets that match a query. Widgets found through an index must be checked,
+   * since they may have changed after the index was read.
+   */
+  private static Iterator<Widget> matching(Iterator<Widget> widgets, double minPrice, double maxPrice, Set<String> words) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(widgets, Spliterator.ORDERED), false)
+        .filter(widget -> matches(widget, minPrice, maxPrice, words))
+        .iterator();
+  }
+
+  private static boolean matches(Widget widget, double minPrice, double maxPrice, Set<String> words) {
+    if (widget == null || widget.getPrice() == null
+        || widget.getPrice() < minPrice || widget.getPrice() > maxPrice) {
+      return false;
+    }
+    return words.isEmpty() || WidgetIndexes.tokenize(widget.getDescription()).containsAll(words);
+  }
+
+  /**
+   * Keeps the first {@code count} Widgets in an order that follow a cursor, holding no more
+   * than {@code count} of them at a time.
+   *
+   * @return The kept Widgets, in order.
+   */
+  private static Iterator<Widget> firstAfter(Iterator<Widget> widgets, Comparator<Widget> order, Widget after, int count) {
+    PriorityQueue<Widget> first = new PriorityQueue<>(order.reversed());
+    while (widgets.hasNext()) {
+      Widget widget = widgets.next();
+      if (after != null && order.compare(widget, after) <= 0) {
+        continue;
+      }
+      first.add(widget);
+      if (first.size() > count) {
+        first.poll();
+      }
+    }
+    List<Widget> sorted = new ArrayList<>(first);
+    sorted.sort(order);
+    return sorted.iterator();
+  }
+
+  /**
+   * Copies up to {@code limit} Widgets into a query page, setting the next cursor when more
+   * Widgets follow.
+   */
+  private static QueryResult queryPage(Iterator<Widget> widgets, WidgetQuery.Sort sort, int limit) {
+    List<Widget> page = new ArrayList<>(Math.max(Math.min(limit, 64), 0));
+    while (page.size() < limit && widgets.hasNext()) {
+      page.add(widgets.next());
+    }
+    String nextCursor = null;
+    if (!page.isEmpty() && widgets.hasNext()) {
+      Widget last = page.get(page.size() - 1);
+      nextCursor = sort == WidgetQuery.Sort.NAME
+          ? WidgetCursor.encode(last.getName())
+          : WidgetCursor.encode(last.getPrice(), last.getName());
+    }
+    return new QueryResult(page, nextCursor);
+  }
+
+  /**
+   * Keeps a decoded snapshot Widget on the heap, evicting an arbitrary one when the cache
+   * is full. Snapshot Widgets never change, so cached copies only need evicting when the
+   * name is written.
+   */
+  private void cache(String name, Widget widget) {
+    if (hotCacheSize <= 0) {
+      return;
+    }
+    if (hot.size() >= hotCacheSize) {
+      Iterator<String> victims = hot.keySet().iterator();
+      if (victims.hasNext()) {
+        hot.remove(victims.next());
+      }
+    }
+    hot.put(name, widget);
+  }
+
+  /**
+   * Iterates the Widgets in name order, starting after the given name.
+   */
+  private Iterator<Widget> iterateAfter(String after) {
+    Iterator<Map.Entry<String, Widget>> entries = table.entries(after);
+    MappedWidgetSnapshot snapshot = base;
+    if (snapshot.isEmpty()) {
+      return widgets(entries);
+    }
+    int start = 0;
+    if (after != null) {
+      int position = snapshot.indexOf(after);
+      start = position >= 0 ? position + 1 : -(position + 1);
+    }
+    return new MergingIterator(entries, snapshot, start);
+  }
+
+  /**
+   * Iterates the Widgets of table entries that hold no tombstones, as when there is no base snapshot.
+   */
+  private static Iterator<Widget> widgets(Iterator<Map.Entry<String, Widget>> entries) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public Widget next() {
+        return entries.next().getValue();
+      }
+    };
+  }
+
+  /**
+   * Copies up to {@code pageSize} Widgets into a detached page, setting the next cursor
+   * when more Widgets follow.
+   */
+  private PaginatedResult page(Iterator<Widget> widgets, int pageSize) {
+    List<Widget> paginatedData = new ArrayList<>(Math.max(Math.min(pageSize, size.get()), 0));
+    while (paginatedData.size() < pageSize && widgets.hasNext()) {
+      paginatedData.add(widgets.next());
+    }
+    String nextCursor = !paginatedData.isEmpty() && widgets.hasNext()
+        ? WidgetCursor.encode(paginatedData.get(paginatedData.size() - 1).getName())
+        : null;
+    return new PaginatedResult(paginatedData, size.get(), nextCursor);
+  }
+
+  private record NameMatch(int distance, Widget widget) {
+  }
+
+  /**
+   * Merges the name-ordered table with the base snapshot. Table entries win over snapshot
+   * records of the same name, and tombstones hide them.
+   */
+  private static final class MergingIterator implements Iterator<Widget> {
+
+    private final Iterator<Map.Entry<String, Widget>> overlay;
+    private final MappedWidgetSnapshot snapshot;
+    private Map.Entry<String, Widget> overlayEntry;
+    private int position;
+    private String snapshotName;
+    private Widget next;
+
+    MergingIterator(Iterator<Map.Entry<String, Widget>> overlay, MappedWidgetSnapshot snapshot, int position) {
+      this.overlay = overlay;
+      this.snapshot = snapshot;
+      this.position = position;
+      this.overlayEntry = overlay.hasNext() ? overlay.next() : null;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Widget next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Widget widget = next;
+      advance();
+      return widget;
+    }
+
+    private void advance() {
+      next = null;
+      while (next == null && (overlayEntry != null || position < snapshot.size())) {
+        if (snapshotName == null && position < snapshot.size()) {
+          snapshotName = snapshot.nameAt(position);
+        }
+        int comparison = overlayEntry == null ? 1
+            : snapshotName == null ? -1
+            : overlayEntry.getKey().compareTo(snapshotName);
+        if (comparison <= 0) {
+          Widget widget = overlayEntry.getValue();
+          overlayEntry = overlay.hasNext() ? overlay.next() : null;
+          if (comparison == 0) {
+            position++;
+            snapshotName = null;
+          }
+          next = widget == TOMBSTONE ? null : widget;
+        } else {
+          next = snapshot.widgetAt(position++);
+          snapshotName = null;
+        }
+      }
+    }
   }
 }
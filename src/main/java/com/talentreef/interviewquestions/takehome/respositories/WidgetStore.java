@@ -0,0 +1,210 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+
+/**
+ * Storage of Widgets, as used by the services. {@link WidgetRepository} is the backend
+ * storing them; {@link CachingWidgetStore} decorates a store with a cache of lookups by name.
+ * <p>
+ * Every write assigns the stored Widget a new version and is published to the change feed,
+ * in the order writes to a name were applied. Listings are in name order.
+ */
+public interface WidgetStore {
+
+  /**
+   * @return A detached list of all Widgets, in name order.
+   */
+  List<Widget> findAll();
+
+  /**
+   * @return A stream over all Widgets, in name order.
+   */
+  Stream<Widget> streamAll();
+
+  /**
+   * Retrieves a page of Widgets by number. Pages past the end are empty.
+   *
+   * @param page     The current page number, from 1.
+   * @param pageSize The number of Widgets per page.
+   * @return         The Widgets of the page and the total count.
+   */
+  PaginatedResult findPaginated(int page, int pageSize);
+
+  /**
+   * Retrieves the page of Widgets following a cursor.
+   *
+   * @param cursor   The cursor returned with the previous page, or null for the first page.
+   * @param pageSize The number of Widgets per page.
+   * @return         The Widgets of the page, the total count and the next cursor.
+   */
+  PaginatedResult findPageAfter(String cursor, int pageSize);
+
+  /**
+   * Retrieves a page of the Widgets matching a query.
+   *
+   * @param query  The filters and order.
+   * @param cursor The cursor returned with the previous page, or null for the first page.
+   * @param limit  The most Widgets to return.
+   * @return       The matching Widgets, in the query's order, and the next cursor.
+   */
+  QueryResult findByQuery(WidgetQuery query, String cursor, int limit);
+
+  /**
+   * Finds the Widgets whose name starts with a prefix, ignoring case and tolerating typos.
+   *
+   * @param prefix   The start of the names.
+   * @param maxEdits The number of inserted, deleted or substituted characters to tolerate.
+   * @param limit    The most Widgets to return.
+   * @return         The matching Widgets, closest to the prefix first, then in name order.
+   */
+  List<Widget> searchByName(String prefix, int maxEdits, int limit);
+
+  /**
+   * @param name The name of the Widget.
+   * @return     The Widget, or empty if no Widget has that name.
+   */
+  Optional<Widget> findByName(String name);
+
+  /**
+   * @param name The name to check for.
+   * @return     True if a Widget with the name exists.
+   */
+  boolean existsByName(String name);
+
+  /**
+   * @return The number of stored Widgets.
+   */
+  int size();
+
+  /**
+   * Saves a Widget, replacing any Widget with the same name.
+   *
+   * @param widget The Widget to save.
+   * @return       The saved Widget.
+   */
+  Widget save(Widget widget);
+
+  /**
+   * Saves a Widget copied from another store, keeping the version it has there.
+   *
+   * @param widget  The Widget to save.
+   * @param version The version of the Widget, as formatted by {@link #versionOf} on the other store.
+   * @return        The saved Widget.
+   * @throws IllegalArgumentException if {@code version} is not a version of this format.
+   */
+  Widget saveReplicated(Widget widget, String version);
+
+  /**
+   * Saves a new Widget, atomically checking that its name is not taken.
+   *
+   * @param widget The Widget to save.
+   * @return       The saved Widget.
+   * @throws WidgetAlreadyExistsException if a Widget with the same name already exists.
+   */
+  Widget saveIfAbsent(Widget widget);
+
+  /**
+   * Updates an existing Widget if its current version satisfies a precondition.
+   *
+   * @param changes      The Widget holding the changes, identified by name.
+   * @param merge        Builds the updated Widget from the stored Widget and the changes.
+   * @param precondition Tests the {@link #versionOf version} of the stored Widget, or null to update any version.
+   * @return             The updated Widget, or empty if it was not found.
+   * @throws WidgetVersionMismatchException if the stored Widget's version fails the precondition.
+   */
+  Optional<Widget> update(Widget changes, BinaryOperator<Widget> merge, Predicate<String> precondition);
+
+  /**
+   * @param name The name of the Widget to delete.
+   * @return     The deleted Widget, or empty if no Widget had that name.
+   */
+  Optional<Widget> deleteById(String name);
+
+  /**
+   * Deletes a Widget if its current version satisfies a precondition.
+   *
+   * @param name         The name of the Widget to delete.
+   * @param precondition Tests the {@link #versionOf version} of the stored Widget, or null to delete any version.
+   * @return             The deleted Widget, or empty if no Widget had that name.
+   * @throws WidgetVersionMismatchException if the stored Widget's version fails the precondition.
+   */
+  Optional<Widget> deleteById(String name, Predicate<String> precondition);
+
+  /**
+   * @param widgets The Widgets to save.
+   * @return        For each Widget, in order, the saved Widget or empty if its name was taken.
+   */
+  List<Optional<Widget>> saveAllIfAbsent(List<Widget> widgets);
+
+  /**
+   * @param widgets The Widgets holding the changes.
+   * @param merge   Builds the updated Widget from the stored Widget and the changes.
+   * @return        For each Widget, in order, the updated Widget or empty if it was not found.
+   */
+  List<Optional<Widget>> updateAll(List<Widget> widgets, BinaryOperator<Widget> merge);
+
+  /**
+   * @param names The names of the Widgets to delete.
+   * @return      For each name, in order, the deleted Widget or empty if it was not found.
+   */
+  List<Optional<Widget>> deleteAll(List<String> names);
+
+  /**
+   * @param widget A Widget returned by this store.
+   * @return       The version of the Widget, usable as a strong ETag.
+   */
+  String versionOf(Widget widget);
+
+  /**
+   * @return The version of the whole catalog, which changes after every write.
+   */
+  String catalogVersion();
+
+  /**
+   * @return The sequence number of the latest change.
+   */
+  long lastChangeSeq();
+
+  /**
+   * @param since The sequence number of the last change already seen.
+   * @param limit The most changes to return.
+   * @return      Up to {@code limit} changes, oldest first.
+   * @throws ChangesExpiredException if the changes following {@code since} are no longer retained.
+   */
+  List<WidgetChange> changesSince(long since, int limit);
+
+  /**
+   * @param since    The sequence number of the last change already seen.
+   * @param listener Run once a newer change exists, possibly by the thread writing it; must not block.
+   * @return         Removes the listener if it has not run yet.
+   */
+  Runnable onChanges(long since, Runnable listener);
+
+  /**
+   * @return True if writes wait for a journal to make them durable, and so may block.
+   */
+  boolean isDurable();
+
+  /**
+   * @return True if writes may block, waiting for a journal or for a lock shared by every name.
+   */
+  boolean writesBlock();
+
+  /**
+   * @return The fraction of the name index's capacity in use, or NaN if the storage does not expose it.
+   */
+  double indexLoad();
+}
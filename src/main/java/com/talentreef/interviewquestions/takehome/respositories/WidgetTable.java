@@ -0,0 +1,66 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Storage behind {@link WidgetRepository}: the Widgets written since startup, keyed and
+ * ordered by name. Entries may be tombstones, which the repository interprets.
+ */
+interface WidgetTable {
+
+  /**
+   * @return The entry stored under the name, or null.
+   */
+  Widget get(String name);
+
+  /**
+   * Replaces the entry of a name atomically with respect to other updates of the name.
+   * The update sees the current entry, or null, and returns the new one, or null to remove it.
+   *
+   * @return The new entry.
+   */
+  Widget compute(String name, BiFunction<String, Widget, Widget> update);
+
+  /**
+   * Makes an entry visible to ordered iteration before the enclosing {@link #compute}
+   * returns, or withdraws it when the entry is null. Tables whose iteration cannot observe
+   * an update in progress ignore it.
+   */
+  void order(String name, Widget entry);
+
+  /**
+   * @return The fraction of the name index's capacity in use, or NaN if the table does not expose it.
+   */
+  double load();
+
+  /**
+   * @return True if an update of one name holds a lock shared by every name, so it may wait
+   *         for updates and reads of other names.
+   */
+  boolean locksAllNames();
+
+  /**
+   * Iterates the entries in name order, at least weakly consistently. Tables that keep
+   * immutable versions of their order iterate the version current when this is called.
+   *
+   * @param after The name to start after, or null to start at the first name.
+   */
+  Iterator<Map.Entry<String, Widget>> entries(String after);
+
+  /**
+   * Iterates the entries in name order like {@link #entries}, skipping the first
+   * {@code position}. Tables that can seek by position override the default, which skips
+   * the entries one by one.
+   */
+  default Iterator<Map.Entry<String, Widget>> entriesFrom(long position) {
+    Iterator<Map.Entry<String, Widget>> entries = entries(null);
+    for (long skipped = 0; skipped < position && entries.hasNext(); skipped++) {
+      entries.next();
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,252 @@
+package com.talentreef.interviewquestions.takehome.respositories;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+/**
+ * Immutable map of names to table entries in name order, as a persistent AVL tree.
+ * {@link #with} and {@link #without} return a new tree that shares all but the O(log n)
+ * nodes on the path to the changed name, so a tree can be handed to readers and iterated
+ * for as long as they need while writers publish newer ones.
+ * <p>
+ * Nodes record the size of their subtree, so iteration can start at a position as cheaply
+ * as at a name.
+ */
+final class WidgetTree {
+
+  static final WidgetTree EMPTY = new WidgetTree(null);
+
+  private final Node root;
+
+  private WidgetTree(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * @return The number of entries.
+   */
+  int size() {
+    return size(root);
+  }
+
+  /**
+   * @return The entry stored under the name, or null.
+   */
+  Widget get(String name) {
+    Node node = root;
+    while (node != null) {
+      int comparison = name.compareTo(node.name);
+      if (comparison == 0) {
+        return node.entry;
+      }
+      node = comparison < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /**
+   * @return A tree with the entry stored under the name, or this tree if it already was.
+   */
+  WidgetTree with(String name, Widget entry) {
+    Node updated = insert(root, name, entry);
+    return updated == root ? this : new WidgetTree(updated);
+  }
+
+  /**
+   * @return A tree without the name, or this tree if it did not contain it.
+   */
+  WidgetTree without(String name) {
+    Node updated = delete(root, name);
+    return updated == root ? this : new WidgetTree(updated);
+  }
+
+  /**
+   * Iterates the entries in name order.
+   *
+   * @param after The name to start after, or null to start at the first name.
+   */
+  Iterator<Map.Entry<String, Widget>> entries(String after) {
+    EntryIterator entries = new EntryIterator(root);
+    Node node = root;
+    while (node != null) {
+      if (after == null || node.name.compareTo(after) > 0) {
+        entries.path.push(node);
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Iterates the entries in name order, skipping the first {@code position} in O(log n).
+   */
+  Iterator<Map.Entry<String, Widget>> entriesFrom(long position) {
+    EntryIterator entries = new EntryIterator(root);
+    Node node = root;
+    long remaining = Math.max(position, 0);
+    while (node != null) {
+      int leftSize = size(node.left);
+      if (remaining < leftSize) {
+        entries.path.push(node);
+        node = node.left;
+      } else if (remaining == leftSize) {
+        entries.path.push(node);
+        break;
+      } else {
+        remaining -= leftSize + 1;
+        node = node.right;
+      }
+    }
+    return entries;
+  }
+
+  private static Node insert(Node node, String name, Widget entry) {
+    if (node == null) {
+      return new Node(name, entry, null, null);
+    }
+    int comparison = name.compareTo(node.name);
+    if (comparison < 0) {
+      Node left = insert(node.left, name, entry);
+      return left == node.left ? node : balance(node.name, node.entry, left, node.right);
+    }
+    if (comparison > 0) {
+      Node right = insert(node.right, name, entry);
+      return right == node.right ? node : balance(node.name, node.entry, node.left, right);
+    }
+    return node.entry == entry ? node : new Node(name, entry, node.left, node.right);
+  }
+
+  private static Node delete(Node node, String name) {
+    if (node == null) {
+      return null;
+    }
+    int comparison = name.compareTo(node.name);
+    if (comparison < 0) {
+      Node left = delete(node.left, name);
+      return left == node.left ? node : balance(node.name, node.entry, left, node.right);
+    }
+    if (comparison > 0) {
+      Node right = delete(node.right, name);
+      return right == node.right ? node : balance(node.name, node.entry, node.left, right);
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    Node successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return balance(successor.name, successor.entry, node.left, delete(node.right, successor.name));
+  }
+
+  /**
+   * Builds a node from subtrees whose heights differ by at most two, rotating it back
+   * within one.
+   */
+  private static Node balance(String name, Widget entry, Node left, Node right) {
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+    if (leftHeight > rightHeight + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node(left.name, left.entry, left.left, new Node(name, entry, left.right, right));
+      }
+      Node pivot = left.right;
+      return new Node(pivot.name, pivot.entry,
+          new Node(left.name, left.entry, left.left, pivot.left),
+          new Node(name, entry, pivot.right, right));
+    }
+    if (rightHeight > leftHeight + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node(right.name, right.entry, new Node(name, entry, left, right.left), right.right);
+      }
+      Node pivot = right.left;
+      return new Node(pivot.name, pivot.entry,
+          new Node(name, entry, left, pivot.left),
+          new Node(right.name, right.entry, pivot.right, right.right));
+    }
+    return new Node(name, entry, left, right);
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /**
+   * Node of the tree, doubling as the map entry handed out by iteration.
+   */
+  private static final class Node implements Map.Entry<String, Widget> {
+
+    final String name;
+    final Widget entry;
+    final Node left;
+    final Node right;
+    final int height;
+    final int size;
+
+    Node(String name, Widget entry, Node left, Node right) {
+      this.name = name;
+      this.entry = entry;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.size = size(left) + size(right) + 1;
+    }
+
+    @Override
+    public String getKey() {
+      return name;
+    }
+
+    @Override
+    public Widget getValue() {
+      return entry;
+    }
+
+    @Override
+    public Widget setValue(Widget value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * In-order walk keeping the path of nodes still to visit, at most the tree's height.
+   */
+  private static final class EntryIterator implements Iterator<Map.Entry<String, Widget>> {
+
+    final ArrayDeque<Node> path;
+
+    EntryIterator(Node root) {
+      this.path = new ArrayDeque<>(height(root));
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !path.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, Widget> next() {
+      Node node = path.poll();
+      if (node == null) {
+        throw new NoSuchElementException();
+      }
+      for (Node next = node.right; next != null; next = next.left) {
+        path.push(next);
+      }
+      return node;
+    }
+  }
+}
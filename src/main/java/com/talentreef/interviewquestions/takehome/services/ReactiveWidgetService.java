@@ -0,0 +1,179 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidQueryException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+import com.talentreef.interviewquestions.takehome.respositories.ReactiveWidgetRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking counterpart of {@link WidgetService}, with the same rules, errors and meters.
+ * Nothing happens until the returned publisher is subscribed to.
+ */
+@Slf4j
+@Service
+public class ReactiveWidgetService {
+
+    private final ReactiveWidgetRepository widgetRepository;
+    private final WidgetMetrics metrics;
+
+    public ReactiveWidgetService(ReactiveWidgetRepository widgetRepository, WidgetMetrics metrics) {
+        Assert.notNull(widgetRepository, "widgetRepository must not be null");
+        Assert.notNull(metrics, "metrics must not be null");
+        this.widgetRepository = widgetRepository;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Emits all Widgets in name order, as fast as the subscriber requests them.
+     *
+     * @return Flux of all Widgets.
+     */
+    public Flux<Widget> streamAllWidgets() {
+        return widgetRepository.findAll();
+    }
+
+    /**
+     * Retrieves a paginated list of widgets.
+     *
+     * @param page     The current page number.
+     * @param pageSize The number of widgets per page.
+     * @return         A {@link PaginatedResult} containing widgets and total count.
+     */
+    public Mono<PaginatedResult> getPaginatedWidgets(int page, int pageSize) {
+        return timed(metrics.paginate(), widgetRepository.findPaginated(page, pageSize));
+    }
+
+    /**
+     * Retrieves the page of widgets following a cursor.
+     *
+     * @param cursor   The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The number of widgets per page.
+     * @return         A {@link PaginatedResult} containing widgets, total count and next cursor.
+     */
+    public Mono<PaginatedResult> getWidgetsAfter(String cursor, int pageSize) {
+        return timed(metrics.paginate(), widgetRepository.findPageAfter(cursor, pageSize));
+    }
+
+    /**
+     * Finds a page of the Widgets within a price band whose description contains the query's words.
+     *
+     * @param query  The filters and order.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit  The most Widgets to return, at most {@value WidgetService#MAX_QUERY_LIMIT}.
+     * @return       The matching Widgets, in the query's order, and the next cursor, or an
+     *               error of {@link InvalidQueryException} if {@code limit} is out of range.
+     */
+    public Mono<QueryResult> queryWidgets(WidgetQuery query, String cursor, int limit) {
+        return Mono.defer(() -> {
+            WidgetService.checkQuery(limit);
+            return timed(metrics.query(), widgetRepository.findByQuery(query, cursor, limit));
+        });
+    }
+
+    /**
+     * Finds the Widgets whose name starts with a prefix, ignoring case and tolerating typos.
+     *
+     * @param prefix   The start of the names.
+     * @param maxEdits The number of typos to tolerate, at most {@value WidgetService#MAX_EDITS}.
+     * @param limit    The most Widgets to return, at most {@value WidgetService#MAX_SEARCH_LIMIT}.
+     * @return         The matching Widgets, closest to the prefix first, then in name order, or an
+     *                 error of {@link InvalidQueryException} if {@code maxEdits} or {@code limit} is out of range.
+     */
+    public Mono<List<Widget>> searchWidgets(String prefix, int maxEdits, int limit) {
+        return Mono.defer(() -> {
+            WidgetService.checkSearch(maxEdits, limit);
+            return timed(metrics.search(), widgetRepository.searchByName(prefix, maxEdits, limit));
+        });
+    }
+
+    /**
+     * Creates a new Widget in the system.
+     *
+     * @param widget The Widget to create.
+     * @return       The created Widget, or an error of {@link WidgetAlreadyExistsException}
+     *               if a Widget with the same name already exists.
+     */
+    public Mono<Widget> createWidget(Widget widget) {
+        return Mono.defer(() -> {
+            log.atDebug().addKeyValue("widget", widget.getName()).log("Creating widget");
+            return timed(metrics.create(), widgetRepository.saveIfAbsent(widget))
+                    .doOnError(WidgetAlreadyExistsException.class, e -> metrics.recordConflicts(1));
+        });
+    }
+
+    /**
+     * Retrieves a Widget by its name.
+     *
+     * @param name The unique name of the Widget to retrieve.
+     * @return     The found Widget, or an error of {@link EntityNotFoundException} if it is not found.
+     */
+    public Mono<Widget> getWidgetByName(String name) {
+        return Mono.defer(() -> {
+            log.atDebug().addKeyValue("widget", name).log("Retrieving widget");
+            return timed(metrics.get(), widgetRepository.findByName(name)
+                    .switchIfEmpty(Mono.error(() -> notFound(name))));
+        });
+    }
+
+    /**
+     * Updates a Widget's description or price.
+     *
+     * @param name   The unique name of the Widget to update.
+     * @param widget The Widget object containing updated fields.
+     * @return       The updated Widget, or an error of {@link EntityNotFoundException} if it is not found.
+     */
+    public Mono<Widget> updateWidget(String name, Widget widget) {
+        return Mono.defer(() -> {
+            log.atDebug().addKeyValue("widget", name).log("Updating widget");
+            Widget changes = widget.toBuilder().name(name).build();
+            return timed(metrics.update(), widgetRepository.update(changes, WidgetService::applyChanges)
+                    .switchIfEmpty(Mono.error(() -> notFound(name))));
+        });
+    }
+
+    /**
+     * Deletes a Widget by its name.
+     *
+     * @param name The unique name of the Widget to delete.
+     * @return     Completion, or an error of {@link EntityNotFoundException} if the Widget is not found.
+     */
+    public Mono<Void> deleteWidget(String name) {
+        return Mono.defer(() -> {
+            log.atDebug().addKeyValue("widget", name).log("Deleting widget");
+            return timed(metrics.delete(), widgetRepository.deleteById(name)
+                    .switchIfEmpty(Mono.error(() -> notFound(name))))
+                    .then();
+        });
+    }
+
+    /**
+     * Counts the miss and builds the exception reported for a missing Widget.
+     */
+    private EntityNotFoundException notFound(String name) {
+        metrics.recordNotFound(1);
+        return new EntityNotFoundException("Widget with name '" + name + "' not found.");
+    }
+
+    /**
+     * Records the time from subscription until the operation terminates or is cancelled.
+     */
+    private static <T> Mono<T> timed(Timer timer, Mono<T> operation) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return operation.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+}
@@ -0,0 +1,223 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.BatchItemResult;
+import com.talentreef.interviewquestions.takehome.models.BatchResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies bulk create, update and delete requests.
+ * The request body is read element by element from the stream, each element is validated,
+ * and valid elements are handed to {@link WidgetService} in chunks so the whole payload is
+ * never held in memory at once. An element that cannot be bound to a Widget is reported as
+ * invalid like one that fails validation, and the rest of the batch is still applied.
+ * <p>
+ * The report holds one entry per element, so a batch is capped at {@code widgets.batch.max-items}
+ * elements to bound its memory. The elements after the cap are not read, and the report
+ * says so like any body that cannot be read to the end.
+ */
+@Slf4j
+@Service
+public class WidgetBatchService {
+
+    private static final int DEFAULT_MAX_ITEMS = 10_000;
+
+    private final WidgetService widgetService;
+    private final WidgetValidator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public WidgetBatchService(WidgetService widgetService, WidgetValidator validator, ObjectMapper objectMapper,
+                              int chunkSize) {
+        this(widgetService, validator, objectMapper, chunkSize, DEFAULT_MAX_ITEMS);
+    }
+
+    @Autowired
+    public WidgetBatchService(WidgetService widgetService, WidgetValidator validator, ObjectMapper objectMapper,
+                              @Value("${widgets.batch.chunk-size:1000}") int chunkSize,
+                              @Value("${widgets.batch.max-items:10000}") int maxItems) {
+        Assert.notNull(widgetService, "widgetService must not be null");
+        Assert.notNull(validator, "validator must not be null");
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        Assert.isTrue(maxItems > 0, "maxItems must be positive");
+        this.widgetService = widgetService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Creates the Widgets of a JSON array.
+     *
+     * @param body The request body, a JSON array of Widgets.
+     * @return     The per-item report.
+     * @throws IOException if the request body cannot be read.
+     */
+    public BatchResult createWidgets(InputStream body) throws IOException {
+        return process(body, new BatchOperation<>(Widget.class, Widget::getName, this::validate,
+                widgetService::createWidgets, HttpStatus.CREATED, HttpStatus.BAD_REQUEST,
+                "A Widget with the name '%s' already exists."));
+    }
+
+    /**
+     * Updates the description or price of the Widgets of a JSON array.
+     *
+     * @param body The request body, a JSON array of Widgets identified by name.
+     * @return     The per-item report.
+     * @throws IOException if the request body cannot be read.
+     */
+    public BatchResult updateWidgets(InputStream body) throws IOException {
+        return process(body, new BatchOperation<>(Widget.class, Widget::getName, this::validate,
+                widgetService::updateWidgets, HttpStatus.OK, HttpStatus.NOT_FOUND,
+                "Widget with name '%s' not found."));
+    }
+
+    /**
+     * Deletes the Widgets named in a JSON array.
+     *
+     * @param body The request body, a JSON array of Widget names.
+     * @return     The per-item report.
+     * @throws IOException if the request body cannot be read.
+     */
+    public BatchResult deleteWidgets(InputStream body) throws IOException {
+        return process(body, new BatchOperation<>(String.class, Function.identity(), this::validateName,
+                widgetService::deleteWidgets, HttpStatus.NO_CONTENT, HttpStatus.NOT_FOUND,
+                "Widget with name '%s' not found."));
+    }
+
+    /**
+     * Streams the items of the request body through validation and chunked application,
+     * keeping the report in request order.
+     */
+    private <T> BatchResult process(InputStream body, BatchOperation<T> operation) throws IOException {
+        List<BatchItemResult> items = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkPositions = new ArrayList<>(chunkSize);
+        String error = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Request body ended before the closing bracket.");
+                }
+                if (items.size() == maxItems) {
+                    throw new IllegalArgumentException("Request body has more than " + maxItems
+                            + " items. Only the first " + maxItems + " were read.");
+                }
+                JsonNode node = parser.readValueAsTree();
+                T item;
+                try {
+                    item = objectMapper.treeToValue(node, operation.type());
+                } catch (JsonMappingException e) {
+                    items.add(new BatchItemResult(nameOf(node), HttpStatus.BAD_REQUEST.value(), List.of(bindError(e))));
+                    continue;
+                }
+                List<String> errors = item == null ? List.of("Item must not be null.") : operation.validate().apply(item);
+                if (!errors.isEmpty()) {
+                    items.add(new BatchItemResult(item == null ? null : operation.name().apply(item),
+                            HttpStatus.BAD_REQUEST.value(), errors));
+                    continue;
+                }
+                chunkPositions.add(items.size());
+                items.add(null);
+                chunk.add(item);
+                if (chunk.size() == chunkSize) {
+                    apply(operation, chunk, chunkPositions, items);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            error = e.getOriginalMessage();
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        apply(operation, chunk, chunkPositions, items);
+
+        int succeeded = (int) items.stream().filter(item -> item.getErrors() == null).count();
+        log.atDebug().addKeyValue("succeeded", succeeded).addKeyValue("failed", items.size() - succeeded).log("Applied batch of widgets");
+        return new BatchResult(succeeded, items.size() - succeeded, items, error);
+    }
+
+    /**
+     * Applies a chunk of valid items and fills in their report entries.
+     */
+    private <T> void apply(BatchOperation<T> operation, List<T> chunk, List<Integer> chunkPositions,
+                           List<BatchItemResult> items) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Optional<Widget>> outcomes = operation.apply().apply(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            String name = operation.name().apply(chunk.get(i));
+            BatchItemResult result = outcomes.get(i).isPresent()
+                    ? new BatchItemResult(name, operation.success().value(), null)
+                    : new BatchItemResult(name, operation.failure().value(),
+                            List.of(String.format(operation.failureMessage(), name)));
+            items.set(chunkPositions.get(i), result);
+        }
+        chunk.clear();
+        chunkPositions.clear();
+    }
+
+    /**
+     * Checks a Widget's constraints, formatting errors like the single-widget endpoints.
+     */
+    private List<String> validate(Widget widget) {
+        return validator.validate(widget);
+    }
+
+    private List<String> validateName(String name) {
+        return name.isBlank() ? List.of("name: Name is required.") : List.of();
+    }
+
+    /**
+     * Reads the name of an element that could not be bound, if it has a textual one.
+     */
+    private static String nameOf(JsonNode node) {
+        JsonNode name = node.isObject() ? node.get("name") : node;
+        return name != null && name.isTextual() ? name.textValue() : null;
+    }
+
+    /**
+     * Formats a binding failure like a validation error, prefixed with the field it concerns.
+     */
+    private static String bindError(JsonMappingException e) {
+        String field = e.getPath().stream()
+                .map(reference -> reference.getFieldName() != null ? reference.getFieldName() : "[" + reference.getIndex() + "]")
+                .collect(Collectors.joining("."));
+        return field.isEmpty() ? e.getOriginalMessage() : field + ": " + e.getOriginalMessage();
+    }
+
+    /**
+     * Describes how the items of one kind of batch request are read, checked and applied.
+     */
+    private record BatchOperation<T>(Class<T> type, Function<T, String> name, Function<T, List<String>> validate,
+                                     Function<List<T>, List<Optional<Widget>>> apply, HttpStatus success,
+                                     HttpStatus failure, String failureMessage) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * The JSON encoding of recently read Widgets, so that repeated reads of a Widget are written
+ * to the response without serializing it again. Entries are bounded by their total size in
+ * bytes and evicted by Caffeine's frequency and recency policy.
+ * <p>
+ * Each entry remembers the version of the Widget it encodes and is only used for that version,
+ * so an entry that races with an update is never served. {@link WidgetService} also
+ * invalidates entries as it writes, so that outdated encodings do not take up the budget.
+ * <ul>
+ *     <li>{@code widgets.json.cache}: lookups, tagged with {@code result} {@code hit} or {@code miss}.</li>
+ *     <li>{@code widgets.json.cache.size}: gauge of the bytes held.</li>
+ * </ul>
+ */
+@Component
+public class WidgetJsonCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Bytes counted for each entry besides its JSON: the key, entry and cache node.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Entry> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public WidgetJsonCache(ObjectMapper objectMapper, MeterRegistry registry,
+                           @Value("${widgets.json-cache.max-bytes:67108864}") long maxBytes) {
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        Assert.notNull(registry, "registry must not be null");
+        Assert.isTrue(maxBytes >= 0, "maxBytes must not be negative");
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String name, Entry entry) -> ENTRY_OVERHEAD + 2 * name.length() + entry.json().length)
+                .build();
+        this.hits = counter(registry, "hit");
+        this.misses = counter(registry, "miss");
+        Gauge.builder("widgets.json.cache.size", cache, WidgetJsonCache::weightedSize)
+                .description("Bytes of Widget JSON held by the cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Encodes a Widget as JSON, reusing the bytes encoded for the same version of it if cached.
+     * The returned array is shared and must not be modified.
+     *
+     * @param widget The Widget, as stored by the repository.
+     * @return       The JSON encoding of the Widget.
+     */
+    public byte[] toJson(Widget widget) {
+        Entry entry = cache.getIfPresent(widget.getName());
+        if (entry != null && Objects.equals(entry.version(), widget.getVersion())) {
+            hits.increment();
+            return entry.json();
+        }
+        misses.increment();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(widget);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.put(widget.getName(), new Entry(widget.getVersion(), json));
+        return json;
+    }
+
+    /**
+     * Drops the encoding of a Widget that has been changed or deleted.
+     *
+     * @param name The name of the Widget.
+     */
+    public void invalidate(String name) {
+        cache.invalidate(name);
+    }
+
+    private static double weightedSize(Cache<String, Entry> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> (double) eviction.weightedSize().orElse(0))
+                .orElse(0.0);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("widgets.json.cache")
+                .description("Lookups of encoded Widget JSON")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Entry(Long version, byte[] json) {
+    }
+}
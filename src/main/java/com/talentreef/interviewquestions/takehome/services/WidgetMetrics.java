@@ -0,0 +1,105 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import com.talentreef.interviewquestions.takehome.respositories.WidgetStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Meters of the Widget operations, published through the actuator {@code metrics} and
+ * {@code prometheus} endpoints.
+ * <ul>
+ *     <li>{@code widgets.operations}: timer per {@code operation}, with a percentile histogram
+ *     for Prometheus and precomputed 50th, 95th and 99th percentiles.</li>
+ *     <li>{@code widgets.conflicts}: creates rejected because the name was taken.</li>
+ *     <li>{@code widgets.not.found}: lookups, updates and deletes of a missing name.</li>
+ *     <li>{@code widgets.table.size} and {@code widgets.index.load}: gauges of the repository.</li>
+ * </ul>
+ */
+@Component
+public class WidgetMetrics {
+
+    private final Timer create;
+    private final Timer get;
+    private final Timer update;
+    private final Timer delete;
+    private final Timer paginate;
+    private final Timer query;
+    private final Timer search;
+    private final Counter conflicts;
+    private final Counter notFound;
+
+    @Autowired
+    public WidgetMetrics(MeterRegistry registry, WidgetStore widgetRepository) {
+        Assert.notNull(registry, "registry must not be null");
+        Assert.notNull(widgetRepository, "widgetRepository must not be null");
+        this.create = timer(registry, "create");
+        this.get = timer(registry, "get");
+        this.update = timer(registry, "update");
+        this.delete = timer(registry, "delete");
+        this.paginate = timer(registry, "paginate");
+        this.query = timer(registry, "query");
+        this.search = timer(registry, "search");
+        this.conflicts = Counter.builder("widgets.conflicts")
+                .description("Widget creations rejected because the name was already taken")
+                .register(registry);
+        this.notFound = Counter.builder("widgets.not.found")
+                .description("Widget operations on a name that does not exist")
+                .register(registry);
+        Gauge.builder("widgets.table.size", widgetRepository, WidgetStore::size)
+                .description("Number of stored Widgets")
+                .register(registry);
+        Gauge.builder("widgets.index.load", widgetRepository, WidgetStore::indexLoad)
+                .description("Fraction of the name index capacity in use, when the storage exposes it")
+                .register(registry);
+    }
+
+    public Timer create() {
+        return create;
+    }
+
+    public Timer get() {
+        return get;
+    }
+
+    public Timer update() {
+        return update;
+    }
+
+    public Timer delete() {
+        return delete;
+    }
+
+    public Timer paginate() {
+        return paginate;
+    }
+
+    public Timer query() {
+        return query;
+    }
+
+    public Timer search() {
+        return search;
+    }
+
+    public void recordConflicts(int count) {
+        conflicts.increment(count);
+    }
+
+    public void recordNotFound(int count) {
+        notFound.increment(count);
+    }
+
+    private static Timer timer(MeterRegistry registry, String operation) {
+        return Timer.builder("widgets.operations")
+                .description("Latency of Widget operations")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
@@ -1,9 +1,18 @@
 package com.talentreef.interviewquestions.takehome.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidQueryException;
 import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
 import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
-import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -11,17 +20,40 @@ import org.springframework.util.Assert;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class WidgetService {
 
-    private final WidgetRepository widgetRepository;
+    static final int MAX_EDITS = 2;
+    static final int MAX_SEARCH_LIMIT = 100;
+    static final int MAX_QUERY_LIMIT = 1000;
+    static final int MAX_CHANGES_LIMIT = 1000;
+
+    private final WidgetStore widgetRepository;
+    private final WidgetMetrics metrics;
+    private final WidgetJsonCache jsonCache;
+
+    public WidgetService(WidgetStore widgetRepository) {
+        this(widgetRepository, new WidgetMetrics(new SimpleMeterRegistry(), widgetRepository));
+    }
+
+    public WidgetService(WidgetStore widgetRepository, WidgetMetrics metrics) {
+        this(widgetRepository, metrics,
+                new WidgetJsonCache(new ObjectMapper(), new SimpleMeterRegistry(), WidgetJsonCache.DEFAULT_MAX_BYTES));
+    }
 
     @Autowired
-    public WidgetService(WidgetRepository widgetRepository) {
+    public WidgetService(WidgetStore widgetRepository, WidgetMetrics metrics, WidgetJsonCache jsonCache) {
         Assert.notNull(widgetRepository, "widgetRepository must not be null");
+        Assert.notNull(metrics, "metrics must not be null");
+        Assert.notNull(jsonCache, "jsonCache must not be null");
         this.widgetRepository = widgetRepository;
+        this.metrics = metrics;
+        this.jsonCache = jsonCache;
     }
 
     /**
@@ -33,6 +65,15 @@ public class WidgetService {
         return widgetRepository.findAll();
     }
 
+    /**
+     * Streams all Widgets from the system without copying them.
+     *
+     * @return Stream of all Widgets.
+     */
+    public Stream<Widget> streamAllWidgets() {
+        return widgetRepository.streamAll();
+    }
+
     /**
      * Retrieves a paginated list of widgets.
      *
@@ -41,7 +82,46 @@ public class WidgetService {
      * @return         A {@link PaginatedResult} containing widgets and total count.
      */
     public PaginatedResult getPaginatedWidgets(int page, int pageSize) {
-        return widgetRepository.findPaginated(page, pageSize);
+        return metrics.paginate().record(() -> widgetRepository.findPaginated(page, pageSize));
+    }
+
+    /**
+     * Retrieves the page of widgets following a cursor.
+     *
+     * @param cursor   The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The number of widgets per page.
+     * @return         A {@link PaginatedResult} containing widgets, total count and next cursor.
+     */
+    public PaginatedResult getWidgetsAfter(String cursor, int pageSize) {
+        return metrics.paginate().record(() -> widgetRepository.findPageAfter(cursor, pageSize));
+    }
+
+    /**
+     * Finds a page of the Widgets within a price band whose description contains the query's words.
+     *
+     * @param query  The filters and order.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param limit  The most Widgets to return, at most {@value WidgetService#MAX_QUERY_LIMIT}.
+     * @return       The matching Widgets, in the query's order, and the next cursor.
+     * @throws InvalidQueryException if {@code limit} is out of range.
+     */
+    public QueryResult queryWidgets(WidgetQuery query, String cursor, int limit) {
+        checkQuery(limit);
+        return metrics.query().record(() -> widgetRepository.findByQuery(query, cursor, limit));
+    }
+
+    /**
+     * Finds the Widgets whose name starts with a prefix, ignoring case and tolerating typos.
+     *
+     * @param prefix   The start of the names.
+     * @param maxEdits The number of typos to tolerate, at most {@value WidgetService#MAX_EDITS}.
+     * @param limit    The most Widgets to return, at most {@value WidgetService#MAX_SEARCH_LIMIT}.
+     * @return         The matching Widgets, closest to the prefix first, then in name order.
+     * @throws InvalidQueryException if {@code maxEdits} or {@code limit} is out of range.
+     */
+    public List<Widget> searchWidgets(String prefix, int maxEdits, int limit) {
+        checkSearch(maxEdits, limit);
+        return metrics.search().record(() -> widgetRepository.searchByName(prefix, maxEdits, limit));
     }
 
     /**
@@ -49,16 +129,18 @@ public class WidgetService {
      *
      * @param widget The Widget to create.
      * @return       The created Widget.
+     * @throws WidgetAlreadyExistsException if a Widget with the same name already exists.
      */
     public Widget createWidget(Widget widget) {
-        log.info("Creating widget with name: {}", widget.getName());
-        
-        // Check if widget already exists
-        if (widgetRepository.existsByName(widget.getName())) {
-            throw new WidgetAlreadyExistsException("A Widget with the name '" + widget.getName() + "' already exists.");
+        log.atDebug().addKeyValue("widget", widget.getName()).log("Creating widget");
+        try {
+            Widget created = metrics.create().record(() -> widgetRepository.saveIfAbsent(widget));
+            jsonCache.invalidate(widget.getName());
+            return created;
+        } catch (WidgetAlreadyExistsException e) {
+            metrics.recordConflicts(1);
+            throw e;
         }
-
-        return widgetRepository.save(widget);
     }
 
     /**
@@ -69,9 +151,9 @@ public class WidgetService {
      * @throws EntityNotFoundException if the Widget is not found.
      */
     public Widget getWidgetByName(String name) {
-        log.info("Retrieving widget with name: {}", name);
-        return widgetRepository.findByName(name)
-                .orElseThrow(() -> new EntityNotFoundException("Widget with name '" + name + "' not found."));
+        log.atDebug().addKeyValue("widget", name).log("Retrieving widget");
+        return metrics.get().record(() -> widgetRepository.findByName(name)
+                .orElseThrow(() -> notFound(name)));
     }
 
     /**
@@ -82,20 +164,27 @@ public class WidgetService {
      * @return       The updated Widget.
      */
     public Widget updateWidget(String name, Widget widget) {
-        log.info("Updating widget with name: {}", name);
-
-        Widget existingWidget = widgetRepository.findByName(name)
-                .orElseThrow(() -> new EntityNotFoundException("Widget with name '" + name + "' not found."));
-
-        // Update only description and price
-        if (widget.getDescription() != null) {
-            existingWidget.setDescription(widget.getDescription());
-        }
-        if (widget.getPrice() != null) {
-            existingWidget.setPrice(widget.getPrice());
-        }
+        return updateWidget(name, widget, null);
+    }
 
-        return widgetRepository.save(existingWidget);
+    /**
+     * Updates a Widget's description or price if its version satisfies a precondition.
+     * The check and the update are atomic.
+     *
+     * @param name            The unique name of the Widget to update.
+     * @param widget          The Widget object containing updated fields.
+     * @param expectedVersion Tests the current {@link #getVersion version} of the Widget, or null to accept any.
+     * @return                The updated Widget.
+     * @throws EntityNotFoundException        if the Widget is not found.
+     * @throws WidgetVersionMismatchException if the Widget's version fails the precondition.
+     */
+    public Widget updateWidget(String name, Widget widget, Predicate<String> expectedVersion) {
+        log.atDebug().addKeyValue("widget", name).log("Updating widget");
+        Widget changes = widget.toBuilder().name(name).build();
+        Widget updated = metrics.update().record(() -> widgetRepository.update(changes, WidgetService::applyChanges, expectedVersion)
+                .orElseThrow(() -> notFound(name)));
+        jsonCache.invalidate(name);
+        return updated;
     }
 
     /**
@@ -105,12 +194,203 @@ public class WidgetService {
      * @throws     EntityNotFoundException if the Widget is not found.
      */
     public void deleteWidget(String name) {
-        log.info("Deleting widget with name: {}", name);
+        deleteWidget(name, null);
+    }
+
+    /**
+     * Deletes a Widget by its name if its version satisfies a precondition.
+     * The check and the deletion are atomic.
+     *
+     * @param name            The unique name of the Widget to delete.
+     * @param expectedVersion Tests the current {@link #getVersion version} of the Widget, or null to accept any.
+     * @throws EntityNotFoundException        if the Widget is not found.
+     * @throws WidgetVersionMismatchException if the Widget's version fails the precondition.
+     */
+    public void deleteWidget(String name, Predicate<String> expectedVersion) {
+        log.atDebug().addKeyValue("widget", name).log("Deleting widget");
+        metrics.delete().record(() -> {
+            widgetRepository.deleteById(name, expectedVersion)
+                    .orElseThrow(() -> notFound(name));
+        });
+        jsonCache.invalidate(name);
+    }
+
+    /**
+     * Stores a Widget copied from the primary, replacing any Widget with the same name.
+     * Replicas apply the primary's writes through here rather than through the checked
+     * operations, since the primary already accepted them.
+     *
+     * @param widget  The Widget as stored on the primary.
+     * @param version The version of the Widget on the primary, kept so that its ETag is the same.
+     */
+    public void saveReplicated(Widget widget, String version) {
+        widgetRepository.saveReplicated(widget, version);
+        jsonCache.invalidate(widget.getName());
+    }
+
+    /**
+     * Deletes a Widget deleted on the primary, if it is still present.
+     *
+     * @param name The unique name of the Widget to delete.
+     */
+    public void deleteReplicated(String name) {
+        widgetRepository.deleteById(name);
+        jsonCache.invalidate(name);
+    }
+
+    /**
+     * Encodes a Widget returned by this service as JSON, reusing the bytes encoded for the
+     * same version of it when they are still cached.
+     *
+     * @param widget The Widget.
+     * @return       The JSON encoding of the Widget, which must not be modified.
+     */
+    public byte[] toJson(Widget widget) {
+        return jsonCache.toJson(widget);
+    }
+
+    /**
+     * Retrieves the version of a Widget returned by this service, which changes whenever the Widget does.
+     *
+     * @param widget The Widget.
+     * @return       The opaque version, usable as a strong ETag.
+     */
+    public String getVersion(Widget widget) {
+        return widgetRepository.versionOf(widget);
+    }
+
+    /**
+     * Retrieves the version of the whole catalog, which changes whenever any Widget does.
+     * Read it before reading the Widgets it describes.
+     *
+     * @return The opaque version, usable as a strong ETag.
+     */
+    public String getCatalogVersion() {
+        return widgetRepository.catalogVersion();
+    }
+
+    /**
+     * Retrieves the sequence number of the latest change to the catalog. Read it before
+     * reading the Widgets, then follow the changes from it.
+     *
+     * @return The sequence number of the latest change.
+     */
+    public long getChangeSeq() {
+        return widgetRepository.lastChangeSeq();
+    }
+
+    /**
+     * Retrieves the changes following a sequence number, in the order they were applied.
+     *
+     * @param since The sequence number of the last change already seen.
+     * @param limit The most changes to return, at most {@value WidgetService#MAX_CHANGES_LIMIT}.
+     * @return      A {@link ChangesResult} containing the changes and the sequence number to resume from.
+     * @throws InvalidQueryException   if {@code limit} is out of range.
+     * @throws ChangesExpiredException if the changes following {@code since} are no longer retained.
+     */
+    public ChangesResult getChanges(long since, int limit) {
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            throw new InvalidQueryException("limit must be between 1 and " + MAX_CHANGES_LIMIT + ".");
+        }
+        List<WidgetChange> changes = widgetRepository.changesSince(since, limit);
+        return new ChangesResult(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+    }
+
+    /**
+     * Runs a listener once a change follows a sequence number, without holding a thread until then.
+     *
+     * @param since    The sequence number of the last change already seen.
+     * @param listener Run once a newer change exists, possibly by the thread writing it; must not block.
+     * @return         Removes the listener if it has not run yet.
+     */
+    public Runnable onChanges(long since, Runnable listener) {
+        return widgetRepository.onChanges(since, listener);
+    }
+
+    /**
+     * Creates a batch of Widgets in one repository operation.
+     *
+     * @param widgets The Widgets to create.
+     * @return        For each Widget, in order, the created Widget or empty if its name was already taken.
+     */
+    public List<Optional<Widget>> createWidgets(List<Widget> widgets) {
+        log.atDebug().addKeyValue("count", widgets.size()).log("Creating batch of widgets");
+        List<Optional<Widget>> results = widgetRepository.saveAllIfAbsent(widgets);
+        invalidate(results);
+        metrics.recordConflicts(countMissing(results));
+        return results;
+    }
 
-        Widget widget = widgetRepository.findByName(name)
-                .orElseThrow(() -> new EntityNotFoundException("Widget with name '" + name + "' not found."));
+    /**
+     * Updates the description or price of a batch of Widgets in one repository operation.
+     *
+     * @param widgets The Widgets containing updated fields, identified by name.
+     * @return        For each Widget, in order, the updated Widget or empty if it was not found.
+     */
+    public List<Optional<Widget>> updateWidgets(List<Widget> widgets) {
+        log.atDebug().addKeyValue("count", widgets.size()).log("Updating batch of widgets");
+        List<Optional<Widget>> results = widgetRepository.updateAll(widgets, WidgetService::applyChanges);
+        invalidate(results);
+        metrics.recordNotFound(countMissing(results));
+        return results;
+    }
 
-        widgetRepository.deleteById(widget.getName());
-        log.info("Widget with name '{}' deleted successfully.", name);
+    /**
+     * Deletes a batch of Widgets in one repository operation.
+     *
+     * @param names The unique names of the Widgets to delete.
+     * @return      For each name, in order, the deleted Widget or empty if it was not found.
+     */
+    public List<Optional<Widget>> deleteWidgets(List<String> names) {
+        log.atDebug().addKeyValue("count", names.size()).log("Deleting batch of widgets");
+        List<Optional<Widget>> results = widgetRepository.deleteAll(names);
+        invalidate(results);
+        metrics.recordNotFound(countMissing(results));
+        return results;
+    }
+
+    /**
+     * Counts the miss and builds the exception reported for a missing Widget.
+     */
+    private EntityNotFoundException notFound(String name) {
+        metrics.recordNotFound(1);
+        return new EntityNotFoundException("Widget with name '" + name + "' not found.");
+    }
+
+    private void invalidate(List<Optional<Widget>> results) {
+        results.forEach(result -> result.ifPresent(widget -> jsonCache.invalidate(widget.getName())));
+    }
+
+    static void checkQuery(int limit) {
+        if (limit < 1 || limit > MAX_QUERY_LIMIT) {
+            throw new InvalidQueryException("limit must be between 1 and " + MAX_QUERY_LIMIT + ".");
+        }
+    }
+
+    static void checkSearch(int maxEdits, int limit) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new InvalidQueryException("maxEdits must be between 0 and " + MAX_EDITS + ".");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new InvalidQueryException("limit must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+        }
+    }
+
+    private static int countMissing(List<Optional<Widget>> results) {
+        return (int) results.stream().filter(Optional::isEmpty).count();
+    }
+
+    /**
+     * Copies the stored Widget with the description and price changes applied.
+     */
+    static Widget applyChanges(Widget existing, Widget changes) {
+        Widget.WidgetBuilder updated = existing.toBuilder();
+        if (changes.getDescription() != null) {
+            updated.description(changes.getDescription());
+        }
+        if (changes.getPrice() != null) {
+            updated.price(changes.getPrice());
+        }
+        return updated.build();
     }
 }
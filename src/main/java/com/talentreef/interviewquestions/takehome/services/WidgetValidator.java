@@ -0,0 +1,234 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import jakarta.validation.Constraint;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Validates Widgets against the Bean Validation constraints declared on {@link Widget}, with
+ * the same messages, without reflection on each call. The annotations are read once, when
+ * the validator is created, into a list of checks on values read through generated getter
+ * functions.
+ * <p>
+ * Only the constraints used by {@link Widget} are supported ({@code @NotNull},
+ * {@code @NotBlank}, {@code @Size} on strings, {@code @DecimalMin} and {@code @DecimalMax} on
+ * numbers), in the default group and with literal messages. Any other constraint fails
+ * creation, so the two validators cannot silently disagree.
+ * <p>
+ * As a Spring {@link Validator} it replaces Bean Validation for {@code @Valid} Widget request
+ * bodies; the resulting field errors carry the constraint's name as their code.
+ */
+@Component
+public class WidgetValidator implements Validator {
+
+    private final List<Check> checks;
+
+    public WidgetValidator() {
+        List<Check> compiled = new ArrayList<>();
+        for (Field field : Widget.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Function<Widget, Object> getter = null;
+            for (Annotation annotation : field.getAnnotations()) {
+                if (!annotation.annotationType().isAnnotationPresent(Constraint.class)) {
+                    continue;
+                }
+                if (getter == null) {
+                    getter = getter(field);
+                }
+                compiled.add(compile(field, getter, annotation));
+            }
+        }
+        this.checks = List.copyOf(compiled);
+    }
+
+    /**
+     * Validates a Widget.
+     *
+     * @param widget The Widget to validate.
+     * @return       The violations as {@code field: message}, sorted, or none if the Widget is valid.
+     */
+    public List<String> validate(Widget widget) {
+        List<String> violations = null;
+        for (Check check : checks) {
+            if (!check.test(widget)) {
+                if (violations == null) {
+                    violations = new ArrayList<>(2);
+                }
+                violations.add(check.field() + ": " + check.message());
+            }
+        }
+        if (violations == null) {
+            return List.of();
+        }
+        violations.sort(null);
+        return violations;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return Widget.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        Widget widget = (Widget) target;
+        for (Check check : checks) {
+            if (!check.test(widget)) {
+                errors.rejectValue(check.field(), check.code(), check.message());
+            }
+        }
+    }
+
+    private static Check compile(Field field, Function<Widget, Object> getter, Annotation annotation) {
+        String name = field.getName();
+        if (annotation instanceof NotNull notNull) {
+            return check(name, getter, notNull.groups(), notNull.message(), "NotNull", value -> value != null);
+        }
+        if (annotation instanceof NotBlank notBlank) {
+            return check(name, getter, notBlank.groups(), notBlank.message(), "NotBlank",
+                    value -> value != null && !value.toString().trim().isEmpty());
+        }
+        if (annotation instanceof Size size && CharSequence.class.isAssignableFrom(field.getType())) {
+            int min = size.min();
+            int max = size.max();
+            return check(name, getter, size.groups(), size.message(), "Size", value -> {
+                if (value == null) {
+                    return true;
+                }
+                int length = ((CharSequence) value).length();
+                return length >= min && length <= max;
+            });
+        }
+        if (annotation instanceof DecimalMin decimalMin && isDecimal(field.getType())) {
+            Bound bound = new Bound(decimalMin.value());
+            boolean inclusive = decimalMin.inclusive();
+            return check(name, getter, decimalMin.groups(), decimalMin.message(), "DecimalMin", value -> {
+                if (value == null) {
+                    return true;
+                }
+                double number = (Double) value;
+                if (Double.isNaN(number)) {
+                    return false;
+                }
+                int comparison = bound.compareTo(number);
+                return comparison < 0 || (inclusive && comparison == 0);
+            });
+        }
+        if (annotation instanceof DecimalMax decimalMax && isDecimal(field.getType())) {
+            Bound bound = new Bound(decimalMax.value());
+            boolean inclusive = decimalMax.inclusive();
+            return check(name, getter, decimalMax.groups(), decimalMax.message(), "DecimalMax", value -> {
+                if (value == null) {
+                    return true;
+                }
+                double number = (Double) value;
+                if (Double.isNaN(number)) {
+                    return false;
+                }
+                int comparison = bound.compareTo(number);
+                return comparison > 0 || (inclusive && comparison == 0);
+            });
+        }
+        throw new IllegalStateException("Unsupported constraint @" + annotation.annotationType().getSimpleName()
+                + " on Widget." + field.getName());
+    }
+
+    private static Check check(String field, Function<Widget, Object> getter, Class<?>[] groups, String message,
+                               String code, Predicate<Object> valid) {
+        if (groups.length > 0 || message.contains("{")) {
+            throw new IllegalStateException("Constraint @" + code + " on Widget." + field
+                    + " must be in the default group and have a literal message");
+        }
+        return new Check(field, getter, valid, message, code);
+    }
+
+    private static boolean isDecimal(Class<?> type) {
+        return type == Double.class || type == double.class;
+    }
+
+    /**
+     * Generates a function calling the field's getter, so reading the field costs a plain call.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Widget, Object> getter(Field field) {
+        String suffix = StringUtils.capitalize(field.getName());
+        try {
+            Method method;
+            try {
+                method = Widget.class.getMethod("get" + suffix);
+            } catch (NoSuchMethodException e) {
+                method = Widget.class.getMethod("is" + suffix);
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            return (Function<Widget, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                            handle, MethodType.methodType(method.getReturnType(), Widget.class))
+                    .getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read Widget." + field.getName(), e);
+        }
+    }
+
+    /**
+     * A constraint on one field, with the message reported when it is not met.
+     */
+    private record Check(String field, Function<Widget, Object> getter, Predicate<Object> valid, String message,
+                         String code) {
+
+        boolean test(Widget widget) {
+            return valid.test(getter.apply(widget));
+        }
+    }
+
+    /**
+     * Decimal bound compared with doubles as Bean Validation does, by decimal value. The
+     * decimal comparison is only needed when the value is the double nearest to the bound,
+     * since otherwise comparing doubles gives the same answer without allocating.
+     */
+    private static final class Bound {
+
+        private final BigDecimal decimal;
+        private final double nearest;
+
+        Bound(String value) {
+            this.decimal = new BigDecimal(value);
+            this.nearest = decimal.doubleValue();
+        }
+
+        /**
+         * @return Negative, zero or positive as the bound is below, equal to or above the number,
+         *         which must not be NaN.
+         */
+        int compareTo(double number) {
+            if (number != nearest) {
+                return number > nearest ? -1 : 1;
+            }
+            return decimal.compareTo(BigDecimal.valueOf(number));
+        }
+    }
+}
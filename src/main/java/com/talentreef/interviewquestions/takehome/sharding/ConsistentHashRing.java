@@ -0,0 +1,93 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Assigns keys to nodes by consistent hashing. Each node is placed at {@code virtualNodes}
+ * points of a 64-bit ring, and a key belongs to the node of the first point at or after the
+ * key's hash, wrapping around. With enough points per node the keys spread evenly, and adding
+ * or removing a node only moves the keys of the points it gains or loses: about
+ * {@code 1/n} of them.
+ * <p>
+ * The hash depends only on the characters of the key, so every instance given the same
+ * nodes computes the same owners.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final String[] owners;
+
+    /**
+     * @param nodes        The nodes, in any order. Duplicates are ignored.
+     * @param virtualNodes The number of points of each node on the ring.
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        Point[] ring = new Point[this.nodes.size() * virtualNodes];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int point = 0; point < virtualNodes; point++) {
+                ring[i++] = new Point(hash(node + "#" + point), node);
+            }
+        }
+        Arrays.sort(ring, Comparator.comparing(Point::hash, Long::compareUnsigned).thenComparing(Point::node));
+        this.points = new long[ring.length];
+        this.owners = new String[ring.length];
+        for (i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash();
+            owners[i] = ring[i].node();
+        }
+    }
+
+    /**
+     * @return The node owning the key.
+     */
+    public String owner(CharSequence key) {
+        long hash = hash(key);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[middle], hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * @return The nodes of the ring.
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-16 characters, spread by the MurmurHash3 finalizer so that
+     * similar keys, such as the points of one node, land far apart.
+     */
+    static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Point(long hash, String node) {
+    }
+}
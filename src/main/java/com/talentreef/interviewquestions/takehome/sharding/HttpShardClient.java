@@ -0,0 +1,80 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ShardClient} over the JDK's HTTP client, keeping connections to the other nodes
+ * open between requests. Streamed bodies are read from the connection as they arrive.
+ */
+public class HttpShardClient implements ShardClient {
+
+    /**
+     * Headers of the connection rather than the request, which the client sets itself.
+     */
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "content-length", "expect", "host",
+            "keep-alive", "transfer-encoding", "upgrade", "te", "trailer");
+
+    private final HttpClient httpClient;
+    private final Duration timeout;
+
+    /**
+     * @param timeout How long to wait for a node's response.
+     */
+    public HttpShardClient(Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletableFuture<Response> send(String node, String method, String pathAndQuery, HttpHeaders headers, byte[] body) {
+        return httpClient.sendAsync(request(node, method, pathAndQuery, headers, body), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> new Response(response.statusCode(), headers(response), response.body()));
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> stream(String node, String pathAndQuery, HttpHeaders headers) {
+        return httpClient.sendAsync(request(node, "GET", pathAndQuery, headers, null), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> new StreamedResponse(response.statusCode(), headers(response), response.body()));
+    }
+
+    private HttpRequest request(String node, String method, String pathAndQuery, HttpHeaders headers, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach((name, values) -> {
+            if (!isHopByHop(name)) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+        return request.build();
+    }
+
+    private static HttpHeaders headers(HttpResponse<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach((name, values) -> {
+            if (!isHopByHop(name)) {
+                headers.addAll(name, List.copyOf(values));
+            }
+        });
+        return headers;
+    }
+
+    static boolean isHopByHop(String name) {
+        return HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT));
+    }
+}
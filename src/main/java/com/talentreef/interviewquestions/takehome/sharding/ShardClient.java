@@ -0,0 +1,51 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests of the widget API to other nodes of a sharded deployment.
+ */
+public interface ShardClient {
+
+    /**
+     * Sends a request to a node.
+     *
+     * @param node          The node's base URL, such as {@code http://localhost:9001}.
+     * @param method        The HTTP method.
+     * @param pathAndQuery  The path and query string of the request.
+     * @param headers       The request headers.
+     * @param body          The request body, or null for none.
+     * @return              The node's response, or an error if it could not be reached.
+     */
+    CompletableFuture<Response> send(String node, String method, String pathAndQuery, HttpHeaders headers, byte[] body);
+
+    /**
+     * Sends a GET to a node, answering once the response headers are received. The body is
+     * then read as it arrives, and must be closed. By default, it is read in full by {@link #send}.
+     *
+     * @param node          The node's base URL, such as {@code http://localhost:9001}.
+     * @param pathAndQuery  The path and query string of the request.
+     * @param headers       The request headers.
+     * @return              The node's response, or an error if it could not be reached.
+     */
+    default CompletableFuture<StreamedResponse> stream(String node, String pathAndQuery, HttpHeaders headers) {
+        return send(node, "GET", pathAndQuery, headers, null).thenApply(response ->
+                new StreamedResponse(response.status(), response.headers(), new ByteArrayInputStream(response.body())));
+    }
+
+    /**
+     * A node's response, with its body read in full.
+     */
+    record Response(int status, HttpHeaders headers, byte[] body) {
+    }
+
+    /**
+     * A node's response, with its body still to be read.
+     */
+    record StreamedResponse(int status, HttpHeaders headers, InputStream body) {
+    }
+}
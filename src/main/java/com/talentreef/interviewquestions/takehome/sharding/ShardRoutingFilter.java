@@ -0,0 +1,856 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.BatchItemResult;
+import com.talentreef.interviewquestions.takehome.models.BatchResult;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetCursor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spreads the widgets over several instances, each storing the names a
+ * {@link ConsistentHashRing} assigns to it, so the catalog can grow with the number of
+ * instances. Any instance accepts any request of the {@code /v1/widgets} API:
+ * <ul>
+ *     <li>Requests on one name, {@code GET}, {@code PUT} and {@code DELETE} on
+ *     {@code /v1/widgets/{name}} and {@code POST} on {@code /v1/widgets}, are handled by the
+ *     instance owning the name, forwarded over HTTP when that is another one. The owner's
+ *     response, ETag included, is returned as is.</li>
+ *     <li>{@code GET /v1/widgets} and {@code GET /v1/widgets/paginated} are sent to every
+ *     instance, and their name-ordered answers are merged. These are answered in JSON. The
+ *     listing's ETag joins the instances' ETags, and the page has none.</li>
+ *     <li>{@code POST}, {@code PUT} and {@code DELETE} on {@code /v1/widgets/batch} are split by
+ *     the instance owning each name. Each instance is sent its items in chunks, and the
+ *     reports are merged back in request order.</li>
+ *     <li>Other requests, such as queries, search and the change feed, only see the widgets of
+ *     the instance that receives them.</li>
+ * </ul>
+ * Forwarded requests carry the {@value #FORWARDED_HEADER} header, and are handled by the
+ * instance receiving them without routing them again.
+ */
+@Slf4j
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    static final String FORWARDED_HEADER = "X-Widgets-Shard-Forwarded";
+    private static final String WIDGETS_PATH = "/v1/widgets";
+    private static final Set<String> NODE_LOCAL_PATHS = Set.of("paginated", "query", "search", "changes", "batch");
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int BATCH_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_MAX_BATCH_ITEMS = 10_000;
+    private static final int SKIP_PAGE_SIZE = 1000;
+    private static final Set<String> BATCH_METHODS = Set.of("POST", "PUT", "DELETE");
+    private static final Comparator<Widget> BY_NAME = Comparator.comparing(Widget::getName);
+    private static final Pattern SHARD_ETAG = Pattern.compile("(?:W/)?\"([0-9A-Za-z-]+)\"");
+
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final ShardClient client;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchItems;
+
+    /**
+     * @param ring         The instances and the names they own.
+     * @param self         This instance's base URL, one of the ring's nodes.
+     * @param client       Sends requests to the other instances.
+     * @param objectMapper Reads and writes the widgets of merged responses.
+     */
+    public ShardRoutingFilter(ConsistentHashRing ring, String self, ShardClient client, ObjectMapper objectMapper) {
+        this(ring, self, client, objectMapper, DEFAULT_MAX_BATCH_ITEMS);
+    }
+
+    /**
+     * @param ring          The instances and the names they own.
+     * @param self          This instance's base URL, one of the ring's nodes.
+     * @param client        Sends requests to the other instances.
+     * @param objectMapper  Reads and writes the widgets of merged responses.
+     * @param maxBatchItems How many items of a batch are read, like a single instance's cap.
+     */
+    public ShardRoutingFilter(ConsistentHashRing ring, String self, ShardClient client, ObjectMapper objectMapper,
+                              int maxBatchItems) {
+        Assert.notNull(ring, "ring must not be null");
+        Assert.isTrue(ring.getNodes().contains(self), "self must be one of the ring's nodes");
+        Assert.notNull(client, "client must not be null");
+        Assert.notNull(objectMapper, "objectMapper must not be null");
+        this.ring = ring;
+        this.self = self;
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.maxBatchItems = maxBatchItems;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !(path.equals(WIDGETS_PATH) || path.startsWith(WIDGETS_PATH + "/"))
+                || request.getHeader(FORWARDED_HEADER) != null
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        String method = request.getMethod();
+        if (path.equals(WIDGETS_PATH)) {
+            if ("GET".equals(method)) {
+                gatherAll(request, response);
+            } else if ("POST".equals(method)) {
+                routeCreate(request, response, chain);
+            } else {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+        String segment = path.substring(WIDGETS_PATH.length() + 1);
+        if (segment.equals("paginated") && "GET".equals(method)) {
+            gatherPage(request, response);
+        } else if (segment.equals("batch") && BATCH_METHODS.contains(method)) {
+            routeBatch(request, response);
+        } else if (!segment.isEmpty() && segment.indexOf('/') < 0 && !NODE_LOCAL_PATHS.contains(segment)) {
+            route(UriUtils.decode(segment, StandardCharsets.UTF_8), request, response, chain, null);
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Creates the widget on the instance owning its name. Bodies without a readable name are
+     * left to this instance, to be rejected as usual.
+     */
+    private void routeCreate(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] body = readBody(request, response);
+        if (body == null) {
+            return;
+        }
+        String name = null;
+        try {
+            JsonNode widget = objectMapper.readTree(body);
+            JsonNode nameNode = widget == null ? null : widget.get("name");
+            name = nameNode != null && nameNode.isTextual() ? nameNode.textValue() : null;
+        } catch (JsonProcessingException e) {
+            // left to this instance, which rejects the body
+        }
+        route(name, new CachedBodyRequest(request, body), response, chain, body);
+    }
+
+    private void route(String name, HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                       byte[] body) throws ServletException, IOException {
+        String owner = name == null ? self : ring.owner(name);
+        if (owner.equals(self)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (body == null && !"GET".equals(request.getMethod()) && !"DELETE".equals(request.getMethod())) {
+            body = readBody(request, response);
+            if (body == null) {
+                return;
+            }
+        }
+        ShardClient.Response forwarded;
+        try {
+            forwarded = await(client.send(owner, request.getMethod(), pathAndQuery(request), forwardedHeaders(request), body));
+        } catch (IOException e) {
+            unavailable(response, owner, e);
+            return;
+        }
+        copy(forwarded, response);
+    }
+
+    /**
+     * Sends each item of a batch to the instance owning its name, reading the body one item at
+     * a time and sending an instance's items once {@value #BATCH_CHUNK_SIZE} are waiting. Items
+     * without a readable name go to this instance, which rejects them as usual. When the body
+     * cannot be read to the end, or has more than {@code maxBatchItems} items, the items
+     * before the problem are still sent, like a batch handled by one instance. The instances' reports are read here, so they are asked for in
+     * plain JSON whatever encoding the client accepts.
+     */
+    private void routeBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HttpHeaders headers = forwardedHeaders(request);
+        headers.remove(HttpHeaders.ACCEPT_ENCODING);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        Map<String, BatchPart> parts = new HashMap<>();
+        List<BatchItemResult> items = new ArrayList<>();
+        String error = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Request body ended before the closing bracket.");
+                }
+                if (items.size() == maxBatchItems) {
+                    throw new IllegalArgumentException("Request body has more than " + maxBatchItems
+                            + " items. Only the first " + maxBatchItems + " were read.");
+                }
+                JsonNode item = parser.readValueAsTree();
+                String name = batchItemName(item);
+                String owner = name != null ? ring.owner(name) : self;
+                BatchPart part = parts.computeIfAbsent(owner, BatchPart::new);
+                part.add(item, items.size());
+                items.add(null);
+                if (part.items.size() == BATCH_CHUNK_SIZE) {
+                    part.send(request.getMethod(), headers).join();
+                    part.report(items);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            error = e.getOriginalMessage();
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        List<CompletableFuture<ShardClient.Response>> requests = new ArrayList<>(parts.size());
+        for (BatchPart part : parts.values()) {
+            requests.add(part.send(request.getMethod(), headers));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+        for (BatchPart part : parts.values()) {
+            part.report(items);
+        }
+        int succeeded = (int) items.stream().filter(item -> item.getErrors() == null).count();
+        response.setStatus(error != null ? HttpStatus.BAD_REQUEST.value() : HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new BatchResult(succeeded, items.size() - succeeded, items, error));
+    }
+
+    /**
+     * Lists the widgets of every instance, merged in name order as they are read from the
+     * instances' response bodies, so no instance's list is held in memory. The ETag joins the
+     * instances' ETags, so an {@code If-None-Match} is split back into the tag each instance
+     * gave, and answered with 304 Not Modified when none of them changed. Versions are not
+     * listed, since each instance numbers its own changes. An instance failing after the
+     * response is committed aborts it, so the client does not take a partial array as whole.
+     */
+    private void gatherAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.parseBoolean(request.getParameter("versions"))) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write("{\"error\":\"Widget versions are not listed by a sharded deployment.\"}"
+                    .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        List<ShardClient.StreamedResponse> answers = gather(WIDGETS_PATH,
+                splitTag(request.getHeader(HttpHeaders.IF_NONE_MATCH)), response);
+        if (answers == null) {
+            return;
+        }
+        List<Shard> shards = new ArrayList<>(answers.size());
+        try {
+            String etag = joinTags(answers);
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            }
+            if (answers.get(0).status() == HttpStatus.NOT_MODIFIED.value()) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+            PriorityQueue<Shard> merge = new PriorityQueue<>(Comparator.comparing(Shard::current, BY_NAME));
+            for (int i = 0; i < answers.size(); i++) {
+                Shard shard = new Shard(ring.getNodes().get(i), objectMapper.createParser(answers.get(i).body()));
+                shards.add(shard);
+                if (shard.advance()) {
+                    merge.add(shard);
+                }
+            }
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            // Not closed on failure, which would end the array.
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+            generator.writeStartArray();
+            while (!merge.isEmpty()) {
+                Shard shard = merge.poll();
+                generator.writeObject(shard.current());
+                if (shard.advance()) {
+                    merge.add(shard);
+                }
+            }
+            generator.writeEndArray();
+            generator.close();
+        } catch (ShardException e) {
+            if (response.isCommitted()) {
+                log.warn("Aborting a merged widget listing, shard {} failed: {}", e.node, e.getMessage());
+                throw e;
+            }
+            response.reset();
+            unavailable(response, e.node, e);
+        } finally {
+            for (ShardClient.StreamedResponse answer : answers) {
+                close(answer.body());
+            }
+        }
+    }
+
+    /**
+     * Joins the instances' ETags into the ETag of the merged listing.
+     *
+     * @return The weak ETag, or null if an instance gave none or one that cannot be joined.
+     */
+    private static String joinTags(List<ShardClient.StreamedResponse> answers) {
+        StringBuilder joined = new StringBuilder("W/\"");
+        for (ShardClient.StreamedResponse answer : answers) {
+            String etag = answer.headers().getETag();
+            Matcher tag = etag == null ? null : SHARD_ETAG.matcher(etag);
+            if (tag == null || !tag.matches()) {
+                return null;
+            }
+            joined.append(joined.length() > 3 ? "." : "").append(tag.group(1));
+        }
+        return joined.append('"').toString();
+    }
+
+    /**
+     * Splits an ETag made by {@link #joinTags} into the ETag of each instance.
+     *
+     * @return The instances' ETags, in the ring's order of nodes, or null if the header is not one such ETag.
+     */
+    private List<String> splitTag(String ifNoneMatch) {
+        if (ifNoneMatch == null || !ifNoneMatch.startsWith("W/\"") || !ifNoneMatch.endsWith("\"") || ifNoneMatch.length() < 4) {
+            return null;
+        }
+        String[] tags = ifNoneMatch.substring(3, ifNoneMatch.length() - 1).split("\\.", -1);
+        if (tags.length != ring.getNodes().size()) {
+            return null;
+        }
+        List<String> etags = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            etags.add("W/\"" + tag + "\"");
+        }
+        return etags;
+    }
+
+    /**
+     * Pages through the widgets of every instance, merging their name-ordered pages. Each
+     * instance is read from the cursor, or from its start for an offset page. The widgets
+     * before an offset page are skipped by following each instance's cursors, in pages of
+     * at least {@value #SKIP_PAGE_SIZE}, rather than asking for all of them at once.
+     */
+    private void gatherPage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int pageSize = Math.max(intParameter(request, "pageSize", 4), 0);
+        String after = request.getParameter("after");
+        long skip = after != null ? 0 : (long) Math.max(intParameter(request, "page", 1) - 1, 0) * pageSize;
+        int fetchSize = skip == 0 ? pageSize : Math.max(pageSize, SKIP_PAGE_SIZE);
+        List<ShardPages> shards = new ArrayList<>(ring.getNodes().size());
+        for (String node : ring.getNodes()) {
+            shards.add(new ShardPages(node, after, fetchSize));
+        }
+        List<Widget> pageWidgets = new ArrayList<>(Math.min(pageSize, 1024));
+        long total = 0;
+        boolean more;
+        try {
+            PriorityQueue<ShardPages> merge = new PriorityQueue<>(Comparator.comparing(ShardPages::current, BY_NAME));
+            for (ShardPages shard : shards) {
+                if (shard.advance()) {
+                    merge.add(shard);
+                }
+                total += shard.total;
+            }
+            for (long position = 0; position < skip + pageSize && !merge.isEmpty(); position++) {
+                ShardPages shard = merge.poll();
+                if (position >= skip) {
+                    pageWidgets.add(shard.current());
+                }
+                if (shard.advance()) {
+                    merge.add(shard);
+                }
+            }
+            more = !merge.isEmpty();
+        } catch (ShardException e) {
+            shards.forEach(ShardPages::close);
+            if (e.answer == null) {
+                unavailable(response, e.node, e);
+            } else {
+                copy(e.answer, response);
+            }
+            return;
+        }
+        String nextCursor = more && !pageWidgets.isEmpty()
+                ? WidgetCursor.encode(pageWidgets.get(pageWidgets.size() - 1).getName())
+                : null;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new PaginatedResult(pageWidgets, (int) Math.min(total, Integer.MAX_VALUE), nextCursor));
+    }
+
+    /**
+     * Sends a GET to every instance at once and waits for their response headers. With
+     * {@code etags}, each instance is asked whether its answer changed since its ETag, and the
+     * instances that did not change are asked again unless none did.
+     *
+     * @param etags The ETag of each instance's last answer, in the ring's order of nodes, or null.
+     * @return      The answers, in the ring's order of nodes, all 200 OK with their bodies still
+     *              to be read or all 304 Not Modified, or null if the response was already
+     *              written: an instance's error answer, or 502 Bad Gateway when one was unreachable.
+     */
+    private List<ShardClient.StreamedResponse> gather(String pathAndQuery, List<String> etags, HttpServletResponse response)
+            throws IOException {
+        List<String> nodes = ring.getNodes();
+        List<CompletableFuture<ShardClient.StreamedResponse>> requests = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            HttpHeaders headers = gatherHeaders();
+            if (etags != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, etags.get(i));
+            }
+            requests.add(client.stream(nodes.get(i), pathAndQuery, headers));
+        }
+        List<ShardClient.StreamedResponse> answers = new ArrayList<>(requests.size());
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                answers.add(await(nodes.get(i), requests.get(i)));
+            }
+            if (answers.stream().anyMatch(answer -> answer.status() == HttpStatus.OK.value())) {
+                for (int i = 0; i < nodes.size(); i++) {
+                    if (answers.get(i).status() != HttpStatus.OK.value()) {
+                        close(answers.get(i).body());
+                        requests.set(i, client.stream(nodes.get(i), pathAndQuery, gatherHeaders()));
+                    }
+                }
+                for (int i = 0; i < nodes.size(); i++) {
+                    if (answers.get(i).status() != HttpStatus.OK.value()) {
+                        answers.set(i, await(nodes.get(i), requests.get(i)));
+                    }
+                }
+            }
+        } catch (ShardException e) {
+            for (CompletableFuture<ShardClient.StreamedResponse> request : requests) {
+                request.thenAccept(answer -> close(answer.body()));
+            }
+            if (e.answer == null) {
+                unavailable(response, e.node, e);
+            } else {
+                copy(e.answer, response);
+            }
+            return null;
+        }
+        return answers;
+    }
+
+    /**
+     * Waits for an instance's answer to a GET sent by {@link #gather}.
+     *
+     * @throws ShardException if the instance was unreachable or did not answer 200 OK or, to a
+     *                        conditional request, 304 Not Modified.
+     */
+    private static ShardClient.StreamedResponse await(String node, CompletableFuture<ShardClient.StreamedResponse> request)
+            throws ShardException {
+        ShardClient.StreamedResponse answer;
+        try {
+            answer = request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShardException(node, null, new IOException("Interrupted while waiting for a shard", e));
+        } catch (ExecutionException e) {
+            throw new ShardException(node, null, e.getCause());
+        }
+        if (answer.status() != HttpStatus.OK.value() && answer.status() != HttpStatus.NOT_MODIFIED.value()) {
+            byte[] body;
+            try (InputStream in = answer.body()) {
+                body = in.readAllBytes();
+            } catch (IOException e) {
+                throw new ShardException(node, null, e);
+            }
+            throw new ShardException(node, new ShardClient.Response(answer.status(), answer.headers(), body), null);
+        }
+        return answer;
+    }
+
+    private HttpHeaders gatherHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.set(FORWARDED_HEADER, self);
+        return headers;
+    }
+
+    private static void close(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // the connection is dropped anyway
+        }
+    }
+
+    private static ShardClient.Response await(CompletableFuture<ShardClient.Response> request) throws IOException {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private HttpHeaders forwardedHeaders(HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            headers.addAll(name, Collections.list(request.getHeaders(name)));
+        }
+        headers.set(FORWARDED_HEADER, self);
+        return headers;
+    }
+
+    private static void copy(ShardClient.Response answer, HttpServletResponse response) throws IOException {
+        response.setStatus(answer.status());
+        answer.headers().forEach((name, values) -> {
+            if (!HttpShardClient.isHopByHop(name)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.setContentLength(answer.body().length);
+        OutputStream out = response.getOutputStream();
+        out.write(answer.body());
+    }
+
+    /**
+     * Reads the body of a request on one widget, which is held in memory to be forwarded.
+     *
+     * @return The body, or null if it is over {@value #MAX_BODY_BYTES} bytes, once
+     *         413 Payload Too Large was answered.
+     */
+    private static byte[] readBody(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = request.getContentLengthLong() > MAX_BODY_BYTES
+                ? null
+                : request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body != null && body.length <= MAX_BODY_BYTES) {
+            return body;
+        }
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"error\":\"The request body is over " + MAX_BODY_BYTES + " bytes.\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return null;
+    }
+
+    private static void unavailable(HttpServletResponse response, String node, IOException e) throws IOException {
+        log.warn("Widget shard {} is unreachable: {}", node, e.getMessage());
+        response.setStatus(HttpStatus.BAD_GATEWAY.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write("{\"error\":\"A widget shard is unreachable, retry later.\"}"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+    }
+
+    /**
+     * @return The name of a batch item: a widget's name, or the item itself when deleting.
+     */
+    private static String batchItemName(JsonNode item) {
+        JsonNode name = item.isObject() ? item.get("name") : item;
+        return name != null && name.isTextual() ? name.textValue() : null;
+    }
+
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * One instance's widgets from a cursor, read a page at a time by following its cursors.
+     * The first page is requested at once, so every instance is asked in parallel.
+     */
+    private final class ShardPages {
+
+        private final String node;
+        private final int pageSize;
+        private String cursor;
+        private CompletableFuture<ShardClient.StreamedResponse> pending;
+        private boolean first = true;
+        private long total;
+        private Iterator<JsonNode> page = Collections.emptyIterator();
+        private Widget current;
+
+        ShardPages(String node, String cursor, int pageSize) {
+            this.node = node;
+            this.cursor = cursor;
+            this.pageSize = pageSize;
+            this.pending = request();
+        }
+
+        Widget current() {
+            return current;
+        }
+
+        boolean advance() throws IOException {
+            if (!page.hasNext() && (first || cursor != null)) {
+                fetch();
+            }
+            if (!page.hasNext()) {
+                return false;
+            }
+            current = objectMapper.treeToValue(page.next(), Widget.class);
+            return true;
+        }
+
+        /**
+         * Drops the page requested but not read yet, if any.
+         */
+        void close() {
+            if (pending != null) {
+                pending.thenAccept(answer -> ShardRoutingFilter.close(answer.body()));
+            }
+        }
+
+        private CompletableFuture<ShardClient.StreamedResponse> request() {
+            String query = cursor == null
+                    ? "?page=1&pageSize=" + pageSize
+                    : "?after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) + "&pageSize=" + pageSize;
+            return client.stream(node, WIDGETS_PATH + "/paginated" + query, gatherHeaders());
+        }
+
+        private void fetch() throws IOException {
+            CompletableFuture<ShardClient.StreamedResponse> request = pending != null ? pending : request();
+            pending = null;
+            JsonNode answer;
+            try (InputStream body = await(node, request).body()) {
+                answer = objectMapper.readTree(body);
+            }
+            if (first) {
+                total = answer.path("total").asLong();
+                first = false;
+            }
+            cursor = answer.path("nextCursor").textValue();
+            page = answer.path("widgets").elements();
+        }
+    }
+
+    /**
+     * An instance that could not be reached, or answered with an error to pass on.
+     */
+    private static final class ShardException extends IOException {
+
+        private final String node;
+        private final transient ShardClient.Response answer;
+
+        ShardException(String node, ShardClient.Response answer, Throwable cause) {
+            super(cause == null ? "Widget shard " + node + " answered " + answer.status() : cause.getMessage(), cause);
+            this.node = node;
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * One instance's widget list, read one widget at a time.
+     */
+    private final class Shard {
+
+        private final String node;
+        private final JsonParser parser;
+        private Widget current;
+
+        Shard(String node, JsonParser parser) throws ShardException {
+            this.node = node;
+            this.parser = parser;
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected a JSON array of widgets");
+                }
+            } catch (IOException e) {
+                throw new ShardException(node, null, e);
+            }
+        }
+
+        Widget current() {
+            return current;
+        }
+
+        boolean advance() throws ShardException {
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.close();
+                    return false;
+                }
+                current = objectMapper.readValue(parser, Widget.class);
+                return true;
+            } catch (IOException e) {
+                throw new ShardException(node, null, e);
+            }
+        }
+    }
+
+    /**
+     * The items of a batch owned by one instance and not sent yet, with their positions in
+     * the request.
+     */
+    private final class BatchPart {
+
+        private final String node;
+        private final List<JsonNode> items = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private CompletableFuture<ShardClient.Response> sent;
+
+        BatchPart(String node) {
+            this.node = node;
+        }
+
+        void add(JsonNode item, int position) {
+            items.add(item);
+            positions.add(position);
+        }
+
+        /**
+         * Sends the waiting items, if any. Never completes exceptionally: the failure is kept
+         * for {@link #report}.
+         */
+        CompletableFuture<ShardClient.Response> send(String method, HttpHeaders headers) {
+            if (items.isEmpty()) {
+                sent = CompletableFuture.completedFuture(null);
+            } else {
+                try {
+                    sent = client.send(node, method, WIDGETS_PATH + "/batch", headers, objectMapper.writeValueAsBytes(items));
+                } catch (JsonProcessingException e) {
+                    sent = CompletableFuture.failedFuture(e);
+                }
+            }
+            return sent.exceptionally(failure -> null);
+        }
+
+        /**
+         * Fills in the report entries of the items sent last, from the instance's own report.
+         * Items the instance did not report on, because it was unreachable or refused the
+         * request, are reported with a 502 status.
+         */
+        void report(List<BatchItemResult> report) {
+            List<BatchItemResult> results = results();
+            for (int i = 0; i < positions.size(); i++) {
+                report.set(positions.get(i), i < results.size() ? results.get(i) : new BatchItemResult(batchItemName(items.get(i)),
+                        HttpStatus.BAD_GATEWAY.value(), List.of("The widget shard owning this name did not apply it, retry later.")));
+            }
+            items.clear();
+            positions.clear();
+        }
+
+        private List<BatchItemResult> results() {
+            ShardClient.Response answer;
+            try {
+                answer = sent.join();
+            } catch (RuntimeException e) {
+                log.warn("Widget shard {} is unreachable: {}", node, e.getMessage());
+                return List.of();
+            }
+            if (answer == null) {
+                return List.of();
+            }
+            if (answer.status() != HttpStatus.OK.value() && answer.status() != HttpStatus.BAD_REQUEST.value()) {
+                log.warn("Widget shard {} refused a batch with status {}", node, answer.status());
+                return List.of();
+            }
+            List<BatchItemResult> results = new ArrayList<>(items.size());
+            try {
+                for (JsonNode item : objectMapper.readTree(answer.body()).path("items")) {
+                    List<String> errors = null;
+                    if (item.path("errors").isArray()) {
+                        errors = new ArrayList<>();
+                        for (JsonNode error : item.get("errors")) {
+                            errors.add(error.asText());
+                        }
+                    }
+                    results.add(new BatchItemResult(item.path("name").textValue(), item.path("status").asInt(), errors));
+                }
+            } catch (IOException e) {
+                log.warn("Widget shard {} answered a batch with status {} and an unreadable report", node, answer.status());
+                return List.of();
+            }
+            return results;
+        }
+    }
+
+    /**
+     * A request whose body was already read, replayed from memory.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.CustomExceptionHandler;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.services.ReactiveWidgetService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveWidgetControllerTests {
+
+  final private ObjectMapper objectMapper = new ObjectMapper();
+
+  private WebTestClient webTestClient;
+
+  @Mock
+  private ReactiveWidgetService widgetService;
+
+  @Before
+  public void init() {
+    webTestClient = WebTestClient.bindToController(new ReactiveWidgetController(widgetService))
+        .controllerAdvice(new CustomExceptionHandler())
+        .build();
+  }
+
+  /*
+   * Test for listing widgets
+   */
+  @Test
+  public void when_getAllWidgets_expect_allWidgets() throws Exception {
+    Widget widget1 = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    Widget widget2 = Widget.builder().name("Widget2").description("Test Description").price(30.0).build();
+    when(widgetService.streamAllWidgets()).thenReturn(Flux.just(widget1, widget2));
+
+    List<Widget> result = webTestClient.get().uri("/v1/widgets")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBodyList(Widget.class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(result).containsExactly(widget1, widget2);
+  }
+
+  /*
+   * Test for listing widgets as newline-delimited JSON
+   */
+  @Test
+  public void when_getAllWidgets_acceptNdjson_expect_oneWidgetPerLine() throws Exception {
+    Widget widget1 = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    Widget widget2 = Widget.builder().name("Widget2").description("Test Description").price(30.0).build();
+    when(widgetService.streamAllWidgets()).thenReturn(Flux.just(widget1, widget2));
+
+    String body = webTestClient.get().uri("/v1/widgets").accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(2);
+    assertThat(objectMapper.readValue(lines[0], Widget.class)).isEqualTo(widget1);
+    assertThat(objectMapper.readValue(lines[1], Widget.class)).isEqualTo(widget2);
+  }
+
+  /*
+   * Test for paginating widgets with a cursor
+   */
+  @Test
+  public void when_getPaginatedWidgets_withCursor_expect_pageAfterCursor() throws Exception {
+    Widget widget = Widget.builder().name("Widget2").description("Test Description").price(20.0).build();
+    when(widgetService.getWidgetsAfter("cursor", 1)).thenReturn(Mono.just(new PaginatedResult(List.of(widget), 3, "next")));
+
+    webTestClient.get().uri("/v1/widgets/paginated?after=cursor&pageSize=1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.widgets[0].name").isEqualTo("Widget2")
+        .jsonPath("$.total").isEqualTo(3)
+        .jsonPath("$.nextCursor").isEqualTo("next");
+  }
+
+  /*
+   * Test for streaming a page as newline-delimited JSON with the paging details in headers
+   */
+  @Test
+  public void when_getPaginatedWidgets_acceptNdjson_expect_pageStreamedWithHeaders() throws Exception {
+    Widget widget = Widget.builder().name("Widget2").description("Test Description").price(20.0).build();
+    when(widgetService.getWidgetsAfter("cursor", 1)).thenReturn(Mono.just(new PaginatedResult(List.of(widget), 3, "next")));
+
+    String body = webTestClient.get().uri("/v1/widgets/paginated?after=cursor&pageSize=1")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(ReactiveWidgetController.TOTAL_COUNT, "3")
+        .expectHeader().valueEquals(ReactiveWidgetController.NEXT_CURSOR, "next")
+        .expectBody(String.class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(objectMapper.readValue(body.trim(), Widget.class)).isEqualTo(widget);
+  }
+
+  /*
+   * Test for creating widgets
+   */
+  @Test
+  public void when_createWidget_expect_createdWidget() throws Exception {
+    Widget widget = Widget.builder().name("New Widget").description("Description").price(10.0).build();
+    when(widgetService.createWidget(any(Widget.class))).thenReturn(Mono.just(widget));
+
+    Widget createdWidget = webTestClient.post().uri("/v1/widgets")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(widget)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody(Widget.class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(createdWidget).isEqualTo(widget);
+  }
+
+  /*
+   * Test for rejecting an invalid widget with the same field errors as the servlet stack
+   */
+  @Test
+  public void when_createWidget_invalid_expect_fieldErrors() throws Exception {
+    Widget widget = Widget.builder().name("W").description("Description").price(10.0).build();
+
+    Map<String, String> errors = webTestClient.post().uri("/v1/widgets")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(widget)
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody(new ParameterizedTypeReference<Map<String, String>>() {
+        })
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(errors).containsEntry("name", "Name must be between 3 and 100 characters.");
+  }
+
+  /*
+   * Test for getting a missing widget
+   */
+  @Test
+  public void when_getWidgetByName_notFound_expect_notFound() throws Exception {
+    when(widgetService.getWidgetByName("Missing"))
+        .thenReturn(Mono.error(new EntityNotFoundException("Widget with name 'Missing' not found.")));
+
+    webTestClient.get().uri("/v1/widgets/Missing")
+        .exchange()
+        .expectStatus().isNotFound()
+        .expectBody(String.class).isEqualTo("Widget with name 'Missing' not found.");
+  }
+
+  /*
+   * Test for updating widget
+   */
+  @Test
+  public void when_updateWidget_expect_updatedWidget() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Updated Description").price(15.0).build();
+    when(widgetService.updateWidget(eq("Widget1"), any(Widget.class))).thenReturn(Mono.just(widget));
+
+    Widget updatedWidget = webTestClient.put().uri("/v1/widgets/Widget1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(widget)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Widget.class)
+        .returnResult()
+        .getResponseBody();
+
+    assertThat(updatedWidget.getDescription()).isEqualTo("Updated Description");
+    assertThat(updatedWidget.getPrice()).isEqualTo(15.0);
+  }
+
+  /*
+   * Test for deleting widget
+   */
+  @Test
+  public void when_deleteWidget_expect_success() throws Exception {
+    when(widgetService.deleteWidget("Widget1")).thenReturn(Mono.empty());
+
+    webTestClient.delete().uri("/v1/widgets/Widget1")
+        .exchange()
+        .expectStatus().isNoContent();
+  }
+}
@@ -0,0 +1,34 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ValidationErrorResponseTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  // Test for invalid bodies being answered with the field error map whichever controller advice applies
+  @Test
+  public void when_createWidget_invalidBody_expect_fieldErrorMap() throws Exception {
+    mockMvc.perform(post("/v1/widgets")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\":\"ab\",\"description\":\"Test Description\"}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.name").value("Name must be between 3 and 100 characters."))
+        .andExpect(jsonPath("$.price").value("Price is required."));
+  }
+}
@@ -0,0 +1,81 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.BatchItemResult;
+import com.talentreef.interviewquestions.takehome.models.BatchResult;
+import com.talentreef.interviewquestions.takehome.services.WidgetBatchService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WidgetBatchControllerTests {
+
+  final private ObjectMapper objectMapper = new ObjectMapper();
+
+  private MockMvc mockMvc;
+
+  @Mock
+  private WidgetBatchService widgetBatchService;
+
+  @InjectMocks
+  private WidgetBatchController widgetBatchController;
+
+  @Before
+  public void init() {
+    mockMvc = MockMvcBuilders.standaloneSetup(widgetBatchController).build();
+  }
+
+  /*
+   * Test for creating a batch of widgets
+   */
+  @Test
+  public void when_createWidgets_expect_report() throws Exception {
+    BatchResult report = new BatchResult(1, 0, List.of(new BatchItemResult("Widget1", 201, null)), null);
+    when(widgetBatchService.createWidgets(any(InputStream.class))).thenReturn(report);
+
+    MvcResult result = mockMvc.perform(post("/v1/widgets/batch")
+        .contentType("application/json")
+        .content("[{\"name\": \"Widget1\", \"description\": \"Description\", \"price\": 10.0}]"))
+        .andExpect(status().isOk())
+        .andDo(print())
+        .andReturn();
+
+    JsonNode parsedResult = objectMapper.readTree(result.getResponse().getContentAsString());
+    assertThat(parsedResult.get("succeeded").asInt()).isEqualTo(1);
+    assertThat(parsedResult.get("items").get(0).get("status").asInt()).isEqualTo(201);
+  }
+
+  /*
+   * Test for a batch whose body could not be read to the end
+   */
+  @Test
+  public void when_createWidgets_malformedBody_expect_badRequest() throws Exception {
+    BatchResult report = new BatchResult(0, 0, List.of(), "Request body must be a JSON array.");
+    when(widgetBatchService.createWidgets(any(InputStream.class))).thenReturn(report);
+
+    mockMvc.perform(post("/v1/widgets/batch")
+        .contentType("application/json")
+        .content("{}"))
+        .andExpect(status().isBadRequest())
+        .andDo(print());
+  }
+}
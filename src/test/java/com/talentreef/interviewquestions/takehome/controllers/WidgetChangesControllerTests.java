@@ -0,0 +1,146 @@
+package com.talentreef.interviewquestions.takehome.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.CustomExceptionHandler;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WidgetChangesControllerTests {
+
+  private MockMvc mockMvc;
+
+  @Mock
+  private WidgetService widgetService;
+
+  @Before
+  public void init() {
+    mockMvc = MockMvcBuilders.standaloneSetup(new WidgetChangesController(widgetService, new ObjectMapper(), Runnable::run))
+        .setControllerAdvice(new CustomExceptionHandler())
+        .build();
+  }
+
+  // Test for long-polling when changes are already available
+  @Test
+  public void when_pollChanges_withChanges_expect_changesAndNext() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    WidgetChange change = new WidgetChange(8, WidgetChange.Type.CREATED, "Widget1", widget, "1-1");
+    when(widgetService.getChanges(7, 100)).thenReturn(new ChangesResult(List.of(change), 8));
+
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets/changes").param("since", "7")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.next").value(8))
+        .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+        .andExpect(jsonPath("$.changes[0].widget.price").value(20.0));
+
+    verify(widgetService, never()).onChanges(anyLong(), any(Runnable.class));
+  }
+
+  // Test for long-polling waiting for the next change without holding a thread
+  @Test
+  public void when_pollChanges_withoutChanges_expect_waitThenChanges() throws Exception {
+    WidgetChange change = new WidgetChange(8, WidgetChange.Type.DELETED, "Widget1", null, null);
+    when(widgetService.getChanges(7, 10))
+        .thenReturn(new ChangesResult(List.of(), 7))
+        .thenReturn(new ChangesResult(List.of(change), 8));
+    ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+    when(widgetService.onChanges(eq(7L), listener.capture())).thenReturn(mock(Runnable.class));
+
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets/changes").param("since", "7")
+            .param("limit", "10").param("waitSeconds", "5").accept(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    assertThat(asyncResult.getResponse().getContentAsString()).isEmpty();
+    listener.getValue().run();
+    mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.next").value(8))
+        .andExpect(jsonPath("$.changes[0].type").value("DELETED"));
+  }
+
+  // Test for resuming from changes that are no longer retained
+  @Test
+  public void when_pollChanges_expired_expect_gone() throws Exception {
+    when(widgetService.getChanges(3, 100)).thenThrow(new ChangesExpiredException("Changes after 3 are no longer available."));
+
+    mockMvc.perform(get("/v1/widgets/changes").param("since", "3").accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isGone());
+  }
+
+  // Test for rejecting waits that are too long
+  @Test
+  public void when_pollChanges_waitTooLong_expect_badRequest() throws Exception {
+    mockMvc.perform(get("/v1/widgets/changes").param("since", "3").param("waitSeconds", "61")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  // Test for streaming changes as Server-Sent Events, resuming from Last-Event-ID
+  @Test
+  public void when_streamChanges_expect_eventsAfterLastEventId() throws Exception {
+    WidgetChange change = new WidgetChange(8, WidgetChange.Type.DELETED, "Widget1", null, null);
+    when(widgetService.getChanges(7, 1)).thenReturn(new ChangesResult(List.of(change), 8));
+    when(widgetService.getChanges(7, 500)).thenReturn(new ChangesResult(List.of(change), 8));
+    when(widgetService.onChanges(eq(7L), any(Runnable.class))).thenAnswer(invocation -> {
+      invocation.getArgument(1, Runnable.class).run();
+      return mock(Runnable.class);
+    });
+    when(widgetService.onChanges(eq(8L), any(Runnable.class))).thenReturn(mock(Runnable.class));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/changes").param("since", "2")
+            .header(WidgetChangesController.LAST_EVENT_ID_HEADER, "7").accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(request().asyncStarted())
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+        .andReturn();
+
+    assertThat(result.getResponse().getContentAsString())
+        .startsWith("id:8\nevent:deleted\ndata:{\"seq\":8,\"type\":\"DELETED\",\"name\":\"Widget1\"")
+        .endsWith("}\n\n");
+    verify(widgetService).onChanges(eq(8L), any(Runnable.class));
+  }
+
+  // Test for refusing to stream from changes that are no longer retained
+  @Test
+  public void when_streamChanges_expired_expect_gone() throws Exception {
+    when(widgetService.getChanges(3, 1)).thenThrow(new ChangesExpiredException("Changes after 3 are no longer available."));
+
+    mockMvc.perform(get("/v1/widgets/changes").param("since", "3").accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(status().isGone());
+  }
+}
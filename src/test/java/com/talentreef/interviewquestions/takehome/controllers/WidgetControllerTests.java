@@ -2,31 +2,51 @@ package com.talentreef.interviewquestions.takehome.controllers;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.talentreef.interviewquestions.takehome.exceptions.CustomExceptionHandler;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
 import com.talentreef.interviewquestions.takehome.services.WidgetService;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -40,12 +60,14 @@ public class WidgetControllerTests {
   @Mock
   private WidgetService widgetService;
 
-  @InjectMocks
   private WidgetController widgetController;
 
   @Before
   public void init() {
-    mockMvc = MockMvcBuilders.standaloneSetup(widgetController).build();
+    widgetController = new WidgetController(widgetService, objectMapper);
+    mockMvc = MockMvcBuilders.standaloneSetup(widgetController)
+        .setControllerAdvice(new CustomExceptionHandler())
+        .build();
   }
 
   /*
@@ -55,10 +77,15 @@ public class WidgetControllerTests {
   public void when_getAllWidgets_expect_allWidgets() throws Exception {
     Widget widget = Widget.builder().name("Widget von Hammersmark").build();
     List<Widget> allWidgets = List.of(widget);
-    when(widgetService.getAllWidgets()).thenReturn(allWidgets);
+    when(widgetService.streamAllWidgets()).thenReturn(allWidgets.stream());
+    when(widgetService.getChangeSeq()).thenReturn(42L);
 
-    MvcResult result = mockMvc.perform(get("/v1/widgets"))
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
         .andExpect(status().isOk())
+        .andExpect(header().string("X-Change-Seq", "42"))
         .andDo(print())
         .andReturn();
 
@@ -68,6 +95,179 @@ public class WidgetControllerTests {
     assertThat(parsedResult).isEqualTo(allWidgets);
   }
 
+  /*
+   * Test for listing widgets with the versions replicas keep
+   */
+  @Test
+  public void when_getAllWidgets_withVersions_expect_versionPerWidget() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    when(widgetService.streamAllWidgets()).thenReturn(Stream.of(widget));
+    when(widgetService.getVersion(widget)).thenReturn("kz3x1a9");
+
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets").param("versions", "true"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andReturn();
+
+    JsonNode listed = objectMapper.readTree(result.getResponse().getContentAsString()).get(0);
+    assertThat(listed.get("version").asText()).isEqualTo("kz3x1a9");
+    assertThat(objectMapper.treeToValue(listed, Widget.class)).isEqualTo(widget);
+  }
+
+  /*
+   * Test for listing widgets as newline-delimited JSON
+   */
+  @Test
+  public void when_getAllWidgets_acceptNdjson_expect_oneWidgetPerLine() throws Exception {
+    Widget widget1 = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    Widget widget2 = Widget.builder().name("Widget2").description("Test Description").price(30.0).build();
+    when(widgetService.streamAllWidgets()).thenReturn(Stream.of(widget1, widget2));
+
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets").accept("application/x-ndjson"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn();
+
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(lines).hasSize(2);
+    assertThat(objectMapper.readValue(lines[0], Widget.class)).isEqualTo(widget1);
+    assertThat(objectMapper.readValue(lines[1], Widget.class)).isEqualTo(widget2);
+  }
+
+  /*
+   * Test for listing widgets in the binary Smile encoding
+   */
+  @Test
+  public void when_getAllWidgets_acceptSmile_expect_smileArray() throws Exception {
+    Widget widget1 = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    Widget widget2 = Widget.builder().name("Widget2").description("Test Description").price(30.0).build();
+    when(widgetService.streamAllWidgets()).thenReturn(Stream.of(widget1, widget2));
+
+    MvcResult asyncResult = mockMvc.perform(get("/v1/widgets").accept("application/x-jackson-smile, application/json"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-jackson-smile"))
+        .andExpect(header().string("Vary", "Accept"))
+        .andReturn();
+
+    List<Widget> widgets = new ObjectMapper(new SmileFactory()).readValue(result.getResponse().getContentAsByteArray(),
+        new TypeReference<List<Widget>>() {
+        });
+    assertThat(widgets).containsExactly(widget1, widget2);
+  }
+
+  /*
+   * Test for paginating widgets in the binary CBOR encoding, under a weak ETag
+   */
+  @Test
+  public void when_getPaginatedWidgets_acceptCbor_expect_cborPage() throws Exception {
+    Widget widget = Widget.builder().name("Widget2").description("Test Description").price(20.0).build();
+    when(widgetService.getCatalogVersion()).thenReturn("c7");
+    when(widgetService.getPaginatedWidgets(1, 4)).thenReturn(new PaginatedResult(List.of(widget), 3));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/paginated").accept(MediaType.APPLICATION_CBOR))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+        .andExpect(header().string("ETag", "W/\"c7\""))
+        .andReturn();
+
+    JsonNode page = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+    assertThat(page.get("widgets").get(0).get("name").asText()).isEqualTo("Widget2");
+    assertThat(page.get("total").asInt()).isEqualTo(3);
+  }
+
+  /*
+   * Test for paginating widgets with a cursor
+   */
+  @Test
+  public void when_getPaginatedWidgets_withCursor_expect_pageAfterCursor() throws Exception {
+    Widget widget = Widget.builder().name("Widget2").description("Test Description").price(20.0).build();
+    when(widgetService.getWidgetsAfter("cursor", 1)).thenReturn(new PaginatedResult(List.of(widget), 3, "next"));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/paginated").param("after", "cursor").param("pageSize", "1"))
+        .andExpect(status().isOk())
+        .andDo(print())
+        .andReturn();
+
+    JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+    assertThat(page.get("widgets").get(0).get("name").asText()).isEqualTo("Widget2");
+    assertThat(page.get("total").asInt()).isEqualTo(3);
+    assertThat(page.get("nextCursor").asText()).isEqualTo("next");
+  }
+
+  /*
+   * Test for querying widgets by price band and description words
+   */
+  @Test
+  public void when_queryWidgets_expect_matchingWidgets() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Red gear").price(20.0).build();
+    when(widgetService.queryWidgets(argThat(query -> query.getMinPrice() == 10.0 && query.getMaxPrice() == null
+        && "red gear".equals(query.getText()) && query.getSort() == WidgetQuery.Sort.PRICE_DESC), eq("cursor1"), eq(2)))
+        .thenReturn(new QueryResult(List.of(widget), "cursor2"));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/query")
+            .param("minPrice", "10").param("q", "red gear").param("sort", "-price")
+            .param("after", "cursor1").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andDo(print())
+        .andReturn();
+
+    JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+    assertThat(objectMapper.treeToValue(page.get("widgets").get(0), Widget.class)).isEqualTo(widget);
+    assertThat(page.get("nextCursor").asText()).isEqualTo("cursor2");
+  }
+
+  /*
+   * Test for rejecting a price bound that is not a number
+   */
+  @Test
+  public void when_queryWidgets_nanPrice_expect_badRequest() throws Exception {
+    mockMvc.perform(get("/v1/widgets/query").param("minPrice", "NaN"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string("minPrice and maxPrice must be finite numbers."));
+
+    verify(widgetService, never()).queryWidgets(any(), any(), anyInt());
+  }
+
+  /*
+   * Test for rejecting an unknown sort order
+   */
+  @Test
+  public void when_queryWidgets_unknownSort_expect_badRequest() throws Exception {
+    mockMvc.perform(get("/v1/widgets/query").param("sort", "color"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string("Sort must be one of name, price or -price."));
+
+    verify(widgetService, never()).queryWidgets(any(), any(), anyInt());
+  }
+
+  /*
+   * Test for type-ahead search of widgets by name
+   */
+  @Test
+  public void when_searchWidgets_expect_matchingWidgets() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    when(widgetService.searchWidgets("widg", 1, 5)).thenReturn(List.of(widget));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/search")
+            .param("prefix", "widg").param("maxEdits", "1").param("limit", "5"))
+        .andExpect(status().isOk())
+        .andDo(print())
+        .andReturn();
+
+    List<Widget> widgets = objectMapper.readValue(result.getResponse().getContentAsString(),
+        new TypeReference<List<Widget>>() {
+        });
+    assertThat(widgets).containsExactly(widget);
+  }
+
   /*
    * Test for creating widgets
    */
@@ -96,9 +296,11 @@ public class WidgetControllerTests {
   public void when_getWidgetByName_expect_widgetFound() throws Exception {
     Widget widget = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
     when(widgetService.getWidgetByName("Widget1")).thenReturn(widget);
+    when(widgetService.toJson(widget)).thenReturn(objectMapper.writeValueAsBytes(widget));
 
     MvcResult result = mockMvc.perform(get("/v1/widgets/Widget1"))
         .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
         .andDo(print())
         .andReturn();
 
@@ -114,7 +316,7 @@ public class WidgetControllerTests {
   public void when_updateWidget_expect_updatedWidget() throws Exception {
     Widget widget = Widget.builder().name("Widget1").description("Updated Description").price(15.0).build();
 
-    when(widgetService.updateWidget(eq("Widget1"), any(Widget.class))).thenReturn(widget);
+    when(widgetService.updateWidget(eq("Widget1"), any(Widget.class), isNull())).thenReturn(widget);
 
     MvcResult result = mockMvc.perform(put("/v1/widgets/Widget1")
         .contentType("application/json")
@@ -137,4 +339,59 @@ public class WidgetControllerTests {
         .andExpect(status().isNoContent())
         .andDo(print());
   }
-}
\ No newline at end of file
+
+  /*
+   * Test for answering a conditional get of an unchanged widget without a body
+   */
+  @Test
+  public void when_getWidgetByName_ifNoneMatchCurrent_expect_notModified() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test Description").price(20.0).build();
+    when(widgetService.getWidgetByName("Widget1")).thenReturn(widget);
+    when(widgetService.getVersion(widget)).thenReturn("v1");
+
+    mockMvc.perform(get("/v1/widgets/Widget1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"v1\""));
+
+    MvcResult result = mockMvc.perform(get("/v1/widgets/Widget1").header("If-None-Match", "\"v1\""))
+        .andExpect(status().isNotModified())
+        .andReturn();
+    assertThat(result.getResponse().getContentAsString()).isEmpty();
+    verify(widgetService, times(1)).toJson(widget);
+  }
+
+  /*
+   * Test for answering a conditional list of an unchanged catalog without streaming it
+   */
+  @Test
+  public void when_getAllWidgets_ifNoneMatchCurrent_expect_notModified() throws Exception {
+    when(widgetService.getCatalogVersion()).thenReturn("c7");
+
+    mockMvc.perform(get("/v1/widgets").header("If-None-Match", "W/\"c7\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", "W/\"c7\""));
+
+    verify(widgetService, never()).streamAllWidgets();
+  }
+
+  /*
+   * Test for rejecting an update of a widget that changed since the client read it
+   */
+  @Test
+  public void when_updateWidget_ifMatchStale_expect_preconditionFailed() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Updated Description").price(15.0).build();
+    when(widgetService.updateWidget(eq("Widget1"), any(Widget.class), any()))
+        .thenAnswer(invocation -> {
+          Predicate<String> expectedVersion = invocation.getArgument(2);
+          assertThat(expectedVersion.test("v1")).isTrue();
+          assertThat(expectedVersion.test("v2")).isFalse();
+          throw new WidgetVersionMismatchException("Widget with name 'Widget1' has changed.");
+        });
+
+    mockMvc.perform(put("/v1/widgets/Widget1")
+        .header("If-Match", "\"v1\"")
+        .contentType("application/json")
+        .content(objectMapper.writeValueAsString(widget)))
+        .andExpect(status().isPreconditionFailed());
+  }
+}
@@ -0,0 +1,99 @@
+package com.talentreef.interviewquestions.takehome.limits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConcurrencyLimitFilterTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private ConcurrencyLimit reads;
+  private ConcurrencyLimit writes;
+  private ConcurrencyLimit listings;
+  private ConcurrencyLimitFilter filter;
+
+  @Before
+  public void init() {
+    reads = new ConcurrencyLimit(1, 1, 1, 2.0);
+    writes = new ConcurrencyLimit(1, 1, 1, 2.0);
+    listings = new ConcurrencyLimit(1, 1, 1, 2.0);
+    filter = new ConcurrencyLimitFilter(reads, writes, listings, registry);
+  }
+
+  // Test for passing requests through while under the limit
+  @Test
+  public void when_underLimit_expect_requestHandled() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/Widget1"), response, chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(reads.getInFlight()).isZero();
+  }
+
+  // Test for shedding requests over the limit with 503 and Retry-After
+  @Test
+  public void when_overLimit_expect_serviceUnavailable() throws Exception {
+    reads.tryAcquire();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/Widget1"), response, chain);
+
+    assertThat(chain.getRequest()).isNull();
+    assertThat(response.getStatus()).isEqualTo(503);
+    assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo(ConcurrencyLimitFilter.RETRY_AFTER_SECONDS);
+    assertThat(registry.get("widgets.limit.rejected").tag("group", "read").counter().count()).isEqualTo(1.0);
+  }
+
+  // Test for limiting writes separately from reads
+  @Test
+  public void when_readsAtLimit_expect_writesHandled() throws Exception {
+    reads.tryAcquire();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("POST", "/v1/widgets"), response, chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(registry.get("widgets.limit.in.flight").tag("group", "write").gauge().value()).isZero();
+  }
+
+  // Test for limiting full listings apart from other reads
+  @Test
+  public void when_listingsAtLimit_expect_readsHandled() throws Exception {
+    listings.tryAcquire();
+    MockHttpServletResponse listingResponse = new MockHttpServletResponse();
+    MockFilterChain readChain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets"), listingResponse, new MockFilterChain());
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/Widget1"), new MockHttpServletResponse(), readChain);
+
+    assertThat(listingResponse.getStatus()).isEqualTo(503);
+    assertThat(registry.get("widgets.limit.rejected").tag("group", "listing").counter().count()).isEqualTo(1.0);
+    assertThat(readChain.getRequest()).isNotNull();
+  }
+
+  // Test for leaving the change feed and other paths unlimited
+  @Test
+  public void when_changeFeedOrOtherPath_expect_notLimited() throws Exception {
+    reads.tryAcquire();
+    for (String path : new String[]{"/v1/widgets/changes", "/actuator/health"}) {
+      MockFilterChain chain = new MockFilterChain();
+
+      filter.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(), chain);
+
+      assertThat(chain.getRequest()).isNotNull();
+    }
+  }
+}
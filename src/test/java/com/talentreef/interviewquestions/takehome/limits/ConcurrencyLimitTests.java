@@ -0,0 +1,101 @@
+package com.talentreef.interviewquestions.takehome.limits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class ConcurrencyLimitTests {
+
+  private static final long MILLI = 1_000_000;
+
+  private long now;
+
+  // Test for rejecting requests beyond the limit until a slot is released
+  @Test
+  public void when_limitReached_expect_acquireRejected() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(2, 1, 10, 2.0, () -> now);
+
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isFalse();
+    assertThat(limit.getInFlight()).isEqualTo(2);
+
+    limit.release(MILLI, false);
+
+    assertThat(limit.tryAcquire()).isTrue();
+  }
+
+  // Test for growing the limit while latency holds, and shrinking it once latency rises
+  @Test
+  public void when_latencyRises_expect_limitShrinks() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(20, 5, 100, 2.0, () -> now);
+    for (int window = 0; window < 10; window++) {
+      runWindow(limit, MILLI);
+    }
+    int grown = limit.getLimit();
+    assertThat(grown).isGreaterThan(20);
+
+    for (int window = 0; window < 10; window++) {
+      runWindow(limit, 8 * MILLI);
+    }
+
+    assertThat(limit.getLimit()).isLessThan(grown / 2);
+    assertThat(limit.getLimit()).isGreaterThanOrEqualTo(5);
+  }
+
+  // Test for shrinking the limit when requests are dropped
+  @Test
+  public void when_requestsDropped_expect_limitShrinks() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(20, 5, 100, 2.0, () -> now);
+
+    runWindow(limit, MILLI);
+    int before = limit.getLimit();
+    fill(limit);
+    limit.release(MILLI, true);
+    runWindow(limit, MILLI);
+
+    assertThat(limit.getLimit()).isLessThan(before);
+  }
+
+  // Test for keeping the limit when the window did not use half of it
+  @Test
+  public void when_limitUnderused_expect_limitUnchanged() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(20, 5, 100, 2.0, () -> now);
+    for (int window = 0; window < 5; window++) {
+      now += ConcurrencyLimit.WINDOW_MILLIS * MILLI;
+      for (int i = 0; i < 20; i++) {
+        limit.tryAcquire();
+        limit.release(MILLI, false);
+      }
+    }
+
+    assertThat(limit.getLimit()).isEqualTo(20);
+  }
+
+  // Test for rejecting inconsistent bounds
+  @Test
+  public void when_boundsInconsistent_expect_exception() throws Exception {
+    assertThatThrownBy(() -> new ConcurrencyLimit(1, 5, 100, 2.0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new ConcurrencyLimit(10, 5, 4, 2.0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /**
+   * Runs the limit at full use for one window of requests taking {@code rtt}.
+   */
+  private void runWindow(ConcurrencyLimit limit, long rtt) {
+    now += ConcurrencyLimit.WINDOW_MILLIS * MILLI;
+    int acquired = fill(limit);
+    for (int i = 0; i < acquired; i++) {
+      limit.release(rtt, false);
+    }
+  }
+
+  private static int fill(ConcurrencyLimit limit) {
+    int acquired = 0;
+    while (limit.tryAcquire()) {
+      acquired++;
+    }
+    return acquired;
+  }
+}
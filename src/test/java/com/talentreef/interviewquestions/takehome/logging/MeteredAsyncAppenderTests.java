@@ -0,0 +1,91 @@
+package com.talentreef.interviewquestions.takehome.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+public class MeteredAsyncAppenderTests {
+
+  private final LoggerContext context = new LoggerContext();
+  private final CountDownLatch received = new CountDownLatch(1);
+  private final CountDownLatch released = new CountDownLatch(1);
+  private MeteredAsyncAppender appender;
+
+  @Before
+  public void init() {
+    AppenderBase<ILoggingEvent> blocked = new AppenderBase<>() {
+      @Override
+      protected void append(ILoggingEvent event) {
+        received.countDown();
+        try {
+          released.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    blocked.setContext(context);
+    blocked.start();
+    appender = new MeteredAsyncAppender();
+    appender.setContext(context);
+    appender.setQueueSize(2);
+    appender.setNeverBlock(true);
+    appender.addAppender(blocked);
+  }
+
+  @After
+  public void cleanUp() {
+    released.countDown();
+    appender.stop();
+  }
+
+  // Test for dropping events, without blocking, once the queue is full
+  @Test
+  public void when_queueFull_expect_eventsDroppedAndCounted() throws Exception {
+    appender.setDiscardingThreshold(0);
+    appender.start();
+    appender.doAppend(event(Level.INFO));
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+
+    for (int i = 0; i < 4; i++) {
+      appender.doAppend(event(Level.INFO));
+    }
+
+    assertThat(appender.getNumberOfElementsInQueue()).isEqualTo(2);
+    assertThat(appender.getDroppedCount()).isEqualTo(2);
+  }
+
+  // Test for keeping warnings past the discarding threshold, until the queue is full
+  @Test
+  public void when_pastDiscardingThreshold_expect_infoDroppedWarningsKept() throws Exception {
+    appender.setDiscardingThreshold(2);
+    appender.start();
+    appender.doAppend(event(Level.INFO));
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.INFO));
+    appender.doAppend(event(Level.WARN));
+    appender.doAppend(event(Level.WARN));
+
+    assertThat(appender.getNumberOfElementsInQueue()).isEqualTo(2);
+    assertThat(appender.getDroppedCount()).isEqualTo(2);
+  }
+
+  private ILoggingEvent event(Level level) {
+    Logger logger = context.getLogger("test");
+    return new LoggingEvent(Logger.class.getName(), logger, level, "message", null, null);
+  }
+}
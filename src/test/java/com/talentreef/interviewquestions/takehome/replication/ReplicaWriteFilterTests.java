@@ -0,0 +1,47 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ReplicaWriteFilterTests {
+
+  private final ReplicaWriteFilter filter = new ReplicaWriteFilter("http://localhost:9000");
+
+  // Test for serving reads from the replica
+  @Test
+  public void when_get_expect_handledLocally() throws Exception {
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/Widget1"), new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+  }
+
+  // Test for redirecting writes to the same URL on the primary
+  @Test
+  public void when_put_expect_redirectedToPrimary() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/v1/widgets/Widget1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, response, chain);
+
+    assertThat(chain.getRequest()).isNull();
+    assertThat(response.getStatus()).isEqualTo(307);
+    assertThat(response.getHeader("Location")).isEqualTo("http://localhost:9000/v1/widgets/Widget1");
+  }
+
+  // Test for leaving requests outside the widget API alone
+  @Test
+  public void when_postOutsideWidgets_expect_handledLocally() throws Exception {
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("POST", "/actuator/refresh"), new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+  }
+}
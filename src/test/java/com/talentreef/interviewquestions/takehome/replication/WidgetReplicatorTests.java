@@ -0,0 +1,143 @@
+package com.talentreef.interviewquestions.takehome.replication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.models.ChangesResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+import com.talentreef.interviewquestions.takehome.services.WidgetService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class WidgetReplicatorTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final WidgetService replica = new WidgetService(new WidgetRepository());
+
+  private WidgetService primary;
+  private WidgetReplicator replicator;
+  private boolean reachable = true;
+  private long now = 1_000;
+
+  @Before
+  public void init() {
+    // Retains 4 changes, so a replica missing more has to copy the widgets again.
+    primary = new WidgetService(new WidgetRepository(WidgetJournal.NONE, 16, false, 4));
+    ReplicationSource source = new ReplicationSource() {
+      @Override
+      public long list(BiConsumer<Widget, String> widgets) throws IOException {
+        checkReachable();
+        long seq = primary.getChangeSeq();
+        primary.streamAllWidgets().forEach(widget -> widgets.accept(widget, primary.getVersion(widget)));
+        return seq;
+      }
+
+      @Override
+      public ChangesResult changes(long since, int limit, Duration wait) throws IOException {
+        checkReachable();
+        return primary.getChanges(since, limit);
+      }
+    };
+    replicator = new WidgetReplicator(source, replica, registry, Duration.ZERO, Duration.ZERO, () -> now);
+  }
+
+  // Test for copying the primary's widgets, dropping those the replica has of its own
+  @Test
+  public void when_firstStep_expect_primaryWidgetsCopied() throws Exception {
+    primary.createWidget(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    primary.createWidget(Widget.builder().name("Widget2").description("Test Description").price(20.0).build());
+    replica.saveReplicated(Widget.builder().name("Stale").description("Test Description").price(30.0).build(), "1");
+
+    replicator.step();
+
+    assertThat(names(replica)).containsExactly("Widget1", "Widget2");
+    assertThat(registry.get("widgets.replication.resyncs").functionCounter().count()).isEqualTo(1);
+  }
+
+  // Test for applying the primary's creates, updates and deletes in order
+  @Test
+  public void when_primaryChanges_expect_replicaFollows() throws Exception {
+    primary.createWidget(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    replicator.step();
+
+    primary.createWidget(Widget.builder().name("Widget2").description("Test Description").price(20.0).build());
+    primary.updateWidget("Widget1", Widget.builder().price(15.0).build());
+    primary.deleteWidget("Widget2");
+    primary.createWidget(Widget.builder().name("Widget3").description("Test Description").price(30.0).build());
+    replicator.step();
+
+    assertThat(names(replica)).containsExactly("Widget1", "Widget3");
+    assertThat(replica.getWidgetByName("Widget1").getPrice()).isEqualTo(15.0);
+    assertThat(registry.get("widgets.replication.changes").functionCounter().count()).isEqualTo(4);
+    assertThat(registry.get("widgets.replication.resyncs").functionCounter().count()).isEqualTo(1);
+  }
+
+  // Test for keeping the primary's versions, so ETags match whichever node answers
+  @Test
+  public void when_replicated_expect_primaryVersionsKept() throws Exception {
+    primary.createWidget(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    replicator.step();
+    primary.createWidget(Widget.builder().name("Widget2").description("Test Description").price(20.0).build());
+    primary.updateWidget("Widget1", Widget.builder().price(15.0).build());
+    replicator.step();
+
+    for (String name : List.of("Widget1", "Widget2")) {
+      assertThat(replica.getVersion(replica.getWidgetByName(name)))
+          .isEqualTo(primary.getVersion(primary.getWidgetByName(name)));
+    }
+  }
+
+  // Test for copying the widgets again when the changes the replica needs expired on the primary
+  @Test
+  public void when_changesExpired_expect_resync() throws Exception {
+    replicator.step();
+    for (int i = 0; i < 6; i++) {
+      primary.createWidget(Widget.builder().name("Widget" + i).description("Test Description").price(10.0).build());
+    }
+    primary.deleteWidget("Widget0");
+
+    assertThatThrownBy(replicator::step).isInstanceOf(ChangesExpiredException.class);
+    replicator.step();
+
+    assertThat(names(replica)).isEqualTo(names(primary));
+    assertThat(registry.get("widgets.replication.resyncs").functionCounter().count()).isEqualTo(2);
+  }
+
+  // Test for reporting the time since the replica was last caught up while the primary is unreachable
+  @Test
+  public void when_primaryUnreachable_expect_lagGrows() throws Exception {
+    replicator.step();
+    assertThat(registry.get("widgets.replication.lag").gauge().value()).isEqualTo(0.0);
+
+    reachable = false;
+    now += 5_000;
+    assertThatThrownBy(replicator::step).isInstanceOf(IOException.class);
+    assertThat(registry.get("widgets.replication.lag").gauge().value()).isEqualTo(5.0);
+
+    reachable = true;
+    replicator.step();
+    assertThat(replicator.lagSeconds()).isEqualTo(0.0);
+  }
+
+  private void checkReachable() throws IOException {
+    if (!reachable) {
+      throw new ConnectException("Connection refused");
+    }
+  }
+
+  private static List<String> names(WidgetService widgetService) {
+    return widgetService.getAllWidgets().stream().map(Widget::getName).toList();
+  }
+}
@@ -0,0 +1,151 @@
+package com.talentreef.interviewquestions.takehome.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.CachingWidgetStore;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CachingWidgetStoreTests {
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicLong nanos = new AtomicLong();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private volatile CountDownLatch loading;
+  private volatile CountDownLatch release;
+  private WidgetRepository backend;
+  private CachingWidgetStore store;
+
+  @Before
+  public void setUp() {
+    backend = new WidgetRepository() {
+      @Override
+      public Optional<Widget> findByName(String name) {
+        loads.incrementAndGet();
+        if (release != null) {
+          loading.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.findByName(name);
+      }
+    };
+    store = new CachingWidgetStore(backend, registry, 100, Duration.ofMinutes(5), Duration.ofSeconds(30), nanos::get);
+  }
+
+  // Test for reading a Widget from the backend once, then from the cache
+  @Test
+  public void when_findByNameTwice_expect_oneBackendLookup() throws Exception {
+    backend.save(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+
+    assertThat(store.findByName("Widget1")).map(Widget::getPrice).contains(10.0);
+    assertThat(store.findByName("Widget1")).map(Widget::getPrice).contains(10.0);
+
+    assertThat(loads).hasValue(1);
+    assertThat(registry.get("widgets.store.cache").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("widgets.store.cache").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+  }
+
+  // Test for caching missing names until a write through the store creates them
+  @Test
+  public void when_missingThenCreated_expect_negativeEntryInvalidated() throws Exception {
+    assertThat(store.findByName("Widget1")).isEmpty();
+    assertThat(store.findByName("Widget1")).isEmpty();
+    assertThat(store.existsByName("Widget1")).isFalse();
+    assertThat(loads).hasValue(1);
+
+    store.saveIfAbsent(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+
+    assertThat(store.findByName("Widget1")).isPresent();
+    assertThat(loads).hasValue(2);
+  }
+
+  // Test for reading the new Widget after an update or a delete through the store
+  @Test
+  public void when_updatedAndDeleted_expect_latestWidget() throws Exception {
+    store.save(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    store.findByName("Widget1");
+
+    store.update(Widget.builder().name("Widget1").price(15.0).build(),
+        (stored, changes) -> stored.toBuilder().price(changes.getPrice()).build(), null);
+    assertThat(store.findByName("Widget1")).map(Widget::getPrice).contains(15.0);
+
+    store.deleteAll(List.of("Widget1"));
+    assertThat(store.findByName("Widget1")).isEmpty();
+  }
+
+  // Test for invalidating the name even when the write is rejected
+  @Test
+  public void when_writeFails_expect_entryInvalidated() throws Exception {
+    store.save(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    store.findByName("Widget1");
+
+    assertThatThrownBy(() -> store.deleteById("Widget1", version -> false))
+        .isInstanceOf(WidgetVersionMismatchException.class);
+    store.findByName("Widget1");
+
+    assertThat(loads).hasValue(2);
+  }
+
+  // Test for expiring cached entries, missing names first
+  @Test
+  public void when_ttlElapsed_expect_backendWritesSeen() throws Exception {
+    store.findByName("Widget1");
+    backend.save(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+
+    nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+    assertThat(store.findByName("Widget1")).isEmpty();
+    nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+    assertThat(store.findByName("Widget1")).isPresent();
+
+    backend.save(Widget.builder().name("Widget1").description("Test Description").price(20.0).build());
+    nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+    assertThat(store.findByName("Widget1")).map(Widget::getPrice).contains(20.0);
+  }
+
+  // Test for coalescing concurrent lookups of the same name into one backend lookup
+  @Test
+  public void when_concurrentLookups_expect_oneBackendLookup() throws Exception {
+    backend.save(Widget.builder().name("Widget1").description("Test Description").price(10.0).build());
+    loading = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<Optional<Widget>> first = executor.submit(() -> store.findByName("Widget1"));
+      assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+      Future<Optional<Widget>> second = executor.submit(() -> store.findByName("Widget1"));
+      Future<Optional<Widget>> third = executor.submit(() -> store.findByName("Widget1"));
+      Thread.sleep(100);
+      release.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS)).isPresent();
+      assertThat(second.get(5, TimeUnit.SECONDS)).isPresent();
+      assertThat(third.get(5, TimeUnit.SECONDS)).isPresent();
+      assertThat(loads).hasValue(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
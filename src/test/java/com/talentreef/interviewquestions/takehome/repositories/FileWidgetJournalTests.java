@@ -0,0 +1,225 @@
+package com.talentreef.interviewquestions.takehome.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+import com.talentreef.interviewquestions.takehome.respositories.FileWidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+public class FileWidgetJournalTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  private FileWidgetJournal journal;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = folder.getRoot().toPath();
+  }
+
+  @After
+  public void tearDown() {
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  // Test for recovering saves and deletes from the log
+  @Test
+  public void when_reopened_expect_loggedMutationsRecovered() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    widgetRepository.saveIfAbsent(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget1").description("Updated widget").price(15.0).build());
+    widgetRepository.deleteById("Widget2");
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.findAll()).extracting(Widget::getName).containsExactly("Widget1");
+    assertThat(recovered.findByName("Widget1").get().getDescription()).isEqualTo("Updated widget");
+    assertThat(recovered.findByName("Widget1").get().getPrice()).isEqualTo(15.0);
+  }
+
+  // Test for recovering from a snapshot plus the log written after it
+  @Test
+  public void when_checkpointed_expect_snapshotAndNewerLogRecovered() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.saveAllIfAbsent(List.of(
+        Widget.builder().name("Widget1").description("Test widget").price(10.0).build(),
+        Widget.builder().name("Widget2").description("Test widget").price(10.0).build()));
+    journal.checkpoint();
+    widgetRepository.deleteAll(List.of("Widget1"));
+    widgetRepository.save(Widget.builder().name("Widget3").description("Test widget").price(10.0).build());
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.findAll()).extracting(Widget::getName).containsExactly("Widget2", "Widget3");
+    assertThat(segments()).hasSize(2);
+  }
+
+  // Test for widget versions surviving restarts, from the log and from a snapshot
+  @Test
+  public void when_reopened_expect_versionsKept() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    journal.checkpoint();
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+    String version1 = widgetRepository.versionOf(widgetRepository.findByName("Widget1").get());
+    String version2 = widgetRepository.versionOf(widgetRepository.findByName("Widget2").get());
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.versionOf(recovered.findByName("Widget1").get())).isEqualTo(version1);
+    assertThat(recovered.versionOf(recovered.findByName("Widget2").get())).isEqualTo(version2);
+    Widget saved = recovered.save(Widget.builder().name("Widget3").description("Test widget").price(10.0).build());
+    assertThat(Long.parseLong(recovered.versionOf(saved), Character.MAX_RADIX))
+        .isGreaterThan(Long.parseLong(version2, Character.MAX_RADIX));
+  }
+
+  // Test for writes and deletes layered over a mapped snapshot surviving further restarts
+  @Test
+  public void when_reopenedFromSnapshot_expect_writesLayeredOverSnapshot() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.saveAllIfAbsent(List.of(
+        Widget.builder().name("Widget1").description("Test widget").price(10.0).build(),
+        Widget.builder().name("Widget2").description("Test widget").price(10.0).build(),
+        Widget.builder().name("Widget4").description(null).price(null).build()));
+    journal.checkpoint();
+
+    WidgetRepository mapped = reopen();
+    assertThat(mapped.findByName("Widget4").get().getDescription()).isNull();
+    assertThat(mapped.saveAllIfAbsent(List.of(Widget.builder().name("Widget2").build()))).containsExactly(Optional.empty());
+    assertThat(mapped.deleteById("Widget1")).isPresent();
+    mapped.save(Widget.builder().name("Widget2").description("Updated widget").price(15.0).build());
+    mapped.save(Widget.builder().name("Widget3").description("Test widget").price(10.0).build());
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.existsByName("Widget1")).isFalse();
+    assertThat(recovered.findByName("Widget2").get().getDescription()).isEqualTo("Updated widget");
+    assertThat(recovered.findAll()).extracting(Widget::getName).containsExactly("Widget2", "Widget3", "Widget4");
+    PaginatedResult firstPage = recovered.findPageAfter(null, 2);
+    assertThat(firstPage.getTotal()).isEqualTo(3);
+    assertThat(recovered.findPageAfter(firstPage.getNextCursor(), 2).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget4");
+  }
+
+  // Test for querying widgets indexed from a mapped snapshot and written over it
+  @Test
+  public void when_reopenedFromSnapshot_expect_snapshotWidgetsQueryable() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.saveAllIfAbsent(List.of(
+        Widget.builder().name("Widget1").description("Red gear").price(10.0).build(),
+        Widget.builder().name("Widget2").description("Blue gear").price(20.0).build(),
+        Widget.builder().name("Widget3").description("Red spring").price(30.0).build()));
+    journal.checkpoint();
+
+    WidgetRepository mapped = reopen();
+    mapped.save(Widget.builder().name("Widget1").description("Red spring").price(10.0).build());
+    mapped.deleteById("Widget2");
+
+    assertThat(mapped.findByQuery(new WidgetQuery(null, null, "red spring", WidgetQuery.Sort.PRICE_DESC), null, 100).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget3", "Widget1");
+    assertThat(mapped.findByQuery(new WidgetQuery(null, null, "gear", WidgetQuery.Sort.NAME), null, 100).getWidgets()).isEmpty();
+    assertThat(mapped.findByQuery(new WidgetQuery(15.0, null, null, WidgetQuery.Sort.NAME), null, 100).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget3");
+  }
+
+  // Test for searching names of a mapped snapshot, whether or not they are indexed yet
+  @Test
+  public void when_reopenedFromSnapshot_expect_snapshotNamesSearchable() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.saveAllIfAbsent(List.of(
+        Widget.builder().name("Gadget1").description("Red gear").price(10.0).build(),
+        Widget.builder().name("Widget1").description("Blue gear").price(20.0).build(),
+        Widget.builder().name("Widget2").description("Red spring").price(30.0).build()));
+    journal.checkpoint();
+
+    WidgetRepository mapped = reopen();
+    mapped.deleteById("Widget2");
+
+    assertThat(mapped.searchByName("wdget", 1, 10)).extracting(Widget::getName).containsExactly("Widget1");
+  }
+
+  // Test for a crash that left a partially written record at the end of the log
+  @Test
+  public void when_logHasTornTail_expect_tailDiscarded() throws Exception {
+    WidgetRepository widgetRepository = open();
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    journal.close();
+    Path segment = segments().get(0);
+    Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+    long sizeWithTail = Files.size(segment);
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.findAll()).extracting(Widget::getName).containsExactly("Widget1");
+    assertThat(Files.size(segment)).isEqualTo(sizeWithTail - 7);
+  }
+
+  // Test for concurrent writers sharing flushes
+  @Test
+  public void when_savedConcurrently_expect_allRecovered() throws Exception {
+    WidgetRepository widgetRepository = open();
+    int threads = 8;
+    int widgetsPerThread = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < widgetsPerThread; i++) {
+          widgetRepository.save(Widget.builder().name("Widget-" + thread + "-" + i).description("Test widget").price(10.0).build());
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    WidgetRepository recovered = reopen();
+
+    assertThat(recovered.findAll()).hasSize(threads * widgetsPerThread);
+  }
+
+  private WidgetRepository open() throws Exception {
+    journal = new FileWidgetJournal(directory, Duration.ZERO, true);
+    return new WidgetRepository(journal);
+  }
+
+  private WidgetRepository reopen() throws Exception {
+    journal.close();
+    return open();
+  }
+
+  private List<Path> segments() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().toList();
+    }
+  }
+}
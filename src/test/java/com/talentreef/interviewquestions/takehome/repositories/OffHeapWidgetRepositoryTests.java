@@ -0,0 +1,106 @@
+package com.talentreef.interviewquestions.takehome.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+/**
+ * Runs the repository tests against the off-heap table.
+ */
+public class OffHeapWidgetRepositoryTests extends WidgetRepositoryTests {
+
+  @Override
+  protected WidgetRepository createRepository() {
+    return new WidgetRepository(WidgetJournal.NONE, 0, true);
+  }
+
+  // Test for enough widgets and rewrites to split order blocks and compact the arena
+  @Test
+  public void when_manyWidgetsRewritten_expect_latestVersionsInNameOrder() throws Exception {
+    WidgetRepository widgetRepository = createRepository();
+    List<String> names = IntStream.range(0, 5000).mapToObj(i -> String.format("Widget%05d", i)).toList();
+    String description = "Test widget ".repeat(100);
+    for (int round = 0; round < 5; round++) {
+      for (String name : names) {
+        widgetRepository.save(Widget.builder().name(name).description(description).price((double) round).build());
+      }
+    }
+    widgetRepository.deleteAll(names.subList(0, 2500));
+
+    List<Widget> result = widgetRepository.findAll();
+
+    assertThat(result).extracting(Widget::getName).containsExactlyElementsOf(names.subList(2500, 5000));
+    assertThat(result).allSatisfy(widget -> assertThat(widget.getPrice()).isEqualTo(4.0));
+    assertThat(widgetRepository.findByName("Widget00001")).isEmpty();
+  }
+
+  // Test for a write waiting on the journal holding up neither reads nor writes of other names
+  @Test
+  public void when_journalAppendWaits_expect_otherNamesServed() throws Exception {
+    CountDownLatch appending = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    WidgetRepository widgetRepository = new WidgetRepository(new WidgetJournal() {
+      @Override
+      public void recover(RecoveryTarget target, Supplier<Stream<Widget>> contents) {
+      }
+
+      @Override
+      public long appendSave(Widget widget) {
+        if (widget.getName().equals("Widget1")) {
+          appending.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return 0;
+      }
+
+      @Override
+      public long appendDelete(String name) {
+        return 0;
+      }
+
+      @Override
+      public void awaitDurable(long lsn) {
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 0, true);
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+
+    CompletableFuture<Widget> slow = CompletableFuture.supplyAsync(() ->
+        widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build()));
+    assertThat(appending.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Widget> other = CompletableFuture.supplyAsync(() ->
+        widgetRepository.save(Widget.builder().name("Widget3").description("Test widget").price(10.0).build()));
+
+    assertThat(other.get(5, TimeUnit.SECONDS).getName()).isEqualTo("Widget3");
+    assertThat(widgetRepository.findByName("Widget2")).isPresent();
+    release.countDown();
+    slow.get(5, TimeUnit.SECONDS);
+    assertThat(widgetRepository.findAll()).extracting(Widget::getName).containsExactly("Widget1", "Widget2", "Widget3");
+  }
+
+  // Test for off-heap writes being reported as blocking, unlike heap writes without a journal
+  @Test
+  public void when_offHeap_expect_writesBlock() throws Exception {
+    assertThat(createRepository().writesBlock()).isTrue();
+    assertThat(new WidgetRepository().writesBlock()).isFalse();
+  }
+}
@@ -0,0 +1,16 @@
+package com.talentreef.interviewquestions.takehome.repositories;
+
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+/**
+ * Runs the repository tests against the off-heap table without indexes, so queries and
+ * searches scan the table.
+ */
+public class UnindexedWidgetRepositoryTests extends WidgetRepositoryTests {
+
+  @Override
+  protected WidgetRepository createRepository() {
+    return new WidgetRepository(WidgetJournal.NONE, 0, true, 16_384, false);
+  }
+}
@@ -1,14 +1,30 @@
 package com.talentreef.interviewquestions.takehome.repositories;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.talentreef.interviewquestions.takehome.exceptions.ChangesExpiredException;
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidCursorException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetChange;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetJournal;
 import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
 
 public class WidgetRepositoryTests {
@@ -17,7 +33,11 @@ public class WidgetRepositoryTests {
 
   @Before
   public void setUp() {
-    widgetRepository = new WidgetRepository();
+    widgetRepository = createRepository();
+  }
+
+  protected WidgetRepository createRepository() {
+    return new WidgetRepository();
   }
 
   // Test for listing widgets when it is empty
@@ -119,4 +139,447 @@ public class WidgetRepositoryTests {
     assertThat(result.get().getName()).isEqualTo("Widget1");
     assertThat(result.get().getDescription()).isEqualTo("Test widget");
   }
+
+  // Test for replacing a widget keeping its position in the listing
+  @Test
+  public void when_saveWidget_existingName_expect_positionKept() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget 1").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget 2").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget1").description("Updated widget").price(15.0).build());
+
+    List<Widget> result = widgetRepository.findAll();
+    assertThat(result).extracting(Widget::getName).containsExactly("Widget1", "Widget2");
+    assertThat(result.get(0).getDescription()).isEqualTo("Updated widget");
+  }
+
+  // Test for deleting widget returning the removed widget
+  @Test
+  public void when_deleteById_widgetExists_expect_removedWidget() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+    widgetRepository.save(widget);
+
+    assertThat(widgetRepository.deleteById("Widget1")).contains(widget);
+    assertThat(widgetRepository.deleteById("Widget1")).isEmpty();
+  }
+
+  // Test for paginating widgets in name order
+  @Test
+  public void when_findPaginated_expect_pageInNameOrder() throws Exception {
+    for (int i = 5; i >= 1; i--) {
+      widgetRepository.save(Widget.builder().name("Widget" + i).description("Test widget").price(10.0).build());
+    }
+
+    PaginatedResult result = widgetRepository.findPaginated(2, 2);
+
+    assertThat(result.getTotal()).isEqualTo(5);
+    assertThat(result.getWidgets()).extracting(Widget::getName).containsExactly("Widget3", "Widget4");
+    assertThat(result.getNextCursor()).isNotNull();
+  }
+
+  // Test for walking all widgets with cursors
+  @Test
+  public void when_findPageAfter_followCursors_expect_allWidgetsOnce() throws Exception {
+    for (int i = 1; i <= 5; i++) {
+      widgetRepository.save(Widget.builder().name("Widget" + i).description("Test widget").price(10.0).build());
+    }
+
+    PaginatedResult first = widgetRepository.findPageAfter(null, 2);
+    PaginatedResult second = widgetRepository.findPageAfter(first.getNextCursor(), 2);
+    PaginatedResult last = widgetRepository.findPageAfter(second.getNextCursor(), 2);
+
+    assertThat(first.getWidgets()).extracting(Widget::getName).containsExactly("Widget1", "Widget2");
+    assertThat(second.getWidgets()).extracting(Widget::getName).containsExactly("Widget3", "Widget4");
+    assertThat(last.getWidgets()).extracting(Widget::getName).containsExactly("Widget5");
+    assertThat(last.getNextCursor()).isNull();
+    assertThat(last.getTotal()).isEqualTo(5);
+  }
+
+  // Test for resuming from a cursor whose widget was deleted meanwhile
+  @Test
+  public void when_findPageAfter_cursorWidgetDeleted_expect_nextWidgets() throws Exception {
+    for (int i = 1; i <= 3; i++) {
+      widgetRepository.save(Widget.builder().name("Widget" + i).description("Test widget").price(10.0).build());
+    }
+    PaginatedResult first = widgetRepository.findPageAfter(null, 1);
+
+    widgetRepository.deleteById("Widget1");
+    PaginatedResult second = widgetRepository.findPageAfter(first.getNextCursor(), 1);
+
+    assertThat(second.getWidgets()).extracting(Widget::getName).containsExactly("Widget2");
+  }
+
+  // Test for paginating with a cursor that was not issued by the repository
+  @Test(expected = InvalidCursorException.class)
+  public void when_findPageAfter_invalidCursor_expect_error() throws Exception {
+    widgetRepository.findPageAfter("not a cursor", 2);
+  }
+
+  // Test for paginating widgets past the last page
+  @Test
+  public void when_findPaginated_pageOutOfRange_expect_emptyPage() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+
+    PaginatedResult result = widgetRepository.findPaginated(3, 4);
+
+    assertThat(result.getTotal()).isEqualTo(1);
+    assertThat(result.getWidgets()).isEmpty();
+  }
+
+  // Test for saving and deleting widgets from several threads at once
+  @Test
+  public void when_saveAndDeleteConcurrently_expect_consistentTable() throws Exception {
+    int threads = 8;
+    int widgetsPerThread = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < widgetsPerThread; i++) {
+          String name = "Widget-" + thread + "-" + i;
+          widgetRepository.save(Widget.builder().name(name).description("Test widget").price(10.0).build());
+          if (i % 2 == 1) {
+            widgetRepository.deleteById(name);
+          }
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    List<Widget> result = widgetRepository.findAll();
+    assertThat(result).hasSize(threads * widgetsPerThread / 2);
+    assertThat(widgetRepository.findPaginated(1, Integer.MAX_VALUE).getTotal()).isEqualTo(result.size());
+    assertThat(widgetRepository.existsByName("Widget-0-0")).isTrue();
+    assertThat(widgetRepository.existsByName("Widget-0-1")).isFalse();
+  }
+
+  // Test for creating a widget only if its name is free
+  @Test
+  public void when_saveIfAbsent_newName_expect_widgetSaved() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+
+    Widget result = widgetRepository.saveIfAbsent(widget);
+
+    assertThat(result).isEqualTo(widget);
+    assertThat(widgetRepository.findByName("Widget1")).contains(widget);
+  }
+
+  // Test for creating a widget whose name is already taken
+  @Test(expected = WidgetAlreadyExistsException.class)
+  public void when_saveIfAbsent_existingName_expect_error() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+
+    widgetRepository.saveIfAbsent(Widget.builder().name("Widget1").description("Other widget").price(15.0).build());
+  }
+
+  // Test for racing creates of the same name
+  @Test
+  public void when_saveIfAbsentConcurrently_expect_singleWinner() throws Exception {
+    int threads = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      executor.submit(() -> {
+        start.await();
+        try {
+          widgetRepository.saveIfAbsent(Widget.builder().name("Widget1").description("Widget " + thread).price(10.0).build());
+          created.incrementAndGet();
+        } catch (WidgetAlreadyExistsException e) {
+          rejected.incrementAndGet();
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(created.get()).isEqualTo(1);
+    assertThat(rejected.get()).isEqualTo(threads - 1);
+    assertThat(widgetRepository.findAll()).hasSize(1);
+  }
+
+  // Test for creating a batch of widgets with a taken name
+  @Test
+  public void when_saveAllIfAbsent_expect_takenNamesSkipped() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+    Widget widget1 = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+    Widget widget2 = Widget.builder().name("Widget2").description("Other widget").price(15.0).build();
+
+    List<Optional<Widget>> result = widgetRepository.saveAllIfAbsent(List.of(widget1, widget2));
+
+    assertThat(result).containsExactly(Optional.of(widget1), Optional.empty());
+    assertThat(widgetRepository.findByName("Widget2").get().getDescription()).isEqualTo("Test widget");
+  }
+
+  // Test for updating a batch of widgets with a missing name
+  @Test
+  public void when_updateAll_expect_existingWidgetsMerged() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    Widget changes1 = Widget.builder().name("Widget1").price(20.0).build();
+    Widget changes2 = Widget.builder().name("Widget2").price(20.0).build();
+
+    List<Optional<Widget>> result = widgetRepository.updateAll(List.of(changes1, changes2),
+        (existing, changes) -> existing.toBuilder().price(changes.getPrice()).build());
+
+    assertThat(result.get(0)).isPresent();
+    assertThat(result.get(1)).isEmpty();
+    assertThat(widgetRepository.findByName("Widget1").get().getPrice()).isEqualTo(20.0);
+    assertThat(widgetRepository.findByName("Widget1").get().getDescription()).isEqualTo("Test widget");
+    assertThat(widgetRepository.existsByName("Widget2")).isFalse();
+  }
+
+  // Test for deleting a batch of widgets with a missing name
+  @Test
+  public void when_deleteAll_expect_existingWidgetsDeleted() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+    widgetRepository.save(widget);
+
+    List<Optional<Widget>> result = widgetRepository.deleteAll(List.of("Widget1", "Widget2"));
+
+    assertThat(result).containsExactly(Optional.of(widget), Optional.empty());
+    assertThat(widgetRepository.findAll()).isEmpty();
+  }
+
+  // Test for versions changing on every write of a widget and of the catalog
+  @Test
+  public void when_widgetWritten_expect_newWidgetAndCatalogVersions() throws Exception {
+    Widget saved = widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    String widgetVersion = widgetRepository.versionOf(widgetRepository.findByName("Widget1").get());
+    String catalogVersion = widgetRepository.catalogVersion();
+    assertThat(widgetVersion).isEqualTo(widgetRepository.versionOf(saved));
+
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+    assertThat(widgetRepository.versionOf(widgetRepository.findByName("Widget1").get())).isEqualTo(widgetVersion);
+    assertThat(widgetRepository.catalogVersion()).isNotEqualTo(catalogVersion);
+
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(15.0).build());
+    assertThat(widgetRepository.versionOf(widgetRepository.findByName("Widget1").get())).isNotEqualTo(widgetVersion);
+  }
+
+  // Test for batches that change nothing keeping the catalog version
+  @Test
+  public void when_batchChangesNothing_expect_catalogVersionKept() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+    widgetRepository.save(widget);
+    String catalogVersion = widgetRepository.catalogVersion();
+
+    widgetRepository.saveAllIfAbsent(List.of(widget));
+    widgetRepository.updateAll(List.of(Widget.builder().name("Missing").price(20.0).build()), (existing, update) -> update);
+    widgetRepository.deleteAll(List.of("Missing"));
+
+    assertThat(widgetRepository.catalogVersion()).isEqualTo(catalogVersion);
+    widgetRepository.deleteAll(List.of("Missing", "Widget1"));
+    assertThat(widgetRepository.catalogVersion()).isNotEqualTo(catalogVersion);
+  }
+
+  // Test for replicated widgets keeping the version they were copied with
+  @Test
+  public void when_saveReplicated_expect_versionKept() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test widget").price(10.0).build();
+    long since = widgetRepository.lastChangeSeq();
+
+    Widget saved = widgetRepository.saveReplicated(widget, "kz3x1a9");
+
+    assertThat(widgetRepository.versionOf(saved)).isEqualTo("kz3x1a9");
+    assertThat(widgetRepository.versionOf(widgetRepository.findByName("Widget1").get())).isEqualTo("kz3x1a9");
+    assertThat(widgetRepository.changesSince(since, 10).get(0).getVersion()).isEqualTo("kz3x1a9");
+    assertThatThrownBy(() -> widgetRepository.saveReplicated(widget, "not-a-version"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  // Test for optimistic concurrency on update and delete
+  @Test
+  public void when_versionPreconditionFails_expect_widgetUnchanged() throws Exception {
+    Widget saved = widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    String version = widgetRepository.versionOf(saved);
+    Widget changes = Widget.builder().name("Widget1").price(20.0).build();
+
+    assertThatThrownBy(() -> widgetRepository.update(changes, (existing, update) -> update, "stale"::equals))
+        .isInstanceOf(WidgetVersionMismatchException.class);
+    assertThatThrownBy(() -> widgetRepository.deleteById("Widget1", "stale"::equals))
+        .isInstanceOf(WidgetVersionMismatchException.class);
+    assertThat(widgetRepository.findByName("Widget1")).contains(saved);
+
+    Optional<Widget> updated = widgetRepository.update(changes,
+        (existing, update) -> existing.toBuilder().price(update.getPrice()).build(), version::equals);
+    assertThat(updated.get().getPrice()).isEqualTo(20.0);
+    assertThat(widgetRepository.deleteById("Widget1", widgetRepository.versionOf(updated.get())::equals)).isPresent();
+    assertThat(widgetRepository.existsByName("Widget1")).isFalse();
+  }
+
+  // Test for querying by description words and price band
+  @Test
+  public void when_findByQuery_wordsAndPriceBand_expect_matchingWidgetsInNameOrder() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Red metal gear").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Blue plastic gear").price(20.0).build());
+    widgetRepository.save(Widget.builder().name("Widget3").description("Red plastic spring").price(30.0).build());
+    widgetRepository.save(Widget.builder().name("Widget4").description("Green GEAR, red trim").price(40.0).build());
+
+    List<Widget> result = widgetRepository.findByQuery(new WidgetQuery(null, 40.0, "gear RED", WidgetQuery.Sort.NAME), null, 100).getWidgets();
+
+    assertThat(result).extracting(Widget::getName).containsExactly("Widget1", "Widget4");
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(15.0, 30.0, null, WidgetQuery.Sort.PRICE_DESC), null, 100).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget3", "Widget2");
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(null, null, "gear", WidgetQuery.Sort.PRICE), null, 100).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget1", "Widget2", "Widget4");
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(null, null, "missing", WidgetQuery.Sort.NAME), null, 100).getWidgets()).isEmpty();
+  }
+
+  // Test for the indexes following updates and deletes
+  @Test
+  public void when_findByQuery_afterUpdateAndDelete_expect_currentWidgets() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Red metal gear").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Blue plastic gear").price(20.0).build());
+
+    widgetRepository.updateAll(List.of(Widget.builder().name("Widget1").description("Shiny spring").price(25.0).build()),
+        (existing, changes) -> changes);
+    widgetRepository.deleteById("Widget2");
+
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(null, null, "gear", WidgetQuery.Sort.NAME), null, 100).getWidgets()).isEmpty();
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(null, 20.0, null, WidgetQuery.Sort.NAME), null, 100).getWidgets()).isEmpty();
+    assertThat(widgetRepository.findByQuery(new WidgetQuery(25.0, 25.0, "spring", WidgetQuery.Sort.NAME), null, 100).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget1");
+  }
+
+  // Test for paging through query results with the next cursor
+  @Test
+  public void when_findByQuery_limited_expect_pagesFollowingCursor() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Red metal gear").price(30.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Blue plastic gear").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget3").description("Red plastic gear").price(20.0).build());
+    widgetRepository.save(Widget.builder().name("Widget4").description("Green gear").price(20.0).build());
+    WidgetQuery byPrice = new WidgetQuery(null, null, null, WidgetQuery.Sort.PRICE);
+    WidgetQuery gearsByPrice = new WidgetQuery(null, null, "gear", WidgetQuery.Sort.PRICE_DESC);
+    WidgetQuery gearsByName = new WidgetQuery(null, null, "gear", WidgetQuery.Sort.NAME);
+
+    QueryResult first = widgetRepository.findByQuery(byPrice, null, 3);
+    QueryResult second = widgetRepository.findByQuery(byPrice, first.getNextCursor(), 3);
+
+    assertThat(first.getWidgets()).extracting(Widget::getName).containsExactly("Widget2", "Widget3", "Widget4");
+    assertThat(second.getWidgets()).extracting(Widget::getName).containsExactly("Widget1");
+    assertThat(second.getNextCursor()).isNull();
+    QueryResult gears = widgetRepository.findByQuery(gearsByPrice, null, 2);
+    assertThat(gears.getWidgets()).extracting(Widget::getName).containsExactly("Widget1", "Widget4");
+    assertThat(widgetRepository.findByQuery(gearsByPrice, gears.getNextCursor(), 2).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget3", "Widget2");
+    QueryResult named = widgetRepository.findByQuery(gearsByName, null, 3);
+    assertThat(widgetRepository.findByQuery(gearsByName, named.getNextCursor(), 3).getWidgets())
+        .extracting(Widget::getName).containsExactly("Widget4");
+  }
+
+  // Test for searching names by prefix, ignoring case
+  @Test
+  public void when_searchByName_prefix_expect_matchingNamesInOrder() throws Exception {
+    for (String name : List.of("Widget10", "widgette", "Widget2", "Gadget", "Wid")) {
+      widgetRepository.save(Widget.builder().name(name).description("Test widget").price(10.0).build());
+    }
+
+    assertThat(widgetRepository.searchByName("WID", 0, 10)).extracting(Widget::getName)
+        .containsExactly("Wid", "Widget10", "Widget2", "widgette");
+    assertThat(widgetRepository.searchByName("widget", 0, 2)).extracting(Widget::getName)
+        .containsExactly("Widget10", "Widget2");
+
+    widgetRepository.deleteAll(List.of("Wid", "Widget10"));
+
+    assertThat(widgetRepository.searchByName("wid", 0, 10)).extracting(Widget::getName)
+        .containsExactly("Widget2", "widgette");
+  }
+
+  // Test for tolerating typos in the prefix, closest names first
+  @Test
+  public void when_searchByName_withTypos_expect_closestNamesFirst() throws Exception {
+    for (String name : List.of("Sprocket", "Spring", "Sprint", "Gizmo")) {
+      widgetRepository.save(Widget.builder().name(name).description("Test widget").price(10.0).build());
+    }
+
+    assertThat(widgetRepository.searchByName("sprnig", 0, 10)).isEmpty();
+    assertThat(widgetRepository.searchByName("sprnig", 2, 10)).extracting(Widget::getName)
+        .containsExactly("Spring", "Sprint");
+    assertThat(widgetRepository.searchByName("sporcket", 2, 10)).extracting(Widget::getName)
+        .containsExactly("Sprocket");
+  }
+
+  // Test for publishing each write to the change feed in order
+  @Test
+  public void when_widgetsWritten_expect_changesInOrder() throws Exception {
+    long since = widgetRepository.lastChangeSeq();
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(12.0).build());
+    widgetRepository.deleteById("Widget1");
+
+    List<WidgetChange> changes = widgetRepository.changesSince(since, 10);
+
+    assertThat(changes).extracting(WidgetChange::getType).containsExactly(
+        WidgetChange.Type.CREATED, WidgetChange.Type.UPDATED, WidgetChange.Type.DELETED);
+    assertThat(changes).extracting(WidgetChange::getSeq).containsExactly(since + 1, since + 2, since + 3);
+    assertThat(changes.get(1).getWidget().getPrice()).isEqualTo(12.0);
+    assertThat(changes.get(1).getVersion()).isEqualTo(widgetRepository.versionOf(changes.get(1).getWidget()));
+    assertThat(changes.get(2).getWidget()).isNull();
+    assertThat(widgetRepository.lastChangeSeq()).isEqualTo(since + 3);
+    assertThat(widgetRepository.changesSince(since, 1)).hasSize(1);
+    assertThat(widgetRepository.changesSince(since + 3, 10)).isEmpty();
+  }
+
+  // Test for running a change listener once, on the next change unless removed before
+  @Test
+  public void when_changeListenerRegistered_expect_runOnceOnNextChange() throws Exception {
+    long since = widgetRepository.lastChangeSeq();
+    AtomicInteger runs = new AtomicInteger();
+    AtomicInteger removedRuns = new AtomicInteger();
+    widgetRepository.onChanges(since, runs::incrementAndGet);
+    widgetRepository.onChanges(since, removedRuns::incrementAndGet).run();
+
+    assertThat(runs).hasValue(0);
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Test widget").price(10.0).build());
+    assertThat(runs).hasValue(1);
+    assertThat(removedRuns).hasValue(0);
+    widgetRepository.onChanges(since, runs::incrementAndGet);
+    assertThat(runs).hasValue(2);
+  }
+
+  // Test for reporting changes that were overwritten in the feed as expired
+  @Test
+  public void when_changesOverwritten_expect_changesExpired() throws Exception {
+    WidgetRepository repository = new WidgetRepository(WidgetJournal.NONE, 0, false, 4);
+    long since = repository.lastChangeSeq();
+    for (int i = 0; i < 5; i++) {
+      repository.save(Widget.builder().name("Widget" + i).description("Test widget").price(10.0).build());
+    }
+
+    assertThatThrownBy(() -> repository.changesSince(since, 10)).isInstanceOf(ChangesExpiredException.class);
+    assertThatThrownBy(() -> repository.changesSince(since + 6, 10)).isInstanceOf(ChangesExpiredException.class);
+    assertThat(repository.changesSince(since + 1, 10)).extracting(WidgetChange::getName)
+        .containsExactly("Widget1", "Widget2", "Widget3", "Widget4");
+  }
+
+  // Test for listing the heap table as it was when the listing started
+  @Test
+  public void when_streamAll_whileWriting_expect_widgetsAsOfStreamCreation() throws Exception {
+    WidgetRepository repository = new WidgetRepository();
+    for (String name : List.of("Widget1", "Widget2", "Widget3")) {
+      repository.save(Widget.builder().name(name).description("Test widget").price(10.0).build());
+    }
+
+    Iterator<Widget> widgets = repository.streamAll().iterator();
+    assertThat(widgets.next().getName()).isEqualTo("Widget1");
+    repository.deleteById("Widget2");
+    repository.save(Widget.builder().name("Widget25").description("Test widget").price(10.0).build());
+    repository.save(Widget.builder().name("Widget3").description("Test widget").price(30.0).build());
+
+    assertThat(widgets.next().getName()).isEqualTo("Widget2");
+    assertThat(widgets.next().getPrice()).isEqualTo(10.0);
+    assertThat(widgets.hasNext()).isFalse();
+    assertThat(repository.findPaginated(2, 2).getWidgets()).extracting(Widget::getName).containsExactly("Widget3");
+  }
 }
@@ -0,0 +1,119 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.models.PaginatedResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.ReactiveWidgetRepository;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+public class ReactiveWidgetServiceTests {
+
+  private WidgetRepository widgetRepository;
+
+  private MeterRegistry meterRegistry;
+
+  private ReactiveWidgetService widgetService;
+
+  @Before
+  public void setUp() {
+    widgetRepository = new WidgetRepository();
+    meterRegistry = new SimpleMeterRegistry();
+    widgetService = new ReactiveWidgetService(new ReactiveWidgetRepository(widgetRepository, Schedulers.immediate()),
+        new WidgetMetrics(meterRegistry, widgetRepository));
+  }
+
+  // Test for the publishers doing nothing until subscribed
+  @Test
+  public void when_createWidget_notSubscribed_expect_nothingSaved() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    Mono<Widget> created = widgetService.createWidget(widget);
+
+    assertThat(widgetRepository.existsByName("Widget1")).isFalse();
+    created.block();
+    assertThat(widgetRepository.existsByName("Widget1")).isTrue();
+  }
+
+  // Test for streaming all widgets in name order
+  @Test
+  public void when_streamAllWidgets_expect_nameOrder() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget2").description("Description").price(20.0).build());
+    widgetRepository.save(Widget.builder().name("Widget1").description("Description").price(10.0).build());
+
+    List<Widget> result = widgetService.streamAllWidgets().collectList().block();
+
+    assertThat(result).extracting(Widget::getName).containsExactly("Widget1", "Widget2");
+  }
+
+  // Test for paginating widgets with a cursor
+  @Test
+  public void when_getWidgetsAfter_expect_nextPage() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Description").price(10.0).build());
+    widgetRepository.save(Widget.builder().name("Widget2").description("Description").price(20.0).build());
+
+    PaginatedResult first = widgetService.getPaginatedWidgets(1, 1).block();
+    PaginatedResult second = widgetService.getWidgetsAfter(first.getNextCursor(), 1).block();
+
+    assertThat(second.getWidgets()).extracting(Widget::getName).containsExactly("Widget2");
+    assertThat(second.getTotal()).isEqualTo(2);
+  }
+
+  // Test for updating only the description or price of a widget
+  @Test
+  public void when_updateWidget_expect_changesMerged() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Description").price(10.0).build());
+
+    Widget result = widgetService.updateWidget("Widget1", Widget.builder().name("Ignored").price(15.0).build()).block();
+
+    assertThat(result.getName()).isEqualTo("Widget1");
+    assertThat(result.getDescription()).isEqualTo("Description");
+    assertThat(result.getPrice()).isEqualTo(15.0);
+    assertThat(widgetRepository.findByName("Widget1")).contains(result);
+  }
+
+  // Test for deleting widget
+  @Test
+  public void when_deleteWidget_expect_removed() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Description").price(10.0).build());
+
+    widgetService.deleteWidget("Widget1").block();
+
+    assertThat(widgetRepository.existsByName("Widget1")).isFalse();
+  }
+
+  // Test for reporting the same errors and meters as the blocking service
+  @Test
+  public void when_operationsFail_expect_errorsAndMetersLikeWidgetService() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    Widget missing = Widget.builder().name("NonExistentWidget").description("Description").price(1.0).build();
+    widgetRepository.save(widget);
+
+    assertThatThrownBy(() -> widgetService.createWidget(widget).block())
+        .isInstanceOf(WidgetAlreadyExistsException.class);
+    assertThatThrownBy(() -> widgetService.getWidgetByName("NonExistentWidget").block())
+        .isInstanceOf(EntityNotFoundException.class);
+    assertThatThrownBy(() -> widgetService.updateWidget("NonExistentWidget", missing).block())
+        .isInstanceOf(EntityNotFoundException.class);
+    assertThatThrownBy(() -> widgetService.deleteWidget("NonExistentWidget").block())
+        .isInstanceOf(EntityNotFoundException.class);
+
+    assertThat(meterRegistry.get("widgets.conflicts").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("widgets.not.found").counter().count()).isEqualTo(3.0);
+    assertThat(meterRegistry.get("widgets.operations").tag("operation", "create").timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("widgets.operations").tag("operation", "delete").timer().count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,143 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.BatchItemResult;
+import com.talentreef.interviewquestions.takehome.models.BatchResult;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
+
+
+public class WidgetBatchServiceTests {
+
+  private WidgetRepository widgetRepository;
+
+  private WidgetBatchService widgetBatchService;
+
+  @Before
+  public void setUp() {
+    widgetRepository = new WidgetRepository();
+    widgetBatchService = new WidgetBatchService(new WidgetService(widgetRepository),
+        new WidgetValidator(), new ObjectMapper(), 2);
+  }
+
+  // Test for creating a batch mixing valid, invalid and duplicate widgets
+  @Test
+  public void when_createWidgets_expect_reportInRequestOrder() throws Exception {
+    BatchResult result = widgetBatchService.createWidgets(body("""
+        [
+          {"name": "Widget1", "description": "Test widget", "price": 10.0},
+          {"name": "W", "description": "Test widget", "price": 10.0},
+          {"name": "Widget2", "description": "Test widget", "price": 10.0},
+          {"name": "Widget1", "description": "Other widget", "price": 15.0},
+          {"name": "Widget3", "description": "Test widget", "price": 10.0}
+        ]
+        """));
+
+    assertThat(result.getError()).isNull();
+    assertThat(result.getSucceeded()).isEqualTo(3);
+    assertThat(result.getFailed()).isEqualTo(2);
+    assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(201, 400, 201, 400, 201);
+    assertThat(result.getItems().get(1).getErrors()).containsExactly("name: Name must be between 3 and 100 characters.");
+    assertThat(result.getItems().get(3).getErrors()).containsExactly("A Widget with the name 'Widget1' already exists.");
+    assertThat(widgetRepository.findAll()).extracting(Widget::getName).containsExactly("Widget1", "Widget2", "Widget3");
+  }
+
+  // Test for updating a batch with a missing widget
+  @Test
+  public void when_updateWidgets_expect_existingWidgetsUpdated() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+
+    BatchResult result = widgetBatchService.updateWidgets(body("""
+        [
+          {"name": "Widget1", "description": "Updated widget", "price": 15.0},
+          {"name": "Widget2", "description": "Updated widget", "price": 15.0}
+        ]
+        """));
+
+    assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(200, 404);
+    assertThat(widgetRepository.findByName("Widget1").get().getPrice()).isEqualTo(15.0);
+  }
+
+  // Test for deleting a batch of widgets by name
+  @Test
+  public void when_deleteWidgets_expect_existingWidgetsDeleted() throws Exception {
+    widgetRepository.save(Widget.builder().name("Widget1").description("Test widget").price(10.0).build());
+
+    BatchResult result = widgetBatchService.deleteWidgets(body("[\"Widget1\", \"Widget2\", \" \"]"));
+
+    assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(204, 404, 400);
+    assertThat(widgetRepository.findAll()).isEmpty();
+  }
+
+  // Test for a request body that breaks off in the middle
+  @Test
+  public void when_createWidgets_malformedBody_expect_itemsBeforeErrorApplied() throws Exception {
+    BatchResult result = widgetBatchService.createWidgets(body("""
+        [
+          {"name": "Widget1", "description": "Test widget", "price": 10.0},
+          {"name": "Widget2", "description":
+        """));
+
+    assertThat(result.getError()).isNotNull();
+    assertThat(result.getSucceeded()).isEqualTo(1);
+    assertThat(widgetRepository.existsByName("Widget1")).isTrue();
+  }
+
+  // Test for a widget that cannot be bound being reported on its own
+  @Test
+  public void when_createWidgets_unboundItem_expect_itemBadRequest() throws Exception {
+    BatchResult result = widgetBatchService.createWidgets(body("""
+        [
+          {"name": "Widget1", "description": "Test widget", "price": "ten"},
+          {"name": "Widget2", "description": "Test widget", "price": 10.0}
+        ]
+        """));
+
+    assertThat(result.getError()).isNull();
+    assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(400, 201);
+    assertThat(result.getItems().get(0).getName()).isEqualTo("Widget1");
+    assertThat(result.getItems().get(0).getErrors()).singleElement().asString().startsWith("price: ");
+    assertThat(widgetRepository.findAll()).extracting(Widget::getName).containsExactly("Widget2");
+  }
+
+  // Test for a batch longer than the cap applying only the items before it
+  @Test
+  public void when_createWidgets_overMaxItems_expect_itemsBeforeCapApplied() throws Exception {
+    widgetBatchService = new WidgetBatchService(new WidgetService(widgetRepository),
+        new WidgetValidator(), new ObjectMapper(), 2, 2);
+
+    BatchResult result = widgetBatchService.createWidgets(body("""
+        [
+          {"name": "Widget1", "description": "Test widget", "price": 10.0},
+          {"name": "Widget2", "description": "Test widget", "price": 10.0},
+          {"name": "Widget3", "description": "Test widget", "price": 10.0}
+        ]
+        """));
+
+    assertThat(result.getError()).isEqualTo("Request body has more than 2 items. Only the first 2 were read.");
+    assertThat(result.getItems()).hasSize(2);
+    assertThat(widgetRepository.findAll()).extracting(Widget::getName).containsExactly("Widget1", "Widget2");
+  }
+
+  // Test for a request body that is not an array
+  @Test
+  public void when_createWidgets_notAnArray_expect_error() throws Exception {
+    BatchResult result = widgetBatchService.createWidgets(body("{\"name\": \"Widget1\"}"));
+
+    assertThat(result.getError()).isEqualTo("Request body must be a JSON array.");
+    assertThat(result.getItems()).isEmpty();
+  }
+
+  private static InputStream body(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
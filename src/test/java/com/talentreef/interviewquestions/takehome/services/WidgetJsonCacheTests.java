@@ -0,0 +1,74 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class WidgetJsonCacheTests {
+
+  final private ObjectMapper objectMapper = new ObjectMapper();
+
+  private MeterRegistry meterRegistry;
+
+  private WidgetJsonCache jsonCache;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    jsonCache = new WidgetJsonCache(objectMapper, meterRegistry, WidgetJsonCache.DEFAULT_MAX_BYTES);
+  }
+
+  // Test for reusing the bytes encoded for the same version of a widget
+  @Test
+  public void when_toJson_sameVersion_expect_cachedBytes() throws Exception {
+    Widget widget = widget("Description", 1L);
+
+    byte[] first = jsonCache.toJson(widget);
+    byte[] second = jsonCache.toJson(widget.toBuilder().build());
+
+    assertThat(second).isSameAs(first);
+    assertThat(objectMapper.readValue(second, Widget.class)).isEqualTo(widget);
+    assertThat(count("hit")).isEqualTo(1.0);
+    assertThat(count("miss")).isEqualTo(1.0);
+    assertThat(meterRegistry.get("widgets.json.cache.size").gauge().value()).isPositive();
+  }
+
+  // Test for encoding a newer version of a widget instead of serving the cached bytes
+  @Test
+  public void when_toJson_newVersion_expect_newBytes() throws Exception {
+    jsonCache.toJson(widget("Description", 1L));
+
+    byte[] json = jsonCache.toJson(widget("Updated Description", 2L));
+
+    assertThat(objectMapper.readValue(json, Widget.class).getDescription()).isEqualTo("Updated Description");
+    assertThat(count("miss")).isEqualTo(2.0);
+  }
+
+  // Test for encoding a widget again after it is invalidated
+  @Test
+  public void when_toJson_afterInvalidate_expect_miss() throws Exception {
+    Widget widget = widget("Description", 1L);
+    jsonCache.toJson(widget);
+
+    jsonCache.invalidate("Widget1");
+    jsonCache.toJson(widget);
+
+    assertThat(count("hit")).isEqualTo(0.0);
+    assertThat(count("miss")).isEqualTo(2.0);
+  }
+
+  private double count(String result) {
+    return meterRegistry.get("widgets.json.cache").tag("result", result).counter().count();
+  }
+
+  private static Widget widget(String description, Long version) {
+    return Widget.builder().name("Widget1").description(description).price(10.0).version(version).build();
+  }
+}
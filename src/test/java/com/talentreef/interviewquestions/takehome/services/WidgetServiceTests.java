@@ -1,34 +1,57 @@
 package com.talentreef.interviewquestions.takehome.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
 
 import javax.persistence.EntityNotFoundException;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.exceptions.InvalidQueryException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetAlreadyExistsException;
+import com.talentreef.interviewquestions.takehome.exceptions.WidgetVersionMismatchException;
+import com.talentreef.interviewquestions.takehome.models.QueryResult;
 import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.models.WidgetQuery;
 import com.talentreef.interviewquestions.takehome.respositories.WidgetRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
 public class WidgetServiceTests {
 
   @Mock
   private WidgetRepository widgetRepository;
 
-  @InjectMocks
+  private MeterRegistry meterRegistry;
+
   private WidgetService widgetService;
 
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    widgetService = new WidgetService(widgetRepository, new WidgetMetrics(meterRegistry, widgetRepository));
+  }
+
   // Test for listing all widgets
   @Test
   public void when_getAllWidgets_expect_findAllResult() throws Exception {
@@ -60,25 +83,72 @@ public class WidgetServiceTests {
     widgetService.getWidgetByName("NonExistentWidget");
   }
 
+  // Test for querying widgets through the repository indexes
+  @Test
+  public void when_queryWidgets_expect_findByQueryResultTimed() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Red gear").price(10.0).build();
+    WidgetQuery query = new WidgetQuery(5.0, 15.0, "gear", WidgetQuery.Sort.PRICE);
+    QueryResult page = new QueryResult(List.of(widget), null);
+    when(widgetRepository.findByQuery(query, null, 10)).thenReturn(page);
+
+    QueryResult result = widgetService.queryWidgets(query, null, 10);
+
+    assertThat(result).isSameAs(page);
+    assertThat(meterRegistry.get("widgets.operations").tag("operation", "query").timer().count()).isEqualTo(1);
+  }
+
+  // Test for rejecting queries for too many results
+  @Test
+  public void when_queryWidgets_limitOutOfRange_expect_error() throws Exception {
+    WidgetQuery query = new WidgetQuery(null, null, null, WidgetQuery.Sort.NAME);
+
+    assertThatThrownBy(() -> widgetService.queryWidgets(query, null, 1001))
+        .isInstanceOf(InvalidQueryException.class);
+    verify(widgetRepository, never()).findByQuery(any(), any(), anyInt());
+  }
+
+  // Test for rejecting searches with too many typos or results
+  @Test
+  public void when_searchWidgets_outOfRange_expect_error() throws Exception {
+    assertThatThrownBy(() -> widgetService.searchWidgets("Widget", 3, 10))
+        .isInstanceOf(InvalidQueryException.class);
+    assertThatThrownBy(() -> widgetService.searchWidgets("Widget", 0, 0))
+        .isInstanceOf(InvalidQueryException.class);
+
+    verify(widgetRepository, times(0)).searchByName(any(), anyInt(), anyInt());
+  }
+
   // Test for creating new widget
   @Test
   public void when_createWidget_expect_createWidget() throws Exception {
     Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
-    when(widgetRepository.save(any(Widget.class))).thenReturn(widget);
+    when(widgetRepository.saveIfAbsent(any(Widget.class))).thenReturn(widget);
 
     Widget result = widgetService.createWidget(widget);
 
     assertThat(result).isEqualTo(widget);
   }
 
+  // Test for creating a widget whose name is already taken
+  @Test(expected = WidgetAlreadyExistsException.class)
+  public void when_createWidget_alreadyExists_expect_error() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    when(widgetRepository.saveIfAbsent(any(Widget.class)))
+        .thenThrow(new WidgetAlreadyExistsException("A Widget with the name 'Widget1' already exists."));
+
+    widgetService.createWidget(widget);
+  }
+
   // Test for updating widget
   @Test
   public void when_saveWidget_existingWidget_expect_updatedWidget() throws Exception {
     Widget existingWidget = Widget.builder().name("Widget1").description("Old Description").price(5.0).build();
     Widget updatedWidget = Widget.builder().name("Widget1").description("Updated Description").price(10.0).build();
 
-    when(widgetRepository.findByName("Widget1")).thenReturn(Optional.of(existingWidget));
-    when(widgetRepository.save(any(Widget.class))).thenReturn(updatedWidget);
+    when(widgetRepository.update(any(Widget.class), any(), isNull())).thenAnswer(invocation -> {
+      BinaryOperator<Widget> merge = invocation.getArgument(1);
+      return Optional.of(merge.apply(existingWidget, invocation.getArgument(0)));
+    });
 
     Widget result = widgetService.updateWidget("Widget1", updatedWidget);
 
@@ -86,12 +156,27 @@ public class WidgetServiceTests {
     assertThat(result.getPrice()).isEqualTo(10.0);
   }
 
+  // Test for dropping the cached JSON of an updated widget
+  @Test
+  public void when_updateWidget_expect_jsonInvalidated() throws Exception {
+    WidgetJsonCache jsonCache = new WidgetJsonCache(new ObjectMapper(), meterRegistry, WidgetJsonCache.DEFAULT_MAX_BYTES);
+    widgetService = new WidgetService(widgetRepository, new WidgetMetrics(meterRegistry, widgetRepository), jsonCache);
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    when(widgetRepository.update(any(Widget.class), any(), isNull())).thenReturn(Optional.of(widget));
+
+    widgetService.toJson(widget);
+    widgetService.updateWidget("Widget1", widget);
+    widgetService.toJson(widget);
+
+    assertThat(meterRegistry.get("widgets.json.cache").tag("result", "miss").counter().count()).isEqualTo(2.0);
+  }
+
   // Test for updateWidget when it doesn't exist
   @Test(expected = EntityNotFoundException.class)
   public void when_updateWidget_notFound_expect_error() throws Exception {
     Widget updatedWidget = Widget.builder().name("NonExistentWidget").description("New Description").price(20.0).build();
 
-    when(widgetRepository.findByName("NonExistentWidget")).thenReturn(Optional.empty());
+    when(widgetRepository.update(any(Widget.class), any(), isNull())).thenReturn(Optional.empty());
 
     widgetService.updateWidget("NonExistentWidget", updatedWidget);
   }
@@ -100,18 +185,88 @@ public class WidgetServiceTests {
   @Test
   public void when_deleteWidget_found_expect_success() throws Exception {
     Widget widget = Widget.builder().name("Widget1").build();
-    when(widgetRepository.findByName("Widget1")).thenReturn(Optional.of(widget));
+    when(widgetRepository.deleteById(eq("Widget1"), isNull())).thenReturn(Optional.of(widget));
 
     widgetService.deleteWidget("Widget1");
 
-    verify(widgetRepository, times(1)).deleteById("Widget1");
+    verify(widgetRepository, times(1)).deleteById(eq("Widget1"), isNull());
   }
 
   // Test for deleting widget when it doesn't exists
   @Test(expected = EntityNotFoundException.class)
   public void when_deleteWidget_notFound_expect_error() throws Exception {
-    when(widgetRepository.findByName("NonExistentWidget")).thenReturn(Optional.empty());
+    when(widgetRepository.deleteById(eq("NonExistentWidget"), isNull())).thenReturn(Optional.empty());
 
     widgetService.deleteWidget("NonExistentWidget");
   }
+
+  // Test for updating a widget that changed since the client read it
+  @Test(expected = WidgetVersionMismatchException.class)
+  public void when_updateWidget_versionMismatch_expect_error() throws Exception {
+    Widget updatedWidget = Widget.builder().name("Widget1").price(20.0).build();
+    Predicate<String> expectedVersion = "v1"::equals;
+    when(widgetRepository.update(any(Widget.class), any(), eq(expectedVersion)))
+        .thenThrow(new WidgetVersionMismatchException("Widget with name 'Widget1' has changed."));
+
+    widgetService.updateWidget("Widget1", updatedWidget, expectedVersion);
+  }
+
+  // Test for creating a batch of widgets
+  @Test
+  public void when_createWidgets_expect_repositoryBatch() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    when(widgetRepository.saveAllIfAbsent(List.of(widget))).thenReturn(List.of(Optional.of(widget)));
+
+    List<Optional<Widget>> result = widgetService.createWidgets(List.of(widget));
+
+    assertThat(result).containsExactly(Optional.of(widget));
+  }
+
+  // Test for updating a batch of widgets keeping unchanged fields
+  @Test
+  public void when_updateWidgets_expect_changesMergedIntoCopy() throws Exception {
+    Widget existingWidget = Widget.builder().name("Widget1").description("Old Description").price(5.0).build();
+    Widget changes = Widget.builder().name("Widget1").price(10.0).build();
+    when(widgetRepository.updateAll(eq(List.of(changes)), any())).thenAnswer(invocation -> {
+      BinaryOperator<Widget> merge = invocation.getArgument(1);
+      return List.of(Optional.of(merge.apply(existingWidget, changes)));
+    });
+
+    List<Optional<Widget>> result = widgetService.updateWidgets(List.of(changes));
+
+    assertThat(result.get(0).get().getDescription()).isEqualTo("Old Description");
+    assertThat(result.get(0).get().getPrice()).isEqualTo(10.0);
+    assertThat(existingWidget.getPrice()).isEqualTo(5.0);
+  }
+
+  // Test for deleting a batch of widgets
+  @Test
+  public void when_deleteWidgets_expect_repositoryBatch() throws Exception {
+    when(widgetRepository.deleteAll(List.of("Widget1"))).thenReturn(List.of(Optional.empty()));
+
+    List<Optional<Widget>> result = widgetService.deleteWidgets(List.of("Widget1"));
+
+    assertThat(result).containsExactly(Optional.empty());
+  }
+
+  // Test for timing operations and counting conflicts and misses
+  @Test
+  public void when_operationsFail_expect_conflictsAndMissesCounted() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Description").price(10.0).build();
+    when(widgetRepository.saveIfAbsent(any(Widget.class)))
+        .thenThrow(new WidgetAlreadyExistsException("A Widget with the name 'Widget1' already exists."));
+    when(widgetRepository.findByName("NonExistentWidget")).thenReturn(Optional.empty());
+    when(widgetRepository.deleteAll(List.of("Widget1", "Widget2"))).thenReturn(List.of(Optional.of(widget), Optional.empty()));
+    when(widgetRepository.size()).thenReturn(7);
+
+    assertThatThrownBy(() -> widgetService.createWidget(widget)).isInstanceOf(WidgetAlreadyExistsException.class);
+    assertThatThrownBy(() -> widgetService.getWidgetByName("NonExistentWidget")).isInstanceOf(EntityNotFoundException.class);
+    widgetService.deleteWidgets(List.of("Widget1", "Widget2"));
+
+    assertThat(meterRegistry.get("widgets.conflicts").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("widgets.not.found").counter().count()).isEqualTo(2.0);
+    assertThat(meterRegistry.get("widgets.operations").tag("operation", "create").timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("widgets.operations").tag("operation", "get").timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("widgets.table.size").gauge().value()).isEqualTo(7.0);
+  }
 }
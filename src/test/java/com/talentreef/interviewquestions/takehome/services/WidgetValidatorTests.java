@@ -0,0 +1,57 @@
+package com.talentreef.interviewquestions.takehome.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import com.talentreef.interviewquestions.takehome.models.Widget;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+public class WidgetValidatorTests {
+
+  private final WidgetValidator widgetValidator = new WidgetValidator();
+
+  private final Validator beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  // Test for reporting the same violations as Bean Validation
+  @Test
+  public void when_validate_expect_sameViolationsAsBeanValidation() throws Exception {
+    List<Widget> widgets = List.of(
+        Widget.builder().name("Widget1").description("Test Description").price(20.0).build(),
+        Widget.builder().name("Wid").description("Descr").price(1.0).build(),
+        Widget.builder().name("Wid").description("Descr").price(20000.0).build(),
+        Widget.builder().build(),
+        Widget.builder().name("  ").description("    ").price(0.99).build(),
+        Widget.builder().name("W").description("Desc").price(20000.01).build(),
+        Widget.builder().name("x".repeat(101)).description("x".repeat(1001)).price(Double.NaN).build(),
+        Widget.builder().name("Widget1").description("Test Description").price(Double.POSITIVE_INFINITY).build(),
+        Widget.builder().name("Widget1").description("Test Description").price(Double.NEGATIVE_INFINITY).build(),
+        Widget.builder().name("   ").description("Test Description").price(0.9999999999999999).build());
+
+    for (Widget widget : widgets) {
+      List<String> expected = beanValidator.validate(widget).stream()
+          .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+          .sorted()
+          .toList();
+      assertThat(widgetValidator.validate(widget)).as(widget.toString()).isEqualTo(expected);
+    }
+  }
+
+  // Test for reporting violations as field errors of a binding
+  @Test
+  public void when_validateBinding_expect_fieldErrors() throws Exception {
+    Widget widget = Widget.builder().name("Widget1").description("Test Description").build();
+    BeanPropertyBindingResult errors = new BeanPropertyBindingResult(widget, "widget");
+
+    widgetValidator.validate(widget, errors);
+
+    assertThat(errors.getFieldErrors()).hasSize(1);
+    assertThat(errors.getFieldError("price").getCode()).isEqualTo("NotNull");
+    assertThat(errors.getFieldError("price").getDefaultMessage()).isEqualTo("Price is required.");
+  }
+}
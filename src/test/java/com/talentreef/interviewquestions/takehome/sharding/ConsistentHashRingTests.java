@@ -0,0 +1,45 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTests {
+
+  private static final List<String> NODES = List.of("http://localhost:9001", "http://localhost:9002", "http://localhost:9003");
+
+  // Test for spreading names evenly over the nodes
+  @Test
+  public void when_owner_expect_namesSpreadEvenly() throws Exception {
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 30_000; i++) {
+      counts.merge(ring.owner("Widget" + i), 1, Integer::sum);
+    }
+
+    assertThat(counts).containsOnlyKeys(NODES);
+    assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(8_000, 12_000));
+  }
+
+  // Test for moving only names to the added node, about a quarter of them
+  @Test
+  public void when_nodeAdded_expect_fewNamesMoved() throws Exception {
+    ConsistentHashRing before = new ConsistentHashRing(NODES, 128);
+    ConsistentHashRing after = new ConsistentHashRing(List.of("http://localhost:9004", "http://localhost:9003",
+        "http://localhost:9002", "http://localhost:9001"), 128);
+    int moved = 0;
+    for (int i = 0; i < 30_000; i++) {
+      String name = "Widget" + i;
+      if (!before.owner(name).equals(after.owner(name))) {
+        assertThat(after.owner(name)).isEqualTo("http://localhost:9004");
+        moved++;
+      }
+    }
+
+    assertThat(moved).isBetween(5_000, 10_000);
+  }
+}
@@ -0,0 +1,406 @@
+package com.talentreef.interviewquestions.takehome.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talentreef.interviewquestions.takehome.models.Widget;
+import com.talentreef.interviewquestions.takehome.respositories.WidgetCursor;
+
+public class ShardRoutingFilterTests {
+
+  private static final String SELF = "http://localhost:9001";
+  private static final String OTHER = "http://localhost:9002";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ConsistentHashRing ring = new ConsistentHashRing(List.of(SELF, OTHER), 128);
+  private final List<String> sent = new ArrayList<>();
+
+  private Map<String, String> bodies;
+  private Map<String, String> etags;
+  private ShardRoutingFilter filter;
+
+  @Before
+  public void init() {
+    bodies = Map.of();
+    etags = Map.of();
+    ShardClient client = (node, method, pathAndQuery, headers, body) -> {
+      sent.add(method + " " + node + pathAndQuery + (body == null ? "" : " " + new String(body, StandardCharsets.UTF_8)));
+      assertThat(headers.getFirst(ShardRoutingFilter.FORWARDED_HEADER)).isEqualTo(SELF);
+      String answer = bodies.getOrDefault(node + pathAndQuery, bodies.get(node));
+      if (answer == null) {
+        return CompletableFuture.failedFuture(new ConnectException("Connection refused"));
+      }
+      HttpHeaders responseHeaders = new HttpHeaders();
+      String etag = etags.getOrDefault(node, "\"v1\"");
+      responseHeaders.set(HttpHeaders.ETAG, etag);
+      if (("W/" + etag).equals(headers.getFirst(HttpHeaders.IF_NONE_MATCH))) {
+        return CompletableFuture.completedFuture(new ShardClient.Response(304, responseHeaders, new byte[0]));
+      }
+      byte[] content = answer.getBytes(StandardCharsets.UTF_8);
+      // Answers compressed when asked to, like an instance with server.compression enabled.
+      List<String> encodings = headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING);
+      if (encodings.stream().anyMatch(encoding -> encoding.contains("gzip"))) {
+        content = gzip(content);
+        responseHeaders.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      }
+      return CompletableFuture.completedFuture(new ShardClient.Response(200, responseHeaders, content));
+    };
+    filter = new ShardRoutingFilter(ring, SELF, client, objectMapper);
+  }
+
+  // Test for handling a name owned by this instance locally
+  @Test
+  public void when_getOwnedWidget_expect_handledLocally() throws Exception {
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/" + ownedBy(SELF)), new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(sent).isEmpty();
+  }
+
+  // Test for forwarding a request on a name owned by another instance, and returning its response
+  @Test
+  public void when_getOtherWidget_expect_forwardedToOwner() throws Exception {
+    String name = ownedBy(OTHER);
+    bodies = Map.of(OTHER, "{\"name\":\"" + name + "\"}");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets/" + name), response, chain);
+
+    assertThat(chain.getRequest()).isNull();
+    assertThat(sent).containsExactly("GET " + OTHER + "/v1/widgets/" + name);
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+    assertThat(response.getContentAsString()).isEqualTo("{\"name\":\"" + name + "\"}");
+  }
+
+  // Test for creating a widget on the instance owning its name
+  @Test
+  public void when_createOtherWidget_expect_forwardedWithBody() throws Exception {
+    String body = "{\"name\":\"" + ownedBy(OTHER) + "\",\"description\":\"Test Description\",\"price\":20.0}";
+    bodies = Map.of(OTHER, body);
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/widgets");
+    request.setContent(body.getBytes(StandardCharsets.UTF_8));
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest()).isNull();
+    assertThat(sent).containsExactly("POST " + OTHER + "/v1/widgets " + body);
+  }
+
+  // Test for creating a widget owned by this instance locally, with the body still readable
+  @Test
+  public void when_createOwnedWidget_expect_bodyReplayed() throws Exception {
+    String body = "{\"name\":\"" + ownedBy(SELF) + "\",\"description\":\"Test Description\",\"price\":20.0}";
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/widgets");
+    request.setContent(body.getBytes(StandardCharsets.UTF_8));
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertThat(sent).isEmpty();
+    assertThat(new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+  }
+
+  // Test for refusing a body too large to forward rather than forwarding part of it
+  @Test
+  public void when_createWidget_bodyTooLarge_expect_payloadTooLarge() throws Exception {
+    String body = "{\"name\":\"" + ownedBy(OTHER) + "\",\"description\":\"" + "x".repeat(1 << 20) + "\",\"price\":20.0}";
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/widgets");
+    request.setContent(body.getBytes(StandardCharsets.UTF_8));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, response, chain);
+
+    assertThat(response.getStatus()).isEqualTo(413);
+    assertThat(chain.getRequest()).isNull();
+    assertThat(sent).isEmpty();
+  }
+
+  // Test for listing the widgets of every instance in name order
+  @Test
+  public void when_getAllWidgets_expect_mergedInNameOrder() throws Exception {
+    bodies = Map.of(
+        SELF, "[" + json("Widget1") + "," + json("Widget4") + "]",
+        OTHER, "[" + json("Widget2") + "," + json("Widget3") + "," + json("Widget5") + "]");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets"), response, new MockFilterChain());
+
+    List<Widget> widgets = objectMapper.readValue(response.getContentAsByteArray(), new TypeReference<List<Widget>>() {
+    });
+    assertThat(widgets).extracting(Widget::getName)
+        .containsExactly("Widget1", "Widget2", "Widget3", "Widget4", "Widget5");
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"v1.v1\"");
+  }
+
+  // Test for answering 304 when no instance's listing changed since the joined ETag
+  @Test
+  public void when_getAllWidgets_notModified_expect_notModified() throws Exception {
+    bodies = Map.of(SELF, "[" + json("Widget1") + "]", OTHER, "[" + json("Widget2") + "]");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"v1.v1\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"v1.v1\"");
+    assertThat(response.getContentAsByteArray()).isEmpty();
+    assertThat(sent).hasSize(2);
+  }
+
+  // Test for listing every instance again when one of them changed since the joined ETag
+  @Test
+  public void when_getAllWidgets_oneInstanceChanged_expect_fullListing() throws Exception {
+    bodies = Map.of(SELF, "[" + json("Widget1") + "]", OTHER, "[" + json("Widget2") + "]");
+    etags = Map.of(SELF, "\"v2\"");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"v1.v1\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"v2.v1\"");
+    assertThat(objectMapper.readTree(response.getContentAsByteArray()).findValuesAsText("name"))
+        .containsExactly("Widget1", "Widget2");
+    assertThat(sent).containsExactly(
+        "GET " + SELF + "/v1/widgets", "GET " + OTHER + "/v1/widgets", "GET " + OTHER + "/v1/widgets");
+  }
+
+  // Test for refusing to list versions, which each instance numbers on its own
+  @Test
+  public void when_getAllWidgets_withVersions_expect_badRequest() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets");
+    request.addParameter("versions", "true");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(sent).isEmpty();
+  }
+
+  // Test for answering 502 rather than a partial array when an instance's listing breaks off
+  @Test
+  public void when_getAllWidgets_listingBreaksOff_expect_badGateway() throws Exception {
+    bodies = Map.of(SELF, "[" + json("Widget1") + "," + json("Widget3") + "]", OTHER, "[" + json("Widget2") + ",{\"na");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets"), response, new MockFilterChain());
+
+    assertThat(response.getStatus()).isEqualTo(502);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+  }
+
+  // Test for aborting a committed listing when an instance's listing breaks off, instead of ending the array
+  @Test
+  public void when_getAllWidgets_listingBreaksOffAfterCommit_expect_aborted() throws Exception {
+    bodies = Map.of(SELF, "[" + json("Widget1") + "," + json("Widget3") + "]", OTHER, "[" + json("Widget2") + ",{\"na");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    response.setCommitted(true);
+
+    assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/v1/widgets"), response, new MockFilterChain()))
+        .isInstanceOf(IOException.class);
+    assertThat(response.getContentAsString()).doesNotEndWith("]");
+  }
+
+  // Test for paging after a cursor across every instance
+  @Test
+  public void when_getPaginatedWidgets_withCursor_expect_mergedPage() throws Exception {
+    bodies = Map.of(
+        SELF, "{\"widgets\":[" + json("Widget4") + "," + json("Widget6") + "],\"total\":4,\"nextCursor\":\"x\"}",
+        OTHER, "{\"widgets\":[" + json("Widget3") + "," + json("Widget5") + "],\"total\":3,\"nextCursor\":null}");
+    String cursor = WidgetCursor.encode("Widget2");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets/paginated");
+    request.setQueryString("after=" + cursor + "&pageSize=2");
+    request.addParameter("after", cursor);
+    request.addParameter("pageSize", "2");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    assertThat(sent).contains("GET " + SELF + "/v1/widgets/paginated?after=" + cursor + "&pageSize=2");
+    JsonNode page = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(page.get("widgets").get(0).get("name").asText()).isEqualTo("Widget3");
+    assertThat(page.get("widgets").get(1).get("name").asText()).isEqualTo("Widget4");
+    assertThat(page.get("total").asInt()).isEqualTo(7);
+    assertThat(page.get("nextCursor").asText()).isEqualTo(WidgetCursor.encode("Widget4"));
+  }
+
+  // Test for an offset page, skipping the widgets before it by following each instance's cursor
+  @Test
+  public void when_getPaginatedWidgets_withPage_expect_cursorsFollowed() throws Exception {
+    String cursor = WidgetCursor.encode("Widget1");
+    String next = SELF + "/v1/widgets/paginated?after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) + "&pageSize=1000";
+    bodies = Map.of(
+        SELF, "{\"widgets\":[" + json("Widget1") + "],\"total\":2,\"nextCursor\":\"" + cursor + "\"}",
+        next, "{\"widgets\":[" + json("Widget4") + "],\"total\":2,\"nextCursor\":null}",
+        OTHER, "{\"widgets\":[" + json("Widget2") + "," + json("Widget3") + "," + json("Widget5") + "],\"total\":3,\"nextCursor\":null}");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets/paginated");
+    request.addParameter("page", "2");
+    request.addParameter("pageSize", "2");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    assertThat(sent).containsExactlyInAnyOrder(
+        "GET " + SELF + "/v1/widgets/paginated?page=1&pageSize=1000",
+        "GET " + OTHER + "/v1/widgets/paginated?page=1&pageSize=1000",
+        "GET " + next);
+    JsonNode page = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(page.get("widgets").findValuesAsText("name")).containsExactly("Widget3", "Widget4");
+    assertThat(page.get("total").asInt()).isEqualTo(5);
+    assertThat(page.get("nextCursor").asText()).isEqualTo(WidgetCursor.encode("Widget4"));
+  }
+
+  // Test for splitting a batch by the instance owning each name and merging the reports in request order
+  @Test
+  public void when_createBatch_expect_splitByOwner() throws Exception {
+    String own = ownedBy(SELF);
+    String other = ownedBy(OTHER);
+    String otherToo = ownedBy(OTHER, other);
+    bodies = Map.of(
+        SELF, "{\"succeeded\":1,\"failed\":0,\"items\":[" + item(own, 201) + "],\"error\":null}",
+        OTHER, "{\"succeeded\":1,\"failed\":1,\"items\":[" + item(other, 201) + ","
+            + "{\"name\":\"" + otherToo + "\",\"status\":400,\"errors\":[\"A Widget with the name '" + otherToo
+            + "' already exists.\"]}],\"error\":null}");
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/widgets/batch");
+    request.setContent(("[" + json(other) + "," + json(own) + "," + json(otherToo) + "]").getBytes(StandardCharsets.UTF_8));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, response, chain);
+
+    assertThat(chain.getRequest()).isNull();
+    assertThat(sent).containsExactlyInAnyOrder(
+        "POST " + SELF + "/v1/widgets/batch [" + json(own) + "]",
+        "POST " + OTHER + "/v1/widgets/batch [" + json(other) + "," + json(otherToo) + "]");
+    JsonNode report = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(report.get("succeeded").asInt()).isEqualTo(2);
+    assertThat(report.get("failed").asInt()).isEqualTo(1);
+    assertThat(report.get("items").findValuesAsText("name")).containsExactly(other, own, otherToo);
+    assertThat(report.get("items").get(2).get("status").asInt()).isEqualTo(400);
+  }
+
+  // Test for reading the instances' batch reports in plain JSON when the client accepts compressed responses
+  @Test
+  public void when_createBatch_acceptGzip_expect_reportsRead() throws Exception {
+    String own = ownedBy(SELF);
+    String other = ownedBy(OTHER);
+    bodies = Map.of(
+        SELF, "{\"succeeded\":1,\"failed\":0,\"items\":[" + item(own, 201) + "],\"error\":null}",
+        OTHER, "{\"succeeded\":1,\"failed\":0,\"items\":[" + item(other, 201) + "],\"error\":null}");
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/widgets/batch");
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    request.addHeader(HttpHeaders.ACCEPT, "application/x-jackson-smile");
+    request.setContent(("[" + json(own) + "," + json(other) + "]").getBytes(StandardCharsets.UTF_8));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    JsonNode report = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(report.get("succeeded").asInt()).isEqualTo(2);
+    assertThat(report.get("items").findValuesAsText("status")).containsExactly("201", "201");
+  }
+
+  // Test for reporting the batch items of an unreachable instance as failed, and applying the others
+  @Test
+  public void when_deleteBatch_ownerUnreachable_expect_itemsBadGateway() throws Exception {
+    String own = ownedBy(SELF);
+    String other = ownedBy(OTHER);
+    bodies = Map.of(SELF, "{\"succeeded\":1,\"failed\":0,\"items\":[" + item(own, 204) + "],\"error\":null}");
+    MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/v1/widgets/batch");
+    request.setContent(("[\"" + own + "\",\"" + other + "\"]").getBytes(StandardCharsets.UTF_8));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, new MockFilterChain());
+
+    JsonNode report = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(report.get("items").get(0).get("status").asInt()).isEqualTo(204);
+    assertThat(report.get("items").get(1).get("name").asText()).isEqualTo(other);
+    assertThat(report.get("items").get(1).get("status").asInt()).isEqualTo(502);
+    assertThat(report.get("failed").asInt()).isEqualTo(1);
+  }
+
+  // Test for answering 502 when the owning instance is unreachable
+  @Test
+  public void when_ownerUnreachable_expect_badGateway() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("DELETE", "/v1/widgets/" + ownedBy(OTHER)), response, new MockFilterChain());
+
+    assertThat(response.getStatus()).isEqualTo(502);
+  }
+
+  // Test for handling forwarded requests locally without routing them again
+  @Test
+  public void when_forwarded_expect_handledLocally() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/widgets/" + ownedBy(OTHER));
+    request.addHeader(ShardRoutingFilter.FORWARDED_HEADER, OTHER);
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(sent).isEmpty();
+  }
+
+  private String ownedBy(String node) {
+    return ownedBy(node, null);
+  }
+
+  private String ownedBy(String node, String except) {
+    for (int i = 0; ; i++) {
+      if (ring.owner("Widget" + i).equals(node) && !("Widget" + i).equals(except)) {
+        return "Widget" + i;
+      }
+    }
+  }
+
+  private static String item(String name, int status) {
+    return "{\"name\":\"" + name + "\",\"status\":" + status + ",\"errors\":null}";
+  }
+
+  private static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(content);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static String json(String name) {
+    return "{\"name\":\"" + name + "\",\"description\":\"Test Description\",\"price\":20.0}";
+  }
+}